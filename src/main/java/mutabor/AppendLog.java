@@ -0,0 +1,36 @@
+package mutabor;
+
+/**
+ * Append-only list for many concurrent producers.
+ * Producers never block each other; readers get immutable snapshots
+ * of committed elements, published in batches.
+ * Created by {@link Mutabor#newAppendLog}.
+ * @param <E> the type of elements in this log
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface AppendLog<E> {
+	
+	/**
+	 * Appends element to the end of this log. Thread-safe.
+	 * Element becomes visible to readers when the next snapshot is published.
+	 * @param e element to be appended
+	 * @return index of the element
+	 * @throws IllegalStateException if log is full
+	 */
+	int append(E e);
+	
+	/**
+	 * Returns the last published snapshot.
+	 * Publishes new snapshot first if the last one is older than max delay of this log.
+	 * No elements are copied.
+	 * @return immutable snapshot
+	 */
+	ImmutableList<E> snapshot();
+	
+	/**
+	 * Publishes snapshot of all elements committed so far, without copying elements.
+	 * Elements which are still being appended by other threads and elements after them are not included.
+	 * @return immutable snapshot
+	 */
+	ImmutableList<E> publish();
+}
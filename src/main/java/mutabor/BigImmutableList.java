@@ -0,0 +1,104 @@
+package mutabor;
+
+import java.util.function.Consumer;
+
+/**
+ * Immutable list with {@code long} size and indexes.
+ * Elements are stored in segments, so size is not limited by maximal array length.
+ * List is equal to other big list or to {@link ReadOnlyList} with the same elements.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface BigImmutableList<E> extends Iterable<E> {
+	
+	/**
+	 * Returns the number of elements in this list.
+	 * @return the number of elements in this list
+	 */
+	long size();
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains no elements.
+	 * @return <tt>true</tt> if this list contains no elements
+	 */
+	boolean isEmpty();
+	
+	/**
+	 * Returns the element at the specified position in this list.
+	 * @param index index of the element to return
+	 * @return the element at the specified position in this list
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * (<tt>index &lt; 0 || index &gt;= size()</tt>)
+	 */
+	E get(long index);
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains the specified element.
+	 * @param o element whose presence in this list is to be tested
+	 * @return <tt>true</tt> if this list contains the specified element
+	 */
+	boolean contains(Object o);
+	
+	/**
+	 * Returns the index of the first occurrence of the specified element
+	 * in this list, or -1 if this list does not contain the element.
+	 * @param o element to search for
+	 * @return the index of the first occurrence of the specified element or -1
+	 */
+	long indexOf(Object o);
+	
+	/**
+	 * Returns the index of the last occurrence of the specified element
+	 * in this list, or -1 if this list does not contain the element.
+	 * @param o element to search for
+	 * @return the index of the last occurrence of the specified element or -1
+	 */
+	long lastIndexOf(Object o);
+	
+	/**
+	 * Returns a view of the portion of this list between the specified
+	 * <tt>fromIndex</tt>, inclusive, and <tt>toIndex</tt>, exclusive.
+	 * View shares segments with this list, no elements are copied.
+	 * @param fromIndex low endpoint (inclusive) of the subList
+	 * @param toIndex high endpoint (exclusive) of the subList
+	 * @return a view of the specified range within this list
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 * (<tt>fromIndex &lt; 0 || toIndex &gt; size ||
+	 * fromIndex &gt; toIndex</tt>)
+	 */
+	BigImmutableList<E> subList(long fromIndex, long toIndex);
+	
+	/**
+	 * Performs the given action for each element of the specified range,
+	 * walking segments directly.
+	 * @param fromIndex low endpoint (inclusive) of the range
+	 * @param toIndex high endpoint (exclusive) of the range
+	 * @param action the action to be performed for each element
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 */
+	void forEach(long fromIndex, long toIndex, Consumer<? super E> action);
+	
+	/**
+	 * Compares contents of this list to the specified {@link java.lang.Iterable}.
+	 * @param iterable the {@link java.lang.Iterable} to compare this list against
+	 * @return {@code true} if this list represents the same sequence of objects
+	 * as the specified {@link java.lang.Iterable}, {@code false} otherwise
+	 */
+	boolean contentEquals(Iterable<? extends E> iterable);
+	
+	/**
+	 * Creates {@link BigMutableList} which contains elements of this list.
+	 * Segments are shared until they are changed.
+	 * @return mutable list
+	 */
+	BigMutableList<E> mutable();
+	
+	/**
+	 * Returns this list as {@link ImmutableList} with {@code int} indexes.
+	 * Segments are shared, no elements are copied, unless size is within one segment
+	 * of {@link Integer#MAX_VALUE} and this list does not start at the start of segment.
+	 * @return immutable list view
+	 * @throws IllegalStateException if size of this list exceeds {@link Integer#MAX_VALUE}
+	 */
+	ImmutableList<E> asReadOnlyList();
+}
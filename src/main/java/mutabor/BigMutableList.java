@@ -0,0 +1,158 @@
+package mutabor;
+
+import java.util.function.Consumer;
+
+/**
+ * Mutable list with {@code long} size and indexes.
+ * Elements are stored in segments, so size is not limited by maximal array length.
+ * Segments are shared with snapshots, and a write copies only the segment it touches.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface BigMutableList<E> extends Iterable<E> {
+	
+	/**
+	 * Returns the number of elements in this list.
+	 * @return the number of elements in this list
+	 */
+	long size();
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains no elements.
+	 * @return <tt>true</tt> if this list contains no elements
+	 */
+	boolean isEmpty();
+	
+	/**
+	 * Returns the element at the specified position in this list.
+	 * @param index index of the element to return
+	 * @return the element at the specified position in this list
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * (<tt>index &lt; 0 || index &gt;= size()</tt>)
+	 */
+	E get(long index);
+	
+	/**
+	 * Replaces the element at the specified position in this list with the specified element.
+	 * @param index index of the element to replace
+	 * @param element element to be stored at the specified position
+	 * @return the element previously at the specified position
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * (<tt>index &lt; 0 || index &gt;= size()</tt>)
+	 */
+	E set(long index, E element);
+	
+	/**
+	 * Appends the specified element to the end of this list.
+	 * @param e element to be appended to this list
+	 * @return <tt>true</tt>
+	 */
+	boolean add(E e);
+	
+	/**
+	 * Inserts the specified element at the specified position in this list.
+	 * Shifts the subsequent elements, so it may be slow for big lists.
+	 * @param index index at which the specified element is to be inserted
+	 * @param element element to be inserted
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * (<tt>index &lt; 0 || index &gt; size()</tt>)
+	 */
+	void add(long index, E element);
+	
+	/**
+	 * Appends all of the elements of the specified iterable to the end of this list.
+	 * @param c iterable containing elements to be added to this list
+	 * @return <tt>true</tt> if this list changed as a result of the call
+	 */
+	boolean addAll(Iterable<? extends E> c);
+	
+	/**
+	 * Removes the element at the specified position in this list.
+	 * Shifts the subsequent elements, so it may be slow for big lists.
+	 * @param index the index of the element to be removed
+	 * @return the element previously at the specified position
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * (<tt>index &lt; 0 || index &gt;= size()</tt>)
+	 */
+	E remove(long index);
+	
+	/**
+	 * Removes all of the elements from this list.
+	 */
+	void clear();
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains the specified element.
+	 * @param o element whose presence in this list is to be tested
+	 * @return <tt>true</tt> if this list contains the specified element
+	 */
+	boolean contains(Object o);
+	
+	/**
+	 * Returns the index of the first occurrence of the specified element
+	 * in this list, or -1 if this list does not contain the element.
+	 * @param o element to search for
+	 * @return the index of the first occurrence of the specified element or -1
+	 */
+	long indexOf(Object o);
+	
+	/**
+	 * Returns the index of the last occurrence of the specified element
+	 * in this list, or -1 if this list does not contain the element.
+	 * @param o element to search for
+	 * @return the index of the last occurrence of the specified element or -1
+	 */
+	long lastIndexOf(Object o);
+	
+	/**
+	 * Returns immutable view of the portion of current {@link #snapshot()} between the specified
+	 * <tt>fromIndex</tt>, inclusive, and <tt>toIndex</tt>, exclusive.
+	 * Later changes of this list are not reflected in the view.
+	 * @param fromIndex low endpoint (inclusive) of the subList
+	 * @param toIndex high endpoint (exclusive) of the subList
+	 * @return a view of the specified range of snapshot
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 * (<tt>fromIndex &lt; 0 || toIndex &gt; size ||
+	 * fromIndex &gt; toIndex</tt>)
+	 */
+	BigImmutableList<E> subList(long fromIndex, long toIndex);
+	
+	/**
+	 * Performs the given action for each element of the specified range,
+	 * walking segments directly.
+	 * @param fromIndex low endpoint (inclusive) of the range
+	 * @param toIndex high endpoint (exclusive) of the range
+	 * @param action the action to be performed for each element
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 */
+	void forEach(long fromIndex, long toIndex, Consumer<? super E> action);
+	
+	/**
+	 * Compares contents of this list to the specified {@link java.lang.Iterable}.
+	 * @param iterable the {@link java.lang.Iterable} to compare this list against
+	 * @return {@code true} if this list represents the same sequence of objects
+	 * as the specified {@link java.lang.Iterable}, {@code false} otherwise
+	 */
+	boolean contentEquals(Iterable<? extends E> iterable);
+	
+	/**
+	 * Creates immutable snapshot of this list.
+	 * Snapshot is saved internally. Two calls of this method
+	 * will return the same object if list was not changed between calls.
+	 * Snapshot shares segments with this list, no elements are copied.
+	 * @return immutable snapshot
+	 */
+	BigImmutableList<E> snapshot();
+	
+	/**
+	 * Releases internally saved copy of snapshot.
+	 */
+	void releaseSnapshot();
+	
+	/**
+	 * Returns current {@link #snapshot()} as {@link ImmutableList} with {@code int} indexes.
+	 * @return immutable list view of snapshot
+	 * @throws IllegalStateException if size of this list exceeds {@link Integer#MAX_VALUE}
+	 */
+	ImmutableList<E> asReadOnlyList();
+}
@@ -0,0 +1,172 @@
+package mutabor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffered binary input from {@link ReadableByteChannel}, used by {@link ListCodec}.
+ * Reads ahead, so channel position after reading is undefined.
+ * Channel is never closed by this class.
+ * Lengths read from input are not trusted: arrays for them grow as data is actually read,
+ * so corrupt length fails with {@link EOFException} instead of allocating huge array.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class CodecInput {
+	
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	
+	//arrays for lengths read from input are allocated at most this large up front
+	protected static final int MAX_PREALLOCATION = 1 << 16;
+	
+	protected final ReadableByteChannel channel;
+	protected final ByteBuffer buffer;
+	protected byte[] scratch = new byte[64];
+	
+	/**
+	 * Creates input with new direct buffer of {@value #DEFAULT_BUFFER_SIZE} bytes.
+	 * @param channel channel to read
+	 */
+	public CodecInput(ReadableByteChannel channel) {
+		this(channel, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+	}
+	
+	/**
+	 * Creates input which reuses the specified buffer.
+	 * Buffer is cleared, its capacity must be at least 16 bytes.
+	 * @param channel channel to read
+	 * @param buffer buffer
+	 */
+	public CodecInput(ReadableByteChannel channel, ByteBuffer buffer) {
+		if (channel == null) {
+			throw new NullPointerException("channel");
+		}
+		if (buffer.capacity() < 16) {
+			throw new IllegalArgumentException("buffer capacity = " + buffer.capacity());
+		}
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.clear();
+		buffer.flip();
+	}
+	
+	/*
+	 * Makes sure that buffer has n bytes to read, n must not exceed buffer capacity.
+	 */
+	protected void ensure(int n) throws IOException {
+		if (buffer.remaining() >= n) {
+			return;
+		}
+		buffer.compact();
+		try {
+			while (buffer.position() < n) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException();
+				}
+			}
+		} finally {
+			buffer.flip();
+		}
+	}
+	
+	public int readByte() throws IOException {
+		ensure(1);
+		return buffer.get();
+	}
+	
+	/**
+	 * Reads unsigned variable-length integer written by {@link CodecOutput#writeVarLong}.
+	 * @return value
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long readVarLong() throws IOException {
+		long res = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			res |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return res;
+			}
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+	
+	/**
+	 * Reads signed variable-length integer written by {@link CodecOutput#writeSignedVarLong}.
+	 * @return value
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long readSignedVarLong() throws IOException {
+		long v = readVarLong();
+		return (v >>> 1) ^ -(v & 1);
+	}
+	
+	/*
+	 * Reads variable-length non-negative int, used for sizes and lengths.
+	 */
+	protected int readLength() throws IOException {
+		long v = readVarLong();
+		if (v < 0 || v > Integer.MAX_VALUE) {
+			throw new IOException("Malformed length: " + v);
+		}
+		return (int) v;
+	}
+	
+	public int readInt() throws IOException {
+		ensure(4);
+		return buffer.getInt();
+	}
+	
+	public long readLong() throws IOException {
+		ensure(8);
+		return buffer.getLong();
+	}
+	
+	public double readDouble() throws IOException {
+		ensure(8);
+		return buffer.getDouble();
+	}
+	
+	public void readBytes(byte[] bytes, int offset, int length) throws IOException {
+		int pos = offset;
+		int end = offset + length;
+		while (pos < end) {
+			if (!buffer.hasRemaining()) {
+				ensure(1);
+			}
+			int n = Math.min(buffer.remaining(), end - pos);
+			buffer.get(bytes, pos, n);
+			pos += n;
+		}
+	}
+	
+	/*
+	 * Returns length of array grown to hold more than n of needed items, up to needed.
+	 */
+	protected static int grownLength(int n, int needed) {
+		return (int) Math.min(Math.max(n * 2L, MAX_PREALLOCATION), needed);
+	}
+	
+	/**
+	 * Reads string written by {@link CodecOutput#writeUtf8}.
+	 * Bytes are read into reused scratch array.
+	 * @return string
+	 * @throws IOException if an I/O error occurs
+	 */
+	public String readUtf8() throws IOException {
+		int length = readLength();
+		int pos = 0;
+		while (pos < length) {
+			if (pos == scratch.length) {
+				scratch = Arrays.copyOf(scratch, grownLength(pos, length));
+			}
+			int n = Math.min(scratch.length, length) - pos;
+			readBytes(scratch, pos, n);
+			pos += n;
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+}
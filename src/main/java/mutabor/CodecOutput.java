@@ -0,0 +1,138 @@
+package mutabor;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered binary output to {@link WritableByteChannel}, used by {@link ListCodec}.
+ * Buffer is passed to channel when it is full and on {@link #flush()}.
+ * Channel is never closed by this class.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class CodecOutput implements Flushable {
+	
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	
+	protected final WritableByteChannel channel;
+	protected final ByteBuffer buffer;
+	
+	/**
+	 * Creates output with new direct buffer of {@value #DEFAULT_BUFFER_SIZE} bytes.
+	 * @param channel channel to write
+	 */
+	public CodecOutput(WritableByteChannel channel) {
+		this(channel, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+	}
+	
+	/**
+	 * Creates output which reuses the specified buffer.
+	 * Buffer is cleared, its capacity must be at least 16 bytes.
+	 * @param channel channel to write
+	 * @param buffer buffer
+	 */
+	public CodecOutput(WritableByteChannel channel, ByteBuffer buffer) {
+		if (channel == null) {
+			throw new NullPointerException("channel");
+		}
+		if (buffer.capacity() < 16) {
+			throw new IllegalArgumentException("buffer capacity = " + buffer.capacity());
+		}
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.clear();
+	}
+	
+	/*
+	 * Makes sure that buffer has room for n bytes, n must not exceed buffer capacity.
+	 */
+	protected void ensure(int n) throws IOException {
+		if (buffer.remaining() < n) {
+			drain();
+		}
+	}
+	
+	protected void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+	
+	public void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer.put((byte) value);
+	}
+	
+	/**
+	 * Writes unsigned variable-length integer, 7 bits per byte.
+	 * @param value value, negative values take 10 bytes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeVarLong(long value) throws IOException {
+		ensure(10);
+		long v = value;
+		while ((v & ~0x7FL) != 0) {
+			buffer.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buffer.put((byte) v);
+	}
+	
+	/**
+	 * Writes signed variable-length integer in zigzag encoding,
+	 * so that values of small magnitude take few bytes.
+	 * @param value value
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeSignedVarLong(long value) throws IOException {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+	
+	public void writeInt(int value) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+	
+	public void writeLong(long value) throws IOException {
+		ensure(8);
+		buffer.putLong(value);
+	}
+	
+	public void writeDouble(double value) throws IOException {
+		ensure(8);
+		buffer.putDouble(value);
+	}
+	
+	public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+		int pos = offset;
+		int end = offset + length;
+		while (pos < end) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			int n = Math.min(buffer.remaining(), end - pos);
+			buffer.put(bytes, pos, n);
+			pos += n;
+		}
+	}
+	
+	/**
+	 * Writes string as length in bytes followed by UTF-8 bytes.
+	 * @param value string
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeUtf8(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+		writeBytes(bytes, 0, bytes.length);
+	}
+}
@@ -0,0 +1,28 @@
+package mutabor;
+
+import java.io.IOException;
+
+/**
+ * Binary codec of list elements, used by {@link ListCodec}.
+ * Standard codecs are provided by {@link ElementCodecs}.
+ * @param <E> the type of elements
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ElementCodec<E> {
+	
+	/**
+	 * Writes element.
+	 * @param out output
+	 * @param value element
+	 * @throws IOException if an I/O error occurs
+	 */
+	void write(CodecOutput out, E value) throws IOException;
+	
+	/**
+	 * Reads element.
+	 * @param in input
+	 * @return element
+	 * @throws IOException if an I/O error occurs
+	 */
+	E read(CodecInput in) throws IOException;
+}
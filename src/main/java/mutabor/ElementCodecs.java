@@ -0,0 +1,142 @@
+package mutabor;
+
+import java.io.IOException;
+
+/**
+ * Standard {@link ElementCodec}s.
+ * Codecs do not accept null elements unless wrapped by {@link #nullable}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class ElementCodecs {
+	
+	protected static final ElementCodec<Integer> VAR_INTS = new ElementCodec<Integer>() {
+		@Override
+		public void write(CodecOutput out, Integer value) throws IOException {
+			out.writeSignedVarLong(value.intValue());
+		}
+		
+		@Override
+		public Integer read(CodecInput in) throws IOException {
+			long v = in.readSignedVarLong();
+			if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+				throw new IOException("Malformed int: " + v);
+			}
+			return Integer.valueOf((int) v);
+		}
+	};
+	
+	protected static final ElementCodec<Long> VAR_LONGS = new ElementCodec<Long>() {
+		@Override
+		public void write(CodecOutput out, Long value) throws IOException {
+			out.writeSignedVarLong(value.longValue());
+		}
+		
+		@Override
+		public Long read(CodecInput in) throws IOException {
+			return Long.valueOf(in.readSignedVarLong());
+		}
+	};
+	
+	protected static final ElementCodec<Double> DOUBLES = new ElementCodec<Double>() {
+		@Override
+		public void write(CodecOutput out, Double value) throws IOException {
+			out.writeDouble(value.doubleValue());
+		}
+		
+		@Override
+		public Double read(CodecInput in) throws IOException {
+			return Double.valueOf(in.readDouble());
+		}
+	};
+	
+	protected static final ElementCodec<String> UTF8 = new ElementCodec<String>() {
+		@Override
+		public void write(CodecOutput out, String value) throws IOException {
+			out.writeUtf8(value);
+		}
+		
+		@Override
+		public String read(CodecInput in) throws IOException {
+			return in.readUtf8();
+		}
+	};
+	
+	/**
+	 * Returns codec of integers in zigzag variable-length encoding.
+	 * @return codec
+	 */
+	public static ElementCodec<Integer> varInts() {
+		return VAR_INTS;
+	}
+	
+	/**
+	 * Returns codec of longs in zigzag variable-length encoding.
+	 * @return codec
+	 */
+	public static ElementCodec<Long> varLongs() {
+		return VAR_LONGS;
+	}
+	
+	/**
+	 * Returns codec of doubles, 8 bytes each.
+	 * @return codec
+	 */
+	public static ElementCodec<Double> doubles() {
+		return DOUBLES;
+	}
+	
+	/**
+	 * Returns codec of strings: length in bytes, then UTF-8 bytes.
+	 * @return codec
+	 */
+	public static ElementCodec<String> utf8() {
+		return UTF8;
+	}
+	
+	/**
+	 * Returns codec of nested immutable lists.
+	 * @param elementCodec codec of elements of nested lists
+	 * @return codec
+	 */
+	public static <E> ElementCodec<ImmutableList<E>> lists(ElementCodec<E> elementCodec) {
+		final ListCodec<E> listCodec = new ListCodec<>(elementCodec);
+		return new ElementCodec<ImmutableList<E>>() {
+			@Override
+			public void write(CodecOutput out, ImmutableList<E> value) throws IOException {
+				listCodec.write(out, value);
+			}
+			
+			@Override
+			public ImmutableList<E> read(CodecInput in) throws IOException {
+				return listCodec.read(in);
+			}
+		};
+	}
+	
+	/**
+	 * Returns codec which accepts null elements: each element is prefixed by presence flag.
+	 * @param codec codec of non-null elements
+	 * @return codec
+	 */
+	public static <E> ElementCodec<E> nullable(final ElementCodec<E> codec) {
+		return new ElementCodec<E>() {
+			@Override
+			public void write(CodecOutput out, E value) throws IOException {
+				if (value == null) {
+					out.writeByte(0);
+				} else {
+					out.writeByte(1);
+					codec.write(out, value);
+				}
+			}
+			
+			@Override
+			public E read(CodecInput in) throws IOException {
+				return (in.readByte() == 0) ? null : codec.read(in);
+			}
+		};
+	}
+	
+	private ElementCodecs() {
+	}
+}
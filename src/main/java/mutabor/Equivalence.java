@@ -0,0 +1,45 @@
+package mutabor;
+
+/**
+ * Strategy of comparing and hashing elements, used instead of {@link Object#equals(Object)}
+ * and {@link Object#hashCode()} by search methods of {@link ReadOnlyList}.
+ * Methods are never called with {@code null}: {@code null} is equivalent only to {@code null}.
+ * @param <T> the type of compared objects
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface Equivalence<T> {
+	
+	/**
+	 * Returns {@code true} if objects are equivalent.
+	 * @param a the first object, not {@code null}
+	 * @param b the second object, not {@code null}
+	 * @return {@code true} if objects are equivalent
+	 */
+	boolean equivalent(T a, T b);
+	
+	/**
+	 * Returns hash code of object, equal for equivalent objects.
+	 * @param o object, not {@code null}
+	 * @return hash code
+	 */
+	int hash(T o);
+	
+	/**
+	 * Returns equivalence by reference: {@code a == b}, {@link System#identityHashCode(Object)}.
+	 * Search methods of lists have dedicated loops for it.
+	 * @param <T> the type of compared objects
+	 * @return identity equivalence
+	 */
+	static <T> Equivalence<T> identity() {
+		return Mutabor.identityEquivalence();
+	}
+	
+	/**
+	 * Returns equivalence by {@link Object#equals(Object)} and {@link Object#hashCode()}.
+	 * @param <T> the type of compared objects
+	 * @return equality equivalence
+	 */
+	static <T> Equivalence<T> equality() {
+		return Mutabor.equalityEquivalence();
+	}
+}
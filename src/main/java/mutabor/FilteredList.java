@@ -0,0 +1,49 @@
+package mutabor;
+
+/**
+ * View of elements of {@link ImmutableList} selected by bitmap, see {@link ImmutableList#filterView}.
+ * Element at index {@code i} of view is the {@code i}-th selected element of source list.
+ * Views of the same source list are combined by bitwise operations on bitmaps.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface FilteredList<E> extends ImmutableList<E> {
+	
+	/**
+	 * Returns list which elements are filtered.
+	 * @return source list
+	 */
+	ImmutableList<E> getSource();
+	
+	/**
+	 * Returns index in source list of the element at the specified position of this view.
+	 * @param index index in this view
+	 * @return index in source list
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	int sourceIndex(int index);
+	
+	/**
+	 * Returns view of elements selected by both this and other view.
+	 * @param other view of the same source list
+	 * @return intersection
+	 * @throws IllegalArgumentException if other view has another source list
+	 */
+	FilteredList<E> and(FilteredList<E> other);
+	
+	/**
+	 * Returns view of elements selected by this or other view.
+	 * @param other view of the same source list
+	 * @return union
+	 * @throws IllegalArgumentException if other view has another source list
+	 */
+	FilteredList<E> or(FilteredList<E> other);
+	
+	/**
+	 * Returns view of elements selected by this view and not selected by other view.
+	 * @param other view of the same source list
+	 * @return difference
+	 * @throws IllegalArgumentException if other view has another source list
+	 */
+	FilteredList<E> andNot(FilteredList<E> other);
+}
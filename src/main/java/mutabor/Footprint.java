@@ -0,0 +1,75 @@
+package mutabor;
+
+/**
+ * Estimated heap footprint of lists, see {@link Mutabor#footprint}.
+ * Sizes include list objects and their internal arrays, but not elements.
+ * Array reachable from several analyzed objects is counted once.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class Footprint {
+	
+	protected final long shallowBytes;
+	protected final long retainedBytes;
+	protected final long slackBytes;
+	protected final long pinnedBytes;
+	protected final long sharedBytes;
+	protected final int arrays;
+	
+	public Footprint(long shallowBytes, long retainedBytes, long slackBytes, long pinnedBytes, long sharedBytes, int arrays) {
+		this.shallowBytes = shallowBytes;
+		this.retainedBytes = retainedBytes;
+		this.slackBytes = slackBytes;
+		this.pinnedBytes = pinnedBytes;
+		this.sharedBytes = sharedBytes;
+		this.arrays = arrays;
+	}
+	
+	/**
+	 * @return size of list objects without their arrays
+	 */
+	public long getShallowBytes() {
+		return shallowBytes;
+	}
+	
+	/**
+	 * @return size of list objects and arrays reachable from them
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+	
+	/**
+	 * @return size of unused capacity of arrays owned by lists: tails of stolen or growing arrays
+	 */
+	public long getSlackBytes() {
+		return slackBytes;
+	}
+	
+	/**
+	 * @return size of parts of arrays reachable only through sublist views and not covered by them
+	 */
+	public long getPinnedBytes() {
+		return pinnedBytes;
+	}
+	
+	/**
+	 * @return size of arrays used by several lists, e.g. by mutable list and its snapshots
+	 */
+	public long getSharedBytes() {
+		return sharedBytes;
+	}
+	
+	/**
+	 * @return number of distinct arrays
+	 */
+	public int getArrays() {
+		return arrays;
+	}
+	
+	@Override
+	public String toString() {
+		return "Footprint[shallowBytes=" + shallowBytes + ", retainedBytes=" + retainedBytes
+				+ ", slackBytes=" + slackBytes + ", pinnedBytes=" + pinnedBytes
+				+ ", sharedBytes=" + sharedBytes + ", arrays=" + arrays + "]";
+	}
+}
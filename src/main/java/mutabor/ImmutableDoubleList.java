@@ -0,0 +1,93 @@
+package mutabor;
+
+import java.util.NoSuchElementException;
+import java.util.stream.DoubleStream;
+
+/**
+ * Immutable list of {@code double} values stored in {@code double[]} without boxing.
+ * Search and aggregate operations are loops over the array.
+ * Elements are compared as by {@link Double#equals(Object)}: {@code NaN} is equal to itself, {@code 0.0} differs from {@code -0.0}.
+ * {@link #equals(Object)} compares with other {@link ImmutableDoubleList} only,
+ * {@link #hashCode()} is the same as of {@link java.util.List} of boxed values.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableDoubleList {
+	
+	int size();
+	
+	boolean isEmpty();
+	
+	/**
+	 * Returns the element at the specified position in this list.
+	 * @param index index of the element to return
+	 * @return element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	double get(int index);
+	
+	/**
+	 * Returns the index of the first occurrence of value, or -1 if there is no such element.
+	 * @param value value to search for
+	 * @return index or -1
+	 */
+	int indexOf(double value);
+	
+	/**
+	 * Returns the index of the last occurrence of value, or -1 if there is no such element.
+	 * @param value value to search for
+	 * @return index or -1
+	 */
+	int lastIndexOf(double value);
+	
+	boolean contains(double value);
+	
+	/**
+	 * Returns number of occurrences of value.
+	 * @param value value to count
+	 * @return number of elements equal to value
+	 */
+	int count(double value);
+	
+	/**
+	 * Returns sum of elements added in index order, {@code 0} for empty list.
+	 * @return sum
+	 */
+	double sum();
+	
+	/**
+	 * Returns minimal element.
+	 * @return minimal element
+	 * @throws NoSuchElementException if list is empty
+	 */
+	double min();
+	
+	/**
+	 * Returns maximal element.
+	 * @return maximal element
+	 * @throws NoSuchElementException if list is empty
+	 */
+	double max();
+	
+	/**
+	 * Returns new array with elements of this list.
+	 * @return array
+	 */
+	double[] toArray();
+	
+	/**
+	 * Returns view of the portion of this list, which shares array with this list.
+	 * @param fromIndex low endpoint (inclusive)
+	 * @param toIndex high endpoint (exclusive)
+	 * @return view of range
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 */
+	ImmutableDoubleList subList(int fromIndex, int toIndex);
+	
+	/**
+	 * Returns copy of this list which does not retain array of bigger list.
+	 * @return compact list, this list if it is already compact
+	 */
+	ImmutableDoubleList compact();
+	
+	DoubleStream stream();
+}
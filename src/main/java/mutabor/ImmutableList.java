@@ -1,6 +1,8 @@
 package mutabor;
 
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Immutable list.
@@ -43,9 +45,69 @@ public interface ImmutableList<E> extends ReadOnlyList<E> {
 	 */
 	List<E> toList();
 	
+	/**
+	 * Returns list containing the same elements which does not keep
+	 * any memory beyond its own elements reachable.
+	 * Sublist views are copied into standalone list, unused capacity of
+	 * backing array is trimmed. If this list is already compact, returns this list.
+	 * Default implementation returns copy of this list.
+	 * @return compact list
+	 */
+	default ImmutableList<E> compact() {
+		return Mutabor.copyToImmutableList(toList());
+	}
+	
 	/**
 	 * Creates mutable copy of this list.
 	 * @return mutable copy
 	 */
 	MutableList<E> mutable();
+	
+	/**
+	 * Returns value derived from this list by the function, computing it at most once for this instance.
+	 * Value is kept as long as this list is reachable. Concurrent calls with the same key wait for
+	 * the first computation, values of different keys are computed independently.
+	 * If the function throws exception, nothing is kept and the next call computes value again.
+	 * {@link MutableList#snapshot()} returns new instance after every change, so values derived
+	 * from snapshot never outlive the contents they are derived from.<p>
+	 * Empty lists and lists of at most four elements keep no values to stay compact,
+	 * they apply the function on every call; so does default implementation.<p>
+	 * Function may derive values of other keys from this list. Two functions which derive
+	 * each other's keys must not be called concurrently: threads starting from different keys deadlock.
+	 * @param <R> the type of derived value
+	 * @param key key of derived value, the same key must always be used with the same function
+	 * @param function function which computes value from this list
+	 * @return derived value
+	 * @throws IllegalStateException if the function derives value of the same key from this list which keeps values
+	 */
+	default <R> R derive(Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+		if (key == null) {
+			throw new NullPointerException("key");
+		}
+		return function.apply(this);
+	}
+	
+	/**
+	 * Returns view of elements of this list which match the predicate.
+	 * Predicate is evaluated once for every element into bitmap, elements are not copied.
+	 * Views of the same list can be combined by {@link FilteredList#and}, {@link FilteredList#or}
+	 * and {@link FilteredList#andNot} without evaluating predicates again.
+	 * @param predicate predicate of selected elements
+	 * @return filtered view
+	 */
+	default FilteredList<E> filterView(Predicate<? super E> predicate) {
+		return filterView(predicate, false);
+	}
+	
+	/**
+	 * Returns view of elements of this list which match the predicate, see {@link #filterView(Predicate)}.
+	 * If {@code parallel} is set, predicate of big list is evaluated by tasks of
+	 * common {@link java.util.concurrent.ForkJoinPool}, so it must be thread-safe.
+	 * @param predicate predicate of selected elements
+	 * @param parallel whether predicate may be evaluated in parallel
+	 * @return filtered view
+	 */
+	default FilteredList<E> filterView(Predicate<? super E> predicate, boolean parallel) {
+		return Mutabor.filterView(this, predicate, parallel);
+	}
 }
@@ -0,0 +1,93 @@
+package mutabor;
+
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable list of {@code long} values stored in {@code long[]} without boxing.
+ * Search and aggregate operations are loops over the array.
+ * {@link #equals(Object)} compares with other {@link ImmutableLongList} only,
+ * {@link #hashCode()} is the same as of {@link java.util.List} of boxed values.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableLongList {
+	
+	int size();
+	
+	boolean isEmpty();
+	
+	/**
+	 * Returns the element at the specified position in this list.
+	 * @param index index of the element to return
+	 * @return element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	long get(int index);
+	
+	/**
+	 * Returns the index of the first occurrence of value, or -1 if there is no such element.
+	 * @param value value to search for
+	 * @return index or -1
+	 */
+	int indexOf(long value);
+	
+	/**
+	 * Returns the index of the last occurrence of value, or -1 if there is no such element.
+	 * @param value value to search for
+	 * @return index or -1
+	 */
+	int lastIndexOf(long value);
+	
+	boolean contains(long value);
+	
+	/**
+	 * Returns number of occurrences of value.
+	 * @param value value to count
+	 * @return number of elements equal to value
+	 */
+	int count(long value);
+	
+	/**
+	 * Returns sum of elements, {@code 0} for empty list.
+	 * Sum overflows silently.
+	 * @return sum
+	 */
+	long sum();
+	
+	/**
+	 * Returns minimal element.
+	 * @return minimal element
+	 * @throws NoSuchElementException if list is empty
+	 */
+	long min();
+	
+	/**
+	 * Returns maximal element.
+	 * @return maximal element
+	 * @throws NoSuchElementException if list is empty
+	 */
+	long max();
+	
+	/**
+	 * Returns new array with elements of this list.
+	 * @return array
+	 */
+	long[] toArray();
+	
+	/**
+	 * Returns view of the portion of this list, which shares array with this list.
+	 * @param fromIndex low endpoint (inclusive)
+	 * @param toIndex high endpoint (exclusive)
+	 * @return view of range
+	 * @throws IndexOutOfBoundsException for an illegal endpoint index value
+	 */
+	ImmutableLongList subList(int fromIndex, int toIndex);
+	
+	/**
+	 * Returns copy of this list which does not retain array of bigger list.
+	 * @return compact list, this list if it is already compact
+	 */
+	ImmutableLongList compact();
+	
+	LongStream stream();
+}
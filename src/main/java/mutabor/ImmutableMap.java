@@ -0,0 +1,67 @@
+package mutabor;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map.
+ * Equal to other {@link ImmutableMap} containing the same mappings,
+ * hash code is the same as of {@link java.util.Map}.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableMap<K, V> {
+	
+	int size();
+	
+	boolean isEmpty();
+	
+	boolean containsKey(Object key);
+	
+	boolean containsValue(Object value);
+	
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 * @param key the key whose associated value is to be returned
+	 * @return value or {@code null}
+	 */
+	V get(Object key);
+	
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code defaultValue} if this map contains no mapping for the key.
+	 * @param key the key whose associated value is to be returned
+	 * @param defaultValue the default mapping of the key
+	 * @return value or {@code defaultValue}
+	 */
+	V getOrDefault(Object key, V defaultValue);
+	
+	/**
+	 * Performs the given action for each mapping of this map.
+	 * @param action action to be performed for each mapping
+	 */
+	void forEach(BiConsumer<? super K, ? super V> action);
+	
+	/**
+	 * Returns set of keys, which shares table with this map.
+	 * @return immutable set of keys
+	 */
+	ImmutableSet<K> keys();
+	
+	/**
+	 * Creates {@link java.util.Map} representation of this map.
+	 * Representation is still read-only, all of it's modification methods
+	 * throws {@link java.lang.UnsupportedOperationException}.
+	 * @return representation
+	 */
+	Map<K, V> toMap();
+	
+	/**
+	 * Creates mutable copy of this map.
+	 * Copy shares tables with this map until the first change.
+	 * @return mutable copy
+	 */
+	MutableMap<K, V> mutable();
+}
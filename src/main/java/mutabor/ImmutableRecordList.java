@@ -0,0 +1,15 @@
+package mutabor;
+
+/**
+ * Immutable columnar record list.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableRecordList extends ReadOnlyRecordList {
+	
+	/**
+	 * Creates {@link MutableRecordList} which contains rows of this list.
+	 * Column arrays are shared until they are changed.
+	 * @return mutable list
+	 */
+	MutableRecordList mutable();
+}
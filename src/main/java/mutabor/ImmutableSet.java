@@ -0,0 +1,28 @@
+package mutabor;
+
+import java.util.Set;
+
+/**
+ * Immutable set.
+ * Equal to other {@link ImmutableSet} containing the same elements,
+ * hash code is the same as of {@link java.util.Set}.
+ * @param <E> the type of elements in this set
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableSet<E> extends ReadOnlyCollection<E> {
+	
+	/**
+	 * Creates {@link java.util.Set} representation of this set.
+	 * Representation is still read-only, all of it's modification methods
+	 * throws {@link java.lang.UnsupportedOperationException}.
+	 * @return representation
+	 */
+	Set<E> toSet();
+	
+	/**
+	 * Creates mutable copy of this set.
+	 * Copy shares table with this set until the first change.
+	 * @return mutable copy
+	 */
+	MutableSet<E> mutable();
+}
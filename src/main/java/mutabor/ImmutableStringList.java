@@ -0,0 +1,104 @@
+package mutabor;
+
+/**
+ * Immutable list of strings stored in single packed byte buffer with array of offsets,
+ * without {@link String} object per element.
+ * Buffer holds Latin-1 bytes if all characters fit, UTF-8 bytes otherwise.
+ * {@link #get(int)} decodes element into new {@link String}, unless list is {@link #cached()}.
+ * Search, comparison and hashing of elements work on bytes and do not allocate.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ImmutableStringList extends ImmutableList<String> {
+	
+	/**
+	 * Checks whether the element at the specified position is equal to the sequence of characters.
+	 * Element is not decoded into {@link String}.
+	 * @param index index of the element
+	 * @param s characters to compare with, {@code null} matches {@code null} element only
+	 * @return {@code true} if element is equal to {@code s}
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	boolean equalsAt(int index, CharSequence s);
+	
+	/**
+	 * Checks whether the element at the specified position starts with the prefix, see {@link String#startsWith(String)}.
+	 * Element is not decoded into {@link String}.
+	 * @param index index of the element
+	 * @param prefix prefix
+	 * @return {@code true} if element is not {@code null} and starts with {@code prefix}
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	boolean startsWith(int index, CharSequence prefix);
+	
+	/**
+	 * Returns {@link String#hashCode()} of the element at the specified position, {@code 0} for {@code null}.
+	 * Element is not decoded into {@link String}.
+	 * @param index index of the element
+	 * @return hash code of the element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	int hashCodeAt(int index);
+	
+	/**
+	 * Returns number of bytes of buffer taken by elements of this list.
+	 * @return number of bytes
+	 */
+	int byteSize();
+	
+	/**
+	 * Returns list which shares buffer with this list and keeps decoded strings:
+	 * every element is decoded at most once, on the first {@link #get(int)}.
+	 * Cache takes one reference per element and the strings themselves.
+	 * @return caching list
+	 */
+	ImmutableStringList cached();
+	
+	@Override
+	ImmutableStringList subList(int fromIndex, int toIndex);
+	
+	/**
+	 * Returns list which does not keep any memory beyond its own elements reachable.
+	 * Buffer range of sublist is copied, cache of decoded strings is dropped.
+	 * @return compact list
+	 */
+	@Override
+	ImmutableStringList compact();
+	
+	/**
+	 * Accumulates strings into {@link ImmutableStringList}.
+	 * Builder is not thread-safe, it can be used after {@link #build()} to continue the list.
+	 */
+	interface Builder {
+		
+		/**
+		 * Appends string to the list.
+		 * @param s string, may be {@code null}
+		 * @return this builder
+		 */
+		Builder add(String s);
+		
+		/**
+		 * Appends all strings to the list.
+		 * @param strings strings
+		 * @return this builder
+		 */
+		default Builder addAll(Iterable<String> strings) {
+			for (String s : strings) {
+				add(s);
+			}
+			return this;
+		}
+		
+		/**
+		 * Returns number of strings added so far.
+		 * @return number of strings
+		 */
+		int size();
+		
+		/**
+		 * Creates list of strings added so far.
+		 * @return immutable list
+		 */
+		ImmutableStringList build();
+	}
+}
@@ -0,0 +1,184 @@
+package mutabor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import mutabor.internal.InternalUtils;
+
+/**
+ * Binary codec of {@link ImmutableList} for NIO channels.
+ * List is encoded as sequence of blocks, each block is number of elements
+ * followed by elements, the last block is empty. So list may be written
+ * without knowing its size in advance (see {@link #writer}) and
+ * read element by element (see {@link #forEach}).
+ * {@link #read} of list written in one block reads elements straight into exact-size array,
+ * array of large block grows while elements are read, as length of block is not trusted.
+ * @param <E> the type of elements
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ListCodec<E> {
+	
+	protected final ElementCodec<E> elementCodec;
+	
+	public ListCodec(ElementCodec<E> elementCodec) {
+		if (elementCodec == null) {
+			throw new NullPointerException("elementCodec");
+		}
+		this.elementCodec = elementCodec;
+	}
+	
+	/**
+	 * Writes list as one block. Output is not flushed.
+	 * @param out output
+	 * @param list list
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(CodecOutput out, ReadOnlyList<? extends E> list) throws IOException {
+		int size = list.size();
+		if (size > 0) {
+			out.writeVarLong(size);
+			for (int i = 0; i < size; i++) {
+				elementCodec.write(out, list.get(i));
+			}
+		}
+		out.writeVarLong(0);
+	}
+	
+	/**
+	 * Reads list.
+	 * @param in input
+	 * @return immutable list
+	 * @throws IOException if an I/O error occurs
+	 */
+	public ImmutableList<E> read(CodecInput in) throws IOException {
+		int n = in.readLength();
+		if (n == 0) {
+			return InternalUtils.emptyImmutableList();
+		}
+		Object[] data = readBlock(in, n);
+		int size = n;
+		List<Object[]> blocks = null;
+		while ((n = in.readLength()) > 0) {
+			if (blocks == null) {
+				blocks = new ArrayList<>();
+				blocks.add(data);
+			}
+			blocks.add(readBlock(in, n));
+			size += n;
+			if (size < 0) {
+				throw new IOException("List is too large");
+			}
+		}
+		if (blocks != null) {
+			//several blocks are flattened once
+			data = new Object[size];
+			int pos = 0;
+			for (Object[] block : blocks) {
+				System.arraycopy(block, 0, data, pos, block.length);
+				pos += block.length;
+			}
+		}
+		return InternalUtils.newImmutableList(data, size);
+	}
+	
+	protected Object[] readBlock(CodecInput in, int n) throws IOException {
+		Object[] block = new Object[Math.min(n, CodecInput.MAX_PREALLOCATION)];
+		for (int i = 0; i < n; i++) {
+			if (i == block.length) {
+				block = Arrays.copyOf(block, CodecInput.grownLength(i, n));
+			}
+			block[i] = elementCodec.read(in);
+		}
+		return block;
+	}
+	
+	/**
+	 * Reads list element by element, without keeping elements in memory.
+	 * @param in input
+	 * @param action action performed for each element
+	 * @return number of elements
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long forEach(CodecInput in, Consumer<? super E> action) throws IOException {
+		long count = 0;
+		int n;
+		while ((n = in.readLength()) > 0) {
+			for (int i = 0; i < n; i++) {
+				action.accept(elementCodec.read(in));
+			}
+			count += n;
+		}
+		return count;
+	}
+	
+	/**
+	 * Creates writer of list of unknown size.
+	 * Elements are buffered and written in blocks of {@code blockSize} elements.
+	 * @param out output
+	 * @param blockSize max number of elements in block
+	 * @return writer
+	 */
+	public Writer<E> writer(CodecOutput out, int blockSize) {
+		return new Writer<>(elementCodec, out, blockSize);
+	}
+	
+	/**
+	 * Writer of list of unknown size. {@link #close()} must be called after the last element.
+	 * @param <E> the type of elements
+	 */
+	public static class Writer<E> implements Closeable {
+		protected final ElementCodec<E> elementCodec;
+		protected final CodecOutput out;
+		protected final Object[] block;
+		protected int count;
+		protected boolean closed;
+		
+		protected Writer(ElementCodec<E> elementCodec, CodecOutput out, int blockSize) {
+			if (blockSize <= 0) {
+				throw new IllegalArgumentException("blockSize = " + blockSize);
+			}
+			this.elementCodec = elementCodec;
+			this.out = out;
+			this.block = new Object[blockSize];
+		}
+		
+		public void add(E e) throws IOException {
+			if (closed) {
+				throw new IllegalStateException("Writer is closed");
+			}
+			block[count++] = e;
+			if (count == block.length) {
+				writeBlock();
+			}
+		}
+		
+		@SuppressWarnings("unchecked")
+		protected void writeBlock() throws IOException {
+			if (count > 0) {
+				out.writeVarLong(count);
+				for (int i = 0; i < count; i++) {
+					elementCodec.write(out, (E) block[i]);
+					block[i] = null;
+				}
+				count = 0;
+			}
+		}
+		
+		/**
+		 * Writes buffered elements and end of list. Output is not flushed.
+		 * @throws IOException if an I/O error occurs
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				writeBlock();
+				out.writeVarLong(0);
+				closed = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package mutabor;
+
+import java.util.Map;
+
+/**
+ * Mutable map which can be snapshotted to {@link ImmutableMap} without copying.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface MutableMap<K, V> extends Map<K, V> {
+	
+	/**
+	 * Creates immutable snapshot of this map.
+	 * Snapshot is saved internally. Two calls of this method
+	 * will return the same object if map was not changed between calls.
+	 * Saved snapshot released when map is changed or
+	 * {@link #releaseSnapshot} is called.
+	 * @return immutable snapshot
+	 */
+	ImmutableMap<K, V> snapshot();
+	
+	/**
+	 * Releases internally saved copy of snapshot.
+	 * May be used for reduce memory consumption.
+	 */
+	void releaseSnapshot();
+}
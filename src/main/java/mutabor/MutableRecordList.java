@@ -0,0 +1,71 @@
+package mutabor;
+
+/**
+ * Mutable columnar record list.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface MutableRecordList extends ReadOnlyRecordList {
+	
+	/**
+	 * Appends row with all values equal to zero.
+	 * @return index of the new row
+	 */
+	int addRow();
+	
+	/**
+	 * Removes the specified row, subsequent rows are shifted.
+	 * @param row row index
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 */
+	void removeRow(int row);
+	
+	/**
+	 * Removes all rows.
+	 */
+	void clear();
+	
+	/**
+	 * Sets value of {@link RecordSchema.Type#INT} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @param value new value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	void setInt(int row, int column, int value);
+	
+	/**
+	 * Sets value of {@link RecordSchema.Type#LONG} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @param value new value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	void setLong(int row, int column, long value);
+	
+	/**
+	 * Sets value of {@link RecordSchema.Type#DOUBLE} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @param value new value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	void setDouble(int row, int column, double value);
+	
+	/**
+	 * Creates immutable snapshot of this list.
+	 * Snapshot is saved internally. Two calls of this method
+	 * will return the same object if list was not changed between calls.
+	 * Snapshot shares column arrays with this list, the first change of a column
+	 * after snapshot copies this column only.
+	 * @return immutable snapshot
+	 */
+	ImmutableRecordList snapshot();
+	
+	/**
+	 * Releases internally saved copy of snapshot.
+	 */
+	void releaseSnapshot();
+}
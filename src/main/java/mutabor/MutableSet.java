@@ -0,0 +1,27 @@
+package mutabor;
+
+import java.util.Set;
+
+/**
+ * Mutable set which can be snapshotted to {@link ImmutableSet} without copying.
+ * @param <E> the type of elements in this set
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface MutableSet<E> extends Set<E> {
+	
+	/**
+	 * Creates immutable snapshot of this set.
+	 * Snapshot is saved internally. Two calls of this method
+	 * will return the same object if set was not changed between calls.
+	 * Saved snapshot released when set is changed or
+	 * {@link #releaseSnapshot} is called.
+	 * @return immutable snapshot
+	 */
+	ImmutableSet<E> snapshot();
+	
+	/**
+	 * Releases internally saved copy of snapshot.
+	 * May be used for reduce memory consumption.
+	 */
+	void releaseSnapshot();
+}
@@ -1,9 +1,36 @@
 package mutabor;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
 
+import mutabor.internal.AdoptedArrays;
+import mutabor.internal.ArrayPool;
+import mutabor.internal.ConcurrentAppendLog;
+import mutabor.internal.Equivalences;
+import mutabor.internal.Events;
+import mutabor.internal.FileSnapshotJournal;
+import mutabor.internal.FilteredListImpl;
+import mutabor.internal.FootprintAnalyzer;
+import mutabor.internal.ImmutableDoubleListImpl;
+import mutabor.internal.ImmutableIntListImpl;
+import mutabor.internal.ImmutableListCollector;
+import mutabor.internal.ImmutableLongListImpl;
+import mutabor.internal.ImmutableMapImpl;
+import mutabor.internal.ImmutableSetImpl;
+import mutabor.internal.ImmutableStringListImpl;
 import mutabor.internal.InternalUtils;
+import mutabor.internal.MutableMapImpl;
+import mutabor.internal.MutableRecordListImpl;
+import mutabor.internal.MutableSetImpl;
+import mutabor.internal.RetainedViews;
+import mutabor.internal.Stats;
 
 /**
  * Utils for mutable & immutable lists.
@@ -11,6 +38,15 @@ import mutabor.internal.InternalUtils;
  */
 public class Mutabor {
 	
+	/**
+	 * Returns empty {@link ImmutableList}.
+	 * Empty list instance is shared.
+	 * @return empty immutable list
+	 */
+	public static <E> ImmutableList<E> emptyImmutableList() {
+		return InternalUtils.emptyImmutableList();
+	}
+	
 	/**
 	 * Creates {@link ImmutableList} by copying original array.
 	 * If original array is null, returns empty list.
@@ -22,6 +58,96 @@ public class Mutabor {
 		return InternalUtils.copyToImmutableList(original);
 	}
 	
+	/**
+	 * Creates {@link ImmutableIntList} by copying original array.
+	 * If original array is null, returns empty list.
+	 * @param original original array
+	 * @return immutable list of {@code int} values
+	 */
+	public static ImmutableIntList copyToImmutableIntList(int[] original) {
+		return ImmutableIntListImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates {@link ImmutableLongList} by copying original array.
+	 * If original array is null, returns empty list.
+	 * @param original original array
+	 * @return immutable list of {@code long} values
+	 */
+	public static ImmutableLongList copyToImmutableLongList(long[] original) {
+		return ImmutableLongListImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates {@link ImmutableDoubleList} by copying original array.
+	 * If original array is null, returns empty list.
+	 * @param original original array
+	 * @return immutable list of {@code double} values
+	 */
+	public static ImmutableDoubleList copyToImmutableDoubleList(double[] original) {
+		return ImmutableDoubleListImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates {@link ImmutableStringList} by packing strings into single buffer.
+	 * If original is already {@link ImmutableStringList}, returns it. If original is null, returns empty list.
+	 * @param original original strings
+	 * @return immutable list of strings
+	 */
+	public static ImmutableStringList copyToImmutableStringList(Iterable<String> original) {
+		return ImmutableStringListImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates builder of {@link ImmutableStringList}.
+	 * @return new builder
+	 */
+	public static ImmutableStringList.Builder newImmutableStringListBuilder() {
+		return ImmutableStringListImpl.builder();
+	}
+	
+	/**
+	 * Creates {@link ImmutableList} by adopting the first {@code size} elements of array, without copying.
+	 * Ownership of array is transferred to the list: caller must not modify array afterwards.
+	 * Modifications can be detected in debug mode, see {@link #setAdoptedArrayCheckEnabled}.
+	 * @param array array to adopt
+	 * @param size number of elements
+	 * @return immutable list
+	 * @throws IllegalArgumentException if {@code size} is negative or greater than array length
+	 */
+	public static <E> ImmutableList<E> adoptArray(E[] array, int size) {
+		return AdoptedArrays.adopt(array, size);
+	}
+	
+	/**
+	 * Returns whether arrays passed to {@link #adoptArray} are checksummed.
+	 * Initial value is taken from {@code mutabor.adopt.check} system property.
+	 * @return {@code true} if check is enabled
+	 */
+	public static boolean isAdoptedArrayCheckEnabled() {
+		return AdoptedArrays.isCheckEnabled();
+	}
+	
+	/**
+	 * Enables or disables debug mode of {@link #adoptArray}.
+	 * When enabled, checksum of every adopted array is saved and
+	 * checked by {@link #verifyAdoptedArrays}. Intended for tests only.
+	 * @param enabled {@code true} to enable check
+	 */
+	public static void setAdoptedArrayCheckEnabled(boolean enabled) {
+		AdoptedArrays.setCheckEnabled(enabled);
+	}
+	
+	/**
+	 * Checks that arrays of live lists created by {@link #adoptArray} in debug mode
+	 * were not modified after adoption.
+	 * @throws java.util.ConcurrentModificationException if some array was modified,
+	 * cause of exception holds stack trace of adoption
+	 */
+	public static void verifyAdoptedArrays() {
+		AdoptedArrays.verify();
+	}
+	
 	/**
 	 * Creates {@link ImmutableList} by copying original collection.
 	 * If original collection is null, returns empty list.
@@ -64,7 +190,124 @@ public class Mutabor {
 			return res;
 		}
 		
-		return strictFast ? null : InternalUtils.copyToImmutableList(original);
+		if (strictFast) {
+			return null;
+		}
+		Stats.conversionFallback();
+		Object event = Events.beginConversionFallback(original.size());
+		res = InternalUtils.copyToImmutableList(original);
+		Events.commitConversionFallback(event, res.size(), original.getClass());
+		return res;
+	}
+	
+	/**
+	 * Returns empty {@link ImmutableSet}.
+	 * Empty set instance is shared.
+	 * @return empty immutable set
+	 */
+	public static <E> ImmutableSet<E> emptyImmutableSet() {
+		return ImmutableSetImpl.empty();
+	}
+	
+	/**
+	 * Creates {@link ImmutableSet} by copying original collection.
+	 * If original collection is null, returns empty set.
+	 * Snapshot of {@link MutableSet} is taken without copying.
+	 * @param original original collection
+	 * @return immutable set
+	 */
+	public static <E> ImmutableSet<E> copyToImmutableSet(Collection<? extends E> original) {
+		return ImmutableSetImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates empty {@link MutableSet}.
+	 * @return mutable set
+	 */
+	public static <E> MutableSet<E> newMutableSet() {
+		return new MutableSetImpl<>();
+	}
+	
+	/**
+	 * Creates {@link MutableSet} by copying original collection.
+	 * If original collection is null, returns empty set.
+	 * @param original original collection
+	 * @return mutable set
+	 */
+	public static <E> MutableSet<E> copyToMutableSet(Collection<? extends E> original) {
+		if (original == null) {
+			return new MutableSetImpl<>();
+		}
+		MutableSetImpl<E> res = new MutableSetImpl<>(original.size());
+		res.addAll(original);
+		return res;
+	}
+	
+	/**
+	 * Returns empty {@link ImmutableMap}.
+	 * Empty map instance is shared.
+	 * @return empty immutable map
+	 */
+	public static <K, V> ImmutableMap<K, V> emptyImmutableMap() {
+		return ImmutableMapImpl.empty();
+	}
+	
+	/**
+	 * Creates {@link ImmutableMap} by copying original map.
+	 * If original map is null, returns empty map.
+	 * Snapshot of {@link MutableMap} is taken without copying.
+	 * @param original original map
+	 * @return immutable map
+	 */
+	public static <K, V> ImmutableMap<K, V> copyToImmutableMap(Map<? extends K, ? extends V> original) {
+		return ImmutableMapImpl.copyOf(original);
+	}
+	
+	/**
+	 * Creates empty {@link MutableMap}.
+	 * @return mutable map
+	 */
+	public static <K, V> MutableMap<K, V> newMutableMap() {
+		return new MutableMapImpl<>();
+	}
+	
+	/**
+	 * Creates {@link MutableMap} by copying original map.
+	 * If original map is null, returns empty map.
+	 * @param original original map
+	 * @return mutable map
+	 */
+	public static <K, V> MutableMap<K, V> copyToMutableMap(Map<? extends K, ? extends V> original) {
+		if (original == null) {
+			return new MutableMapImpl<>();
+		}
+		MutableMapImpl<K, V> res = new MutableMapImpl<>(original.size());
+		res.putAll(original);
+		return res;
+	}
+	
+	/**
+	 * Returns {@link Collector} which accumulates elements into {@link ImmutableList}.
+	 * Parallel parts are merged without copying elements,
+	 * and all elements are copied once into array of exact size.
+	 * @return collector into immutable list
+	 */
+	public static <E> Collector<E, ?, ImmutableList<E>> toImmutableList() {
+		return new ImmutableListCollector<>(0);
+	}
+	
+	/**
+	 * Returns {@link Collector} which accumulates elements into {@link ImmutableList}.
+	 * First accumulator preallocates array of {@code sizeHint} elements,
+	 * so sequential stream of exactly {@code sizeHint} elements is collected without any copying.
+	 * Parallel parts are merged without copying elements,
+	 * and all elements are copied once into array of exact size.
+	 * @param sizeHint expected number of elements
+	 * @return collector into immutable list
+	 * @throws IllegalArgumentException if {@code sizeHint} is negative
+	 */
+	public static <E> Collector<E, ?, ImmutableList<E>> toImmutableList(int sizeHint) {
+		return new ImmutableListCollector<>(sizeHint);
 	}
 	
 	/**
@@ -78,6 +321,111 @@ public class Mutabor {
 		return InternalUtils.copyToMutableList(original);
 	}
 	
+	/**
+	 * Creates {@link MutableList} stored in fixed-size chunks, by copying original collection.
+	 * If original collection is null, returns empty list.
+	 * Chunks are shared with snapshots, so the first write after {@link MutableList#snapshot()}
+	 * copies only the chunk it touches instead of the whole list.
+	 * Intended for lists of millions of elements.
+	 * @param original original collection
+	 * @return mutable list
+	 */
+	public static <E> MutableList<E> copyToChunkedMutableList(Collection<? extends E> original) {
+		return InternalUtils.copyToChunkedMutableList(original);
+	}
+	
+	/**
+	 * Creates {@link BigMutableList} by copying original iterable.
+	 * If original iterable is null, returns empty list.
+	 * Big lists have {@code long} size and indexes and are not limited by maximal array length.
+	 * @param original original iterable
+	 * @return big mutable list
+	 */
+	public static <E> BigMutableList<E> copyToBigMutableList(Iterable<? extends E> original) {
+		return InternalUtils.copyToBigMutableList(original);
+	}
+	
+	/**
+	 * Creates empty {@link MutableRecordList} with the specified schema.
+	 * Each column is stored in its own primitive array.
+	 * @param schema schema of records
+	 * @return mutable record list
+	 */
+	public static MutableRecordList newMutableRecordList(RecordSchema schema) {
+		if (schema == null) {
+			throw new NullPointerException("schema");
+		}
+		return new MutableRecordListImpl(schema);
+	}
+	
+	/**
+	 * Opens {@link SnapshotJournal} in the specified file, file is created if it does not exist.
+	 * Versions appended to existing journal continue its numbering, the first of them is written as checkpoint.
+	 * @param <E> the type of elements
+	 * @param path file of journal
+	 * @param elementCodec codec of elements
+	 * @param checkpointInterval max number of versions from checkpoint to the next checkpoint
+	 * @return snapshot journal
+	 * @throws IOException if file can not be opened or is not a snapshot journal
+	 */
+	public static <E> SnapshotJournal<E> openSnapshotJournal(Path path, ElementCodec<E> elementCodec,
+			int checkpointInterval) throws IOException {
+		return new FileSnapshotJournal<>(path, elementCodec, checkpointInterval);
+	}
+	
+	/**
+	 * Creates {@link AppendLog} for many concurrent producers.
+	 * Snapshot is published when {@code batchSize} elements are appended after the last publication,
+	 * or by {@link AppendLog#snapshot()} when the last publication is older than {@code maxDelay}.
+	 * @param batchSize number of elements which triggers publication
+	 * @param maxDelay max age of snapshot returned by {@link AppendLog#snapshot()}, negative for no limit
+	 * @param unit time unit of {@code maxDelay}
+	 * @return append log
+	 */
+	public static <E> AppendLog<E> newAppendLog(int batchSize, long maxDelay, TimeUnit unit) {
+		return new ConcurrentAppendLog<>(batchSize, (maxDelay < 0) ? -1 : unit.toNanos(maxDelay));
+	}
+	
+	/**
+	 * Returns whether copy-on-write arrays of mutable lists are pooled.
+	 * Initial value is taken from {@code mutabor.pool} system property.
+	 * @return {@code true} if array pool is enabled
+	 */
+	public static boolean isArrayPoolEnabled() {
+		return ArrayPool.isEnabled();
+	}
+	
+	/**
+	 * Enables or disables pool of arrays, bucketed by power-of-two size class.
+	 * Mutable lists take arrays from pool when they copy or grow their data,
+	 * and return arrays which are no longer referenced. Disabling clears the pool.
+	 * Pool counters are reported by {@link MutaborStats}.
+	 * @param enabled {@code true} to enable pool
+	 */
+	public static void setArrayPoolEnabled(boolean enabled) {
+		ArrayPool.setEnabled(enabled);
+	}
+	
+	/**
+	 * Returns whether single-owner mode of snapshots is on.
+	 * Initial value is taken from {@code mutabor.pool.singleOwner} system property.
+	 * @return {@code true} if single-owner mode is on
+	 */
+	public static boolean isSingleOwnerSnapshots() {
+		return ArrayPool.isSingleOwner();
+	}
+	
+	/**
+	 * Switches single-owner mode of snapshots.
+	 * In this mode caller guarantees that no snapshot of mutable list is used after
+	 * {@link MutableList#releaseSnapshot()} of this list. Then data shared with snapshots
+	 * becomes writable again without copying, and arrays left to snapshots are returned to pool.
+	 * @param singleOwner {@code true} to switch mode on
+	 */
+	public static void setSingleOwnerSnapshots(boolean singleOwner) {
+		ArrayPool.setSingleOwner(singleOwner);
+	}
+	
 	/**
 	 * Creates {@link MutableList} by wrapping original list.
 	 * If original collection is null, returns empty list.
@@ -88,6 +436,157 @@ public class Mutabor {
 		return InternalUtils.convertToMutableList(original);
 	}
 	
+	/**
+	 * Returns current policy of {@link ImmutableList#subList}.
+	 * @return sublist retention policy
+	 */
+	public static SubListRetentionPolicy getSubListRetentionPolicy() {
+		return InternalUtils.getSubListRetentionPolicy();
+	}
+	
+	/**
+	 * Sets policy of {@link ImmutableList#subList}.
+	 * Policy affects sublists created after this call only.
+	 * @param policy sublist retention policy
+	 */
+	public static void setSubListRetentionPolicy(SubListRetentionPolicy policy) {
+		InternalUtils.setSubListRetentionPolicy(policy);
+	}
+	
+	/**
+	 * Creates view of elements of the list which match the predicate, see {@link ImmutableList#filterView}.
+	 * @param list immutable list
+	 * @param predicate predicate of selected elements
+	 * @param parallel whether predicate of big list is evaluated in parallel by common {@link java.util.concurrent.ForkJoinPool}
+	 * @return filtered view
+	 */
+	public static <E> FilteredList<E> filterView(ImmutableList<E> list, Predicate<? super E> predicate, boolean parallel) {
+		return FilteredListImpl.filter(list, predicate, parallel);
+	}
+	
+	/**
+	 * Returns equivalence by reference, see {@link Equivalence#identity()}.
+	 * @param <T> the type of compared objects
+	 * @return identity equivalence
+	 */
+	public static <T> Equivalence<T> identityEquivalence() {
+		return Equivalences.identity();
+	}
+	
+	/**
+	 * Returns equivalence by {@link Object#equals(Object)}, see {@link Equivalence#equality()}.
+	 * @param <T> the type of compared objects
+	 * @return equality equivalence
+	 */
+	public static <T> Equivalence<T> equalityEquivalence() {
+		return Equivalences.equality();
+	}
+	
+	/**
+	 * Finds the first element equivalent to the specified one by {@link ReadOnlyList#get(int)},
+	 * default implementation of {@link ReadOnlyList#indexOf(Object, Equivalence)}.
+	 * @param list list
+	 * @param o element to search for
+	 * @param eq equivalence of elements
+	 * @return the index of the first equivalent element, or -1
+	 */
+	public static <E> int indexOf(ReadOnlyList<E> list, E o, Equivalence<? super E> eq) {
+		return Equivalences.indexOf(list, o, eq);
+	}
+	
+	/**
+	 * Finds the last element equivalent to the specified one by {@link ReadOnlyList#get(int)},
+	 * default implementation of {@link ReadOnlyList#lastIndexOf(Object, Equivalence)}.
+	 * @param list list
+	 * @param o element to search for
+	 * @param eq equivalence of elements
+	 * @return the index of the last equivalent element, or -1
+	 */
+	public static <E> int lastIndexOf(ReadOnlyList<E> list, E o, Equivalence<? super E> eq) {
+		return Equivalences.lastIndexOf(list, o, eq);
+	}
+	
+	/**
+	 * Checks that list contains equivalents of all elements, big queries use hash index of the list,
+	 * default implementation of {@link ReadOnlyList#containsAll(Iterable, Equivalence)}.
+	 * @param list list
+	 * @param c elements to be checked for containment in the list
+	 * @param eq equivalence of elements
+	 * @return {@code true} if the list contains equivalents of all elements
+	 */
+	public static <E> boolean containsAll(ReadOnlyList<E> list, Iterable<? extends E> c, Equivalence<? super E> eq) {
+		return Equivalences.containsAll(list, c, eq);
+	}
+	
+	/**
+	 * Returns number of array slots kept reachable by immutable list.
+	 * For sublist view it is length of whole parent array.
+	 * @param list immutable list
+	 * @return retained array length
+	 */
+	public static int retainedLength(ImmutableList<?> list) {
+		return InternalUtils.retainedLength(list);
+	}
+	
+	/**
+	 * Returns live sublist views registered by tracking {@link SubListRetentionPolicy}.
+	 * Views which keep more unused slots of parent array reachable go first.
+	 * @return tracked views
+	 */
+	public static List<ImmutableList<?>> retainingViews() {
+		return RetainedViews.views();
+	}
+	
+	/**
+	 * Estimates heap held by the specified lists: {@link ImmutableList}, {@link MutableList},
+	 * their sublists and {@link ImmutableList#toList()} representations. Other objects are ignored.
+	 * Elements are not counted, arrays shared by several lists are counted once.
+	 * @param roots lists to analyze
+	 * @return footprint estimation
+	 */
+	public static Footprint footprint(Object... roots) {
+		return FootprintAnalyzer.analyze(Arrays.asList(roots));
+	}
+	
+	/**
+	 * Registers list whose footprint is published by footprint attributes of {@link MutaborStats}
+	 * while the list is reachable. Views registered by tracking {@link SubListRetentionPolicy}
+	 * are published as well.
+	 * @param root list to track
+	 */
+	public static void trackFootprint(Object root) {
+		FootprintAnalyzer.track(root);
+	}
+	
+	/**
+	 * Returns min size of list for which JDK Flight Recorder events
+	 * {@code mutabor.Copy}, {@code mutabor.Snapshot} and {@code mutabor.ConversionFallback}
+	 * are emitted.
+	 * @return threshold (number of elements)
+	 */
+	public static int getFlightRecorderThreshold() {
+		return Events.getThreshold();
+	}
+	
+	/**
+	 * Sets min size of list for which JDK Flight Recorder events are emitted.
+	 * Default value is {@value mutabor.internal.Events#DEFAULT_THRESHOLD},
+	 * it may be changed by system property {@code mutabor.jfr.threshold}.
+	 * Events are emitted only when JFR is available and events are enabled in recording.
+	 * @param elements threshold (number of elements)
+	 */
+	public static void setFlightRecorderThreshold(int elements) {
+		Events.setThreshold(elements);
+	}
+	
+	/**
+	 * Returns counters of slow paths.
+	 * @return statistics
+	 */
+	public static MutaborStats stats() {
+		return MutaborStats.INSTANCE;
+	}
+	
 	private Mutabor() {
 	}
 }
@@ -0,0 +1,198 @@
+package mutabor;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import mutabor.internal.ArrayPool;
+import mutabor.internal.FootprintAnalyzer;
+import mutabor.internal.Stats;
+
+/**
+ * Counters of slow paths of mutable & immutable lists.
+ * Counting is disabled by default, it may be enabled by {@link #setEnabled}
+ * or by system property {@code mutabor.stats=true}.
+ * Single instance is available via {@link Mutabor#stats()} and may be published
+ * to platform MBean server by {@link #register()}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class MutaborStats implements MutaborStatsMBean {
+	
+	/**
+	 * Name of MBean in platform MBean server.
+	 */
+	public static final String OBJECT_NAME = "mutabor:type=MutaborStats";
+	
+	protected static final MutaborStats INSTANCE = new MutaborStats();
+	
+	private MutaborStats() {
+	}
+	
+	/**
+	 * Registers statistics MBean in platform MBean server.
+	 * Does nothing if MBean is already registered.
+	 * @throws JMException if registration fails
+	 */
+	public static void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (!server.isRegistered(name)) {
+			server.registerMBean(INSTANCE, name);
+		}
+	}
+	
+	/**
+	 * Unregisters statistics MBean from platform MBean server.
+	 * Does nothing if MBean is not registered.
+	 * @throws JMException if unregistration fails
+	 */
+	public static void unregister() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+	}
+	
+	@Override
+	public boolean isEnabled() {
+		return Stats.isEnabled();
+	}
+	
+	@Override
+	public void setEnabled(boolean enabled) {
+		Stats.setEnabled(enabled);
+	}
+	
+	@Override
+	public long getCopies() {
+		return Stats.copies.sum();
+	}
+	
+	@Override
+	public long getCopiedElements() {
+		return Stats.copiedElements.sum();
+	}
+	
+	@Override
+	public long getCopiedBytes() {
+		return Stats.bytes(Stats.copiedElements.sum());
+	}
+	
+	@Override
+	public long getSteals() {
+		return Stats.steals.sum();
+	}
+	
+	@Override
+	public long getStealFailures() {
+		return Stats.stealFailures.sum();
+	}
+	
+	@Override
+	public long getConversionFallbacks() {
+		return Stats.conversionFallbacks.sum();
+	}
+	
+	@Override
+	public long getSnapshotHits() {
+		return Stats.snapshotHits.sum();
+	}
+	
+	@Override
+	public long getSnapshotCreations() {
+		return Stats.snapshotCreations.sum();
+	}
+	
+	@Override
+	public long getBeforeChangeCopies() {
+		return Stats.beforeChangeCopies.sum();
+	}
+	
+	@Override
+	public long getBeforeChangeCopiedElements() {
+		return Stats.beforeChangeCopiedElements.sum();
+	}
+	
+	@Override
+	public long getBeforeChangeCopiedBytes() {
+		return Stats.bytes(Stats.beforeChangeCopiedElements.sum());
+	}
+	
+	@Override
+	public long getPoolHits() {
+		return ArrayPool.hits.sum();
+	}
+	
+	@Override
+	public long getPoolMisses() {
+		return ArrayPool.misses.sum();
+	}
+	
+	@Override
+	public double getPoolHitRate() {
+		long hits = ArrayPool.hits.sum();
+		long requests = hits + ArrayPool.misses.sum();
+		return (requests == 0) ? 0.0 : (double) hits / requests;
+	}
+	
+	@Override
+	public long getPoolReturns() {
+		return ArrayPool.returns.sum();
+	}
+	
+	@Override
+	public long getPoolDrops() {
+		return ArrayPool.drops.sum();
+	}
+	
+	@Override
+	public long getPooledArrays() {
+		return ArrayPool.pooledArrays.get();
+	}
+	
+	@Override
+	public long getPooledBytes() {
+		return Stats.bytes(ArrayPool.pooledSlots.get());
+	}
+	
+	@Override
+	public long getFootprintRetainedBytes() {
+		return FootprintAnalyzer.trackedCached().getRetainedBytes();
+	}
+	
+	@Override
+	public long getFootprintSlackBytes() {
+		return FootprintAnalyzer.trackedCached().getSlackBytes();
+	}
+	
+	@Override
+	public long getFootprintPinnedBytes() {
+		return FootprintAnalyzer.trackedCached().getPinnedBytes();
+	}
+	
+	@Override
+	public long getFootprintSharedBytes() {
+		return FootprintAnalyzer.trackedCached().getSharedBytes();
+	}
+	
+	@Override
+	public void reset() {
+		Stats.reset();
+		ArrayPool.resetCounters();
+	}
+	
+	@Override
+	public String toString() {
+		return "MutaborStats[enabled=" + isEnabled()
+				+ ", copies=" + getCopies() + ", copiedElements=" + getCopiedElements()
+				+ ", steals=" + getSteals() + ", stealFailures=" + getStealFailures()
+				+ ", conversionFallbacks=" + getConversionFallbacks()
+				+ ", snapshotHits=" + getSnapshotHits() + ", snapshotCreations=" + getSnapshotCreations()
+				+ ", beforeChangeCopies=" + getBeforeChangeCopies() + ", beforeChangeCopiedElements=" + getBeforeChangeCopiedElements()
+				+ ", poolHitRate=" + getPoolHitRate() + ", pooledArrays=" + getPooledArrays()
+				+ "]";
+	}
+}
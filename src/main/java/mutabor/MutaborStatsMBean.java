@@ -0,0 +1,136 @@
+package mutabor;
+
+/**
+ * Management interface of {@link MutaborStats}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface MutaborStatsMBean {
+	
+	/**
+	 * @return {@code true} if counters are updated
+	 */
+	boolean isEnabled();
+	
+	/**
+	 * Switches counting on or off. Disabled counting costs one flag check per event.
+	 * @param enabled flag: update counters
+	 */
+	void setEnabled(boolean enabled);
+	
+	/**
+	 * @return number of copies made while creating immutable lists
+	 */
+	long getCopies();
+	
+	/**
+	 * @return number of elements copied while creating immutable lists
+	 */
+	long getCopiedElements();
+	
+	/**
+	 * @return estimated number of bytes copied while creating immutable lists
+	 */
+	long getCopiedBytes();
+	
+	/**
+	 * @return number of successfully stolen arrays
+	 */
+	long getSteals();
+	
+	/**
+	 * @return number of conversions where array could not be stolen
+	 */
+	long getStealFailures();
+	
+	/**
+	 * @return number of conversions which fell back to copying
+	 */
+	long getConversionFallbacks();
+	
+	/**
+	 * @return number of snapshot requests answered by saved snapshot
+	 */
+	long getSnapshotHits();
+	
+	/**
+	 * @return number of snapshots created
+	 */
+	long getSnapshotCreations();
+	
+	/**
+	 * @return number of whole-list copies made by mutable lists before change
+	 */
+	long getBeforeChangeCopies();
+	
+	/**
+	 * @return number of elements copied by mutable lists before change
+	 */
+	long getBeforeChangeCopiedElements();
+	
+	/**
+	 * @return estimated number of bytes copied by mutable lists before change
+	 */
+	long getBeforeChangeCopiedBytes();
+	
+	/**
+	 * @return number of arrays taken from array pool
+	 */
+	long getPoolHits();
+	
+	/**
+	 * @return number of arrays allocated because array pool had no array of required size
+	 */
+	long getPoolMisses();
+	
+	/**
+	 * @return fraction of array requests served by array pool, {@code 0} if there were no requests
+	 */
+	double getPoolHitRate();
+	
+	/**
+	 * @return number of arrays returned to array pool
+	 */
+	long getPoolReturns();
+	
+	/**
+	 * @return number of arrays dropped because array pool was full
+	 */
+	long getPoolDrops();
+	
+	/**
+	 * @return number of arrays currently kept by array pool
+	 */
+	long getPooledArrays();
+	
+	/**
+	 * @return estimated number of bytes currently kept by array pool
+	 */
+	long getPooledBytes();
+	
+	/**
+	 * Footprint attributes are computed by one walk of tracked lists, which is reused for a second,
+	 * so attributes read together describe the same moment.
+	 * @return estimated bytes retained by lists registered by {@link Mutabor#trackFootprint} and tracked views
+	 */
+	long getFootprintRetainedBytes();
+	
+	/**
+	 * @return estimated bytes of unused capacity of arrays of tracked lists
+	 */
+	long getFootprintSlackBytes();
+	
+	/**
+	 * @return estimated bytes of parent arrays pinned by tracked sublist views
+	 */
+	long getFootprintPinnedBytes();
+	
+	/**
+	 * @return estimated bytes of arrays shared between tracked lists and their snapshots
+	 */
+	long getFootprintSharedBytes();
+	
+	/**
+	 * Resets all counters to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,210 @@
+package mutabor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import mutabor.internal.PingPong;
+
+/**
+ * Diagnostic mode which finds code alternating {@link MutableList#snapshot()} and writes.
+ * Each such cycle copies the whole list.
+ * Detector is disabled by default, it may be enabled by {@link #setEnabled}
+ * or by system property {@code mutabor.pingpong=true}.
+ * Only mutable lists created while detector is enabled are tracked;
+ * each of them captures stack trace of its allocation site.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class PingPongDetector {
+	
+	protected static final Logger logger = Logger.getLogger(PingPongDetector.class.getName());
+	
+	protected static ScheduledExecutorService executor;
+	protected static ScheduledFuture<?> logging;
+	
+	public static boolean isEnabled() {
+		return PingPong.isEnabled();
+	}
+	
+	/**
+	 * Switches detector on or off.
+	 * @param enabled flag: track mutable lists created from now on
+	 */
+	public static void setEnabled(boolean enabled) {
+		PingPong.setEnabled(enabled);
+	}
+	
+	/**
+	 * Forgets all collected allocation sites.
+	 */
+	public static void reset() {
+		PingPong.reset();
+	}
+	
+	/**
+	 * Returns number of snapshot/write cycles of the specified list.
+	 * @param list mutable list
+	 * @return number of cycles, {@code 0} if list is not tracked
+	 */
+	public static long cycles(MutableList<?> list) {
+		PingPong.Tracker tracker = PingPong.tracker(list);
+		return (tracker == null) ? 0 : tracker.getCycles();
+	}
+	
+	/**
+	 * Returns number of elements copied by snapshot/write cycles of the specified list.
+	 * @param list mutable list
+	 * @return number of elements, {@code 0} if list is not tracked
+	 */
+	public static long copiedElements(MutableList<?> list) {
+		PingPong.Tracker tracker = PingPong.tracker(list);
+		return (tracker == null) ? 0 : tracker.getCopiedElements();
+	}
+	
+	/**
+	 * Returns allocation sites with snapshot/write cycles,
+	 * sites which copied more elements go first.
+	 * @param limit max number of sites
+	 * @return top offenders
+	 */
+	public static List<Offender> topOffenders(int limit) {
+		List<Offender> res = new ArrayList<>();
+		for (PingPong.Site site : PingPong.sites()) {
+			Offender offender = new Offender(site);
+			if (offender.cycles > 0) {
+				res.add(offender);
+			}
+		}
+		Collections.sort(res, new Comparator<Offender>() {
+			@Override
+			public int compare(Offender o1, Offender o2) {
+				return Long.compare(o2.copiedElements, o1.copiedElements);
+			}
+		});
+		return (res.size() > limit) ? new ArrayList<>(res.subList(0, limit)) : res;
+	}
+	
+	/**
+	 * Formats top offenders with their stack traces.
+	 * @param limit max number of sites
+	 * @return report
+	 */
+	public static String report(int limit) {
+		StringBuilder sb = new StringBuilder("Snapshot/write cycles, top offenders:");
+		for (Offender offender : topOffenders(limit)) {
+			sb.append(System.lineSeparator()).append(offender);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Starts periodic logging of top offenders to {@code java.util.logging}
+	 * logger {@code mutabor.PingPongDetector} with level {@code WARNING}.
+	 * Replaces previously started logging.
+	 * @param period logging period
+	 * @param unit unit of period
+	 * @param limit max number of sites in report
+	 */
+	public static synchronized void startLogging(long period, TimeUnit unit, final int limit) {
+		stopLogging();
+		if (executor == null) {
+			executor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "mutabor-pingpong-logger");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		logging = executor.scheduleAtFixedRate(() -> {
+			if (!topOffenders(1).isEmpty()) {
+				logger.log(Level.WARNING, report(limit));
+			}
+		}, period, period, unit);
+	}
+	
+	/**
+	 * Stops periodic logging started by {@link #startLogging}.
+	 */
+	public static synchronized void stopLogging() {
+		if (logging != null) {
+			logging.cancel(false);
+			logging = null;
+		}
+	}
+	
+	/**
+	 * Snapshot/write statistics of allocation site.
+	 */
+	public static final class Offender {
+		protected final StackTraceElement[] stackTrace;
+		protected final long instances;
+		protected final long cycles;
+		protected final long copiedElements;
+		protected final long maxInstanceCycles;
+		
+		protected Offender(PingPong.Site site) {
+			this.stackTrace = site.getStackTrace();
+			this.instances = site.instances.sum();
+			this.cycles = site.cycles.sum();
+			this.copiedElements = site.copiedElements.sum();
+			this.maxInstanceCycles = site.maxInstanceCycles.get();
+		}
+		
+		/**
+		 * @return stack trace of allocation site of mutable lists
+		 */
+		public StackTraceElement[] getStackTrace() {
+			return stackTrace.clone();
+		}
+		
+		/**
+		 * @return number of mutable lists created at this site
+		 */
+		public long getInstances() {
+			return instances;
+		}
+		
+		/**
+		 * @return total number of snapshot/write cycles
+		 */
+		public long getCycles() {
+			return cycles;
+		}
+		
+		/**
+		 * @return total number of elements copied by snapshot/write cycles
+		 */
+		public long getCopiedElements() {
+			return copiedElements;
+		}
+		
+		/**
+		 * @return max number of snapshot/write cycles of single list
+		 */
+		public long getMaxInstanceCycles() {
+			return maxInstanceCycles;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("cycles=").append(cycles)
+					.append(", copiedElements=").append(copiedElements)
+					.append(", instances=").append(instances)
+					.append(", maxInstanceCycles=").append(maxInstanceCycles);
+			for (StackTraceElement frame : stackTrace) {
+				sb.append(System.lineSeparator()).append("\tat ").append(frame);
+			}
+			return sb.toString();
+		}
+	}
+	
+	private PingPongDetector() {
+	}
+}
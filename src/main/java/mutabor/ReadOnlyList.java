@@ -175,6 +175,99 @@ public interface ReadOnlyList<E> extends ReadOnlyCollection<E> {
 	 */
 	int lastIndexOf(Object o);
 	
+	/**
+	 * Returns the index of the first element which is the same object
+	 * as the specified one (<tt>get(i)&nbsp;==&nbsp;o</tt>), or -1 if there is no such element.
+	 * {@link Object#equals(Object)} is not called.
+	 *
+	 * @param o element to search for
+	 * @return the index of the first occurrence of the specified object, or -1
+	 */
+	default int indexOfIdentical(Object o) {
+		for (int i = 0, size = size(); i < size; i++) {
+			if (get(i) == o) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the index of the last element which is the same object
+	 * as the specified one (<tt>get(i)&nbsp;==&nbsp;o</tt>), or -1 if there is no such element.
+	 *
+	 * @param o element to search for
+	 * @return the index of the last occurrence of the specified object, or -1
+	 */
+	default int lastIndexOfIdentical(Object o) {
+		for (int i = size() - 1; i >= 0; i--) {
+			if (get(i) == o) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains the specified object itself.
+	 *
+	 * @param o object whose presence in this list is to be tested
+	 * @return <tt>true</tt> if this list contains the specified object
+	 * @see #indexOfIdentical(Object)
+	 */
+	default boolean containsIdentical(Object o) {
+		return indexOfIdentical(o) >= 0;
+	}
+	
+	/**
+	 * Returns the index of the first element equivalent to the specified one
+	 * according to the specified equivalence, or -1 if there is no such element.
+	 * {@code null} is equivalent only to {@code null}.
+	 *
+	 * @param o element to search for
+	 * @param eq equivalence of elements
+	 * @return the index of the first equivalent element, or -1
+	 */
+	default int indexOf(E o, Equivalence<? super E> eq) {
+		return Mutabor.indexOf(this, o, eq);
+	}
+	
+	/**
+	 * Returns the index of the last element equivalent to the specified one
+	 * according to the specified equivalence, or -1 if there is no such element.
+	 *
+	 * @param o element to search for
+	 * @param eq equivalence of elements
+	 * @return the index of the last equivalent element, or -1
+	 */
+	default int lastIndexOf(E o, Equivalence<? super E> eq) {
+		return Mutabor.lastIndexOf(this, o, eq);
+	}
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains element equivalent to the specified one.
+	 *
+	 * @param o element whose presence in this list is to be tested
+	 * @param eq equivalence of elements
+	 * @return <tt>true</tt> if this list contains equivalent element
+	 */
+	default boolean contains(E o, Equivalence<? super E> eq) {
+		return indexOf(o, eq) >= 0;
+	}
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains elements equivalent to all of
+	 * the elements of the specified iterable. Big iterables are checked against
+	 * hash index of this list built with {@link Equivalence#hash(Object)}.
+	 *
+	 * @param c elements to be checked for containment in this list
+	 * @param eq equivalence of elements
+	 * @return <tt>true</tt> if this list contains equivalents of all elements
+	 */
+	default boolean containsAll(Iterable<? extends E> c, Equivalence<? super E> eq) {
+		return Mutabor.containsAll(this, c, eq);
+	}
+	
 	/**
 	 * Returns a list iterator over the elements in this list (in proper
 	 * sequence).
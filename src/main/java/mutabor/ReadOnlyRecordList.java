@@ -0,0 +1,95 @@
+package mutabor;
+
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Read-only methods of columnar record lists.
+ * Each column of {@link RecordSchema} is stored in its own primitive array,
+ * so scans of a single column are sequential reads of one array.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface ReadOnlyRecordList {
+	
+	/**
+	 * Returns schema of this list.
+	 * @return schema
+	 */
+	RecordSchema getSchema();
+	
+	/**
+	 * Returns the number of rows in this list.
+	 * @return the number of rows in this list
+	 */
+	int size();
+	
+	/**
+	 * Returns <tt>true</tt> if this list contains no rows.
+	 * @return <tt>true</tt> if this list contains no rows
+	 */
+	boolean isEmpty();
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#INT} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @return value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	int getInt(int row, int column);
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#LONG} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @return value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	long getLong(int row, int column);
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#DOUBLE} column in the specified row.
+	 * @param row row index
+	 * @param column index of column
+	 * @return value
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 * @throws ClassCastException if column has another type
+	 */
+	double getDouble(int row, int column);
+	
+	/**
+	 * Creates cursor positioned before the first row.
+	 * @return cursor
+	 */
+	RecordCursor cursor();
+	
+	/**
+	 * Returns sequential stream of values of {@link RecordSchema.Type#INT} column.
+	 * Stream of mutable list must not be used after list is changed.
+	 * @param column index of column
+	 * @return stream of values
+	 * @throws ClassCastException if column has another type
+	 */
+	IntStream ints(int column);
+	
+	/**
+	 * Returns sequential stream of values of {@link RecordSchema.Type#LONG} column.
+	 * Stream of mutable list must not be used after list is changed.
+	 * @param column index of column
+	 * @return stream of values
+	 * @throws ClassCastException if column has another type
+	 */
+	LongStream longs(int column);
+	
+	/**
+	 * Returns sequential stream of values of {@link RecordSchema.Type#DOUBLE} column.
+	 * Stream of mutable list must not be used after list is changed.
+	 * @param column index of column
+	 * @return stream of values
+	 * @throws ClassCastException if column has another type
+	 */
+	DoubleStream doubles(int column);
+}
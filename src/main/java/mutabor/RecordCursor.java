@@ -0,0 +1,53 @@
+package mutabor;
+
+/**
+ * Flyweight accessor of rows of columnar record list.
+ * One cursor object is moved over rows, so reading rows does not allocate.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface RecordCursor {
+	
+	/**
+	 * Returns current row index, -1 before the first {@link #next()}.
+	 * @return current row index
+	 */
+	int getRow();
+	
+	/**
+	 * Moves cursor to the specified row.
+	 * @param row row index
+	 * @return this cursor
+	 * @throws IndexOutOfBoundsException if row is out of range
+	 */
+	RecordCursor moveTo(int row);
+	
+	/**
+	 * Moves cursor to the next row.
+	 * @return {@code true} if cursor points to a row, {@code false} if there are no more rows
+	 */
+	boolean next();
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#INT} column in current row.
+	 * @param column index of column
+	 * @return value
+	 * @throws ClassCastException if column has another type
+	 */
+	int getInt(int column);
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#LONG} column in current row.
+	 * @param column index of column
+	 * @return value
+	 * @throws ClassCastException if column has another type
+	 */
+	long getLong(int column);
+	
+	/**
+	 * Returns value of {@link RecordSchema.Type#DOUBLE} column in current row.
+	 * @param column index of column
+	 * @return value
+	 * @throws ClassCastException if column has another type
+	 */
+	double getDouble(int column);
+}
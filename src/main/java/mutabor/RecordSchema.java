@@ -0,0 +1,145 @@
+package mutabor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Schema of columnar record lists: ordered named columns of primitive types.
+ * Each column is stored in its own primitive array.
+ * Schema is immutable, columns are added by {@code with*} methods which create new schema:
+ * <pre>
+ *     RecordSchema schema = RecordSchema.EMPTY.withInt("id").withLong("timestamp").withDouble("price");
+ * </pre>
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class RecordSchema implements Serializable {
+	
+	private static final long serialVersionUID = 5301757204466263714L;
+	
+	/**
+	 * Type of column.
+	 */
+	public enum Type {
+		INT,
+		LONG,
+		DOUBLE
+	}
+	
+	/**
+	 * Schema without columns.
+	 */
+	public static final RecordSchema EMPTY = new RecordSchema(new String[0], new Type[0]);
+	
+	protected final String[] names;
+	protected final Type[] types;
+	
+	protected RecordSchema(String[] names, Type[] types) {
+		this.names = names;
+		this.types = types;
+	}
+	
+	/**
+	 * Creates copy of this schema with additional column.
+	 * @param name name of column
+	 * @param type type of column
+	 * @return schema
+	 * @throws IllegalArgumentException if schema already contains column with this name
+	 */
+	public RecordSchema with(String name, Type type) {
+		if (name == null) {
+			throw new NullPointerException("name");
+		}
+		if (type == null) {
+			throw new NullPointerException("type");
+		}
+		if (indexOf(name) >= 0) {
+			throw new IllegalArgumentException("Duplicate column: " + name);
+		}
+		String[] newNames = Arrays.copyOf(names, names.length + 1);
+		Type[] newTypes = Arrays.copyOf(types, types.length + 1);
+		newNames[names.length] = name;
+		newTypes[types.length] = type;
+		return new RecordSchema(newNames, newTypes);
+	}
+	
+	public RecordSchema withInt(String name) {
+		return with(name, Type.INT);
+	}
+	
+	public RecordSchema withLong(String name) {
+		return with(name, Type.LONG);
+	}
+	
+	public RecordSchema withDouble(String name) {
+		return with(name, Type.DOUBLE);
+	}
+	
+	public int getColumnCount() {
+		return names.length;
+	}
+	
+	public String getName(int column) {
+		return names[column];
+	}
+	
+	public Type getType(int column) {
+		return types[column];
+	}
+	
+	/**
+	 * Returns index of column with the specified name, or -1 if there is no such column.
+	 * @param name name of column
+	 * @return index of column or -1
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns index of column with the specified name.
+	 * @param name name of column
+	 * @return index of column
+	 * @throws IllegalArgumentException if there is no such column
+	 */
+	public int column(String name) {
+		int res = indexOf(name);
+		if (res < 0) {
+			throw new IllegalArgumentException("Unknown column: " + name);
+		}
+		return res;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof RecordSchema)) {
+			return false;
+		}
+		RecordSchema other = (RecordSchema) o;
+		return Arrays.equals(names, other.names) && Arrays.equals(types, other.types);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(names) + Arrays.hashCode(types);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("RecordSchema[");
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(names[i]).append(' ').append(types[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
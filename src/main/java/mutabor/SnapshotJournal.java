@@ -0,0 +1,68 @@
+package mutabor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Append-only file of versions of list, for example consecutive snapshots of {@link MutableList}.
+ * Every version is stored either as full checkpoint or as delta from the previous version:
+ * common prefix and suffix are kept, elements between them are replaced.
+ * Versions are written asynchronously by background thread; all versions appended while
+ * the previous batch was written are written together and forced to disk once.
+ * Created by {@link Mutabor#openSnapshotJournal}.
+ * @param <E> the type of elements
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface SnapshotJournal<E> extends Closeable {
+	
+	/**
+	 * Appends version of list. Returns immediately, list is encoded and written in background.
+	 * List must not be changed afterwards, which holds for {@link ImmutableList}. Thread-safe.
+	 * @param list next version of list
+	 * @return number of appended version
+	 * @throws IOException if background write of previous versions has failed
+	 * @throws IllegalStateException if journal is closed
+	 */
+	long append(ImmutableList<? extends E> list) throws IOException;
+	
+	/**
+	 * Waits until all versions appended so far are written and forced to disk.
+	 * @throws IOException if write has failed or waiting was interrupted
+	 */
+	void sync() throws IOException;
+	
+	/**
+	 * Returns number of the first version in journal, {@code 1} if journal is empty.
+	 * @return the first version
+	 */
+	long firstVersion();
+	
+	/**
+	 * Returns number of the last appended version, {@code 0} if journal is empty.
+	 * @return the last version
+	 */
+	long lastVersion();
+	
+	/**
+	 * Returns number of the last version which is forced to disk.
+	 * @return the last durable version
+	 */
+	long durableVersion();
+	
+	/**
+	 * Reads version of list. Waits until the version is written if it is not yet.
+	 * Only the nearest checkpoint at or before the version and deltas after it are read.
+	 * @param version number of version
+	 * @return immutable list
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if there is no such version
+	 */
+	ImmutableList<E> read(long version) throws IOException;
+	
+	/**
+	 * Writes all appended versions, stops background thread and closes file.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	void close() throws IOException;
+}
@@ -0,0 +1,101 @@
+package mutabor;
+
+/**
+ * Determines what {@link ImmutableList#subList} does when view is small comparing to
+ * array of parent list: view keeps whole parent array reachable while it lives,
+ * so small views of big lists may pin a lot of memory.
+ * Policy is installed by {@link Mutabor#setSubListRetentionPolicy}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class SubListRetentionPolicy {
+	
+	/**
+	 * Default policy: views are never copied nor tracked.
+	 */
+	public static final SubListRetentionPolicy KEEP_VIEWS = new SubListRetentionPolicy(0.0, Integer.MAX_VALUE, false);
+	
+	protected final double maxViewFraction;
+	protected final int minParentLength;
+	protected final boolean trackViews;
+	
+	protected SubListRetentionPolicy(double maxViewFraction, int minParentLength, boolean trackViews) {
+		if (maxViewFraction < 0.0 || maxViewFraction > 1.0) {
+			throw new IllegalArgumentException("maxViewFraction = " + maxViewFraction);
+		}
+		if (minParentLength < 0) {
+			throw new IllegalArgumentException("minParentLength = " + minParentLength);
+		}
+		this.maxViewFraction = maxViewFraction;
+		this.minParentLength = minParentLength;
+		this.trackViews = trackViews;
+	}
+	
+	/**
+	 * Creates policy which copies range of the parent list into standalone list
+	 * when view size is less than {@code maxViewFraction} of parent array length.
+	 * Parents with array shorter than {@code minParentLength} are never copied.
+	 * @param maxViewFraction max fraction of parent array, in range {@code [0, 1]}
+	 * @param minParentLength min length of parent array
+	 * @return policy
+	 */
+	public static SubListRetentionPolicy copySmallViews(double maxViewFraction, int minParentLength) {
+		return new SubListRetentionPolicy(maxViewFraction, minParentLength, false);
+	}
+	
+	/**
+	 * Creates copy of this policy which additionally tracks views left uncopied
+	 * whose parent array is not shorter than {@code minParentLength}.
+	 * Tracked views are reported by {@link Mutabor#retainingViews}.
+	 * @param track flag: track views
+	 * @return policy
+	 */
+	public SubListRetentionPolicy withTracking(boolean track) {
+		return new SubListRetentionPolicy(maxViewFraction, minParentLength, track);
+	}
+	
+	/**
+	 * Creates copy of this policy with another min length of parent array.
+	 * @param length min length of parent array
+	 * @return policy
+	 */
+	public SubListRetentionPolicy withMinParentLength(int length) {
+		return new SubListRetentionPolicy(maxViewFraction, length, trackViews);
+	}
+	
+	public double getMaxViewFraction() {
+		return maxViewFraction;
+	}
+	
+	public int getMinParentLength() {
+		return minParentLength;
+	}
+	
+	public boolean isTrackViews() {
+		return trackViews;
+	}
+	
+	/**
+	 * Checks if view should be copied into standalone list.
+	 * @param viewSize size of view
+	 * @param parentLength length of parent array
+	 * @return {@code true} if view should be copied
+	 */
+	public boolean shouldCopy(int viewSize, int parentLength) {
+		return parentLength >= minParentLength && viewSize < parentLength * maxViewFraction;
+	}
+	
+	/**
+	 * Checks if uncopied view should be tracked.
+	 * @param viewSize size of view
+	 * @param parentLength length of parent array
+	 * @return {@code true} if view should be tracked
+	 */
+	public boolean shouldTrack(int viewSize, int parentLength) {
+		return trackViews && parentLength >= minParentLength && viewSize < parentLength;
+	}
+	
+	@Override
+	public String toString() {
+		return "SubListRetentionPolicy[maxViewFraction=" + maxViewFraction + ", minParentLength=" + minParentLength + ", trackViews=" + trackViews + "]";
+	}
+}
@@ -0,0 +1,145 @@
+package mutabor.internal;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import mutabor.ReadOnlyRecordList;
+import mutabor.RecordCursor;
+import mutabor.RecordSchema;
+
+/**
+ * Base of columnar record lists: one primitive array per column of schema.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public abstract class AbstractRecordList implements ReadOnlyRecordList, Serializable {
+	
+	private static final long serialVersionUID = -1843702766459153871L;
+	
+	protected final RecordSchema schema;
+	//array of columns is never replaced, its slots are replaced by mutable list only
+	protected final Object[] columns;
+	
+	protected AbstractRecordList(RecordSchema schema, Object[] columns) {
+		this.schema = schema;
+		this.columns = columns;
+	}
+	
+	protected static Object newColumn(RecordSchema.Type type, int capacity) {
+		switch (type) {
+		case INT:
+			return new int[capacity];
+		case LONG:
+			return new long[capacity];
+		default:
+			return new double[capacity];
+		}
+	}
+	
+	protected static Object copyColumn(Object column, int length) {
+		if (column instanceof int[]) {
+			return Arrays.copyOf((int[]) column, length);
+		}
+		if (column instanceof long[]) {
+			return Arrays.copyOf((long[]) column, length);
+		}
+		return Arrays.copyOf((double[]) column, length);
+	}
+	
+	@Override
+	public RecordSchema getSchema() {
+		return schema;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() <= 0;
+	}
+	
+	protected void rangeCheck(int row) {
+		int size = size();
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+		}
+	}
+	
+	@Override
+	public int getInt(int row, int column) {
+		rangeCheck(row);
+		return ((int[]) columns[column])[row];
+	}
+	
+	@Override
+	public long getLong(int row, int column) {
+		rangeCheck(row);
+		return ((long[]) columns[column])[row];
+	}
+	
+	@Override
+	public double getDouble(int row, int column) {
+		rangeCheck(row);
+		return ((double[]) columns[column])[row];
+	}
+	
+	@Override
+	public RecordCursor cursor() {
+		return new Cursor();
+	}
+	
+	@Override
+	public IntStream ints(int column) {
+		return Arrays.stream((int[]) columns[column], 0, size());
+	}
+	
+	@Override
+	public LongStream longs(int column) {
+		return Arrays.stream((long[]) columns[column], 0, size());
+	}
+	
+	@Override
+	public DoubleStream doubles(int column) {
+		return Arrays.stream((double[]) columns[column], 0, size());
+	}
+	
+	protected class Cursor implements RecordCursor {
+		protected int row = -1;
+		
+		@Override
+		public int getRow() {
+			return row;
+		}
+		
+		@Override
+		public RecordCursor moveTo(int row) {
+			rangeCheck(row);
+			this.row = row;
+			return this;
+		}
+		
+		@Override
+		public boolean next() {
+			if (row + 1 >= size()) {
+				return false;
+			}
+			row++;
+			return true;
+		}
+		
+		@Override
+		public int getInt(int column) {
+			return ((int[]) columns[column])[row];
+		}
+		
+		@Override
+		public long getLong(int column) {
+			return ((long[]) columns[column])[row];
+		}
+		
+		@Override
+		public double getDouble(int column) {
+			return ((double[]) columns[column])[row];
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package mutabor.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mutabor.ImmutableList;
+
+/**
+ * Wrapping of caller arrays into immutable lists without copying.
+ * In debug mode every adopted array is checksummed, so that modification
+ * of array by caller after adoption can be detected by {@link #verify()}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class AdoptedArrays {
+	
+	protected static volatile boolean checkEnabled = Boolean.getBoolean("mutabor.adopt.check");
+	
+	protected static final ReferenceQueue<ImmutableList<?>> queue = new ReferenceQueue<>();
+	protected static final Set<Adoption> adoptions = Collections.newSetFromMap(new ConcurrentHashMap<Adoption, Boolean>());
+	
+	public static boolean isCheckEnabled() {
+		return checkEnabled;
+	}
+	
+	public static void setCheckEnabled(boolean enabled) {
+		checkEnabled = enabled;
+		if (!enabled) {
+			adoptions.clear();
+		}
+	}
+	
+	public static <E> ImmutableList<E> adopt(E[] array, int size) {
+		if (array == null) {
+			throw new NullPointerException("array");
+		}
+		if (size < 0 || size > array.length) {
+			throw new IllegalArgumentException("size = " + size + ", array length = " + array.length);
+		}
+		ImmutableList<E> res = InternalUtils.newImmutableList(array, size);
+		if (checkEnabled && res instanceof ImmutableListImpl<?>) {
+			expunge();
+			adoptions.add(new Adoption(res, array, size));
+		}
+		return res;
+	}
+	
+	/*
+	 * Checks that arrays of live adopted lists were not modified.
+	 */
+	public static void verify() {
+		expunge();
+		for (Adoption adoption : adoptions) {
+			if (adoption.get() != null && checksum(adoption.array, adoption.size) != adoption.checksum) {
+				ConcurrentModificationException e = new ConcurrentModificationException(
+						"Array of " + adoption.size + " elements was modified after adoption");
+				e.initCause(adoption.site);
+				throw e;
+			}
+		}
+	}
+	
+	/*
+	 * Checksum of element references, changes of elements themselves are not taken into account.
+	 */
+	protected static int checksum(Object[] array, int size) {
+		int res = 1;
+		for (int i = 0; i < size; i++) {
+			res = 31 * res + System.identityHashCode(array[i]);
+		}
+		return res;
+	}
+	
+	protected static void expunge() {
+		Reference<? extends ImmutableList<?>> ref;
+		while ((ref = queue.poll()) != null) {
+			adoptions.remove(ref);
+		}
+	}
+	
+	protected static class Adoption extends WeakReference<ImmutableList<?>> {
+		protected final Object[] array;
+		protected final int size;
+		protected final int checksum;
+		protected final Throwable site = new Throwable("Adoption site");
+		
+		protected Adoption(ImmutableList<?> list, Object[] array, int size) {
+			super(list, queue);
+			this.array = array;
+			this.size = size;
+			this.checksum = checksum(array, size);
+		}
+	}
+	
+	private AdoptedArrays() {
+	}
+}
@@ -0,0 +1,138 @@
+package mutabor.internal;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in pool of {@code Object[]} arrays for copy-on-write storages.
+ * Arrays are bucketed by power-of-two size class and cleared when returned.
+ * Only arrays known to be owned by nobody else are returned:
+ * old array of the list after growth, and array taken over by snapshot
+ * after the snapshot is released in single-owner mode.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ArrayPool {
+	
+	protected static final int MIN_CLASS = 4;
+	protected static final int MAX_CLASS = 20;
+	protected static final int MAX_ARRAYS_PER_CLASS = 4;
+	
+	protected static volatile boolean enabled = Boolean.getBoolean("mutabor.pool");
+	protected static volatile boolean singleOwner = Boolean.getBoolean("mutabor.pool.singleOwner");
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected static final ArrayDeque<Object[]>[] buckets = new ArrayDeque[MAX_CLASS + 1];
+	static {
+		for (int c = MIN_CLASS; c <= MAX_CLASS; c++) {
+			buckets[c] = new ArrayDeque<>(MAX_ARRAYS_PER_CLASS);
+		}
+	}
+	
+	public static final LongAdder hits = new LongAdder();
+	public static final LongAdder misses = new LongAdder();
+	public static final LongAdder returns = new LongAdder();
+	public static final LongAdder drops = new LongAdder();
+	public static final AtomicLong pooledArrays = new AtomicLong();
+	public static final AtomicLong pooledSlots = new AtomicLong();
+	
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	public static void setEnabled(boolean enabled) {
+		ArrayPool.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+	
+	public static boolean isSingleOwner() {
+		return singleOwner;
+	}
+	
+	public static void setSingleOwner(boolean singleOwner) {
+		ArrayPool.singleOwner = singleOwner;
+	}
+	
+	/*
+	 * Size class of array able to hold minLength elements.
+	 */
+	protected static int sizeClass(int minLength) {
+		return Math.max(MIN_CLASS, 32 - Integer.numberOfLeadingZeros(minLength - 1));
+	}
+	
+	/*
+	 * Returns cleared array of at least minLength elements.
+	 * When pool is enabled, length of non-empty array is power of two.
+	 */
+	public static Object[] acquire(int minLength) {
+		if (!enabled || minLength <= 0 || minLength > (1 << MAX_CLASS)) {
+			return new Object[minLength];
+		}
+		int c = sizeClass(minLength);
+		Object[] res;
+		ArrayDeque<Object[]> bucket = buckets[c];
+		synchronized (bucket) {
+			res = bucket.pollFirst();
+		}
+		if (res == null) {
+			misses.increment();
+			return new Object[1 << c];
+		}
+		hits.increment();
+		pooledArrays.decrementAndGet();
+		pooledSlots.addAndGet(-res.length);
+		return res;
+	}
+	
+	/*
+	 * Returns array to pool. Caller must guarantee that array is not referenced anymore.
+	 */
+	public static void release(Object[] array) {
+		if (!enabled) {
+			return;
+		}
+		int length = array.length;
+		if (length < (1 << MIN_CLASS) || length > (1 << MAX_CLASS) || Integer.bitCount(length) != 1) {
+			return;
+		}
+		Arrays.fill(array, null);
+		ArrayDeque<Object[]> bucket = buckets[sizeClass(length)];
+		boolean pooled;
+		synchronized (bucket) {
+			pooled = bucket.size() < MAX_ARRAYS_PER_CLASS && bucket.offerFirst(array);
+		}
+		if (pooled) {
+			returns.increment();
+			pooledArrays.incrementAndGet();
+			pooledSlots.addAndGet(length);
+		} else {
+			drops.increment();
+		}
+	}
+	
+	public static void clear() {
+		for (int c = MIN_CLASS; c <= MAX_CLASS; c++) {
+			ArrayDeque<Object[]> bucket = buckets[c];
+			synchronized (bucket) {
+				for (Object[] array : bucket) {
+					pooledArrays.decrementAndGet();
+					pooledSlots.addAndGet(-array.length);
+				}
+				bucket.clear();
+			}
+		}
+	}
+	
+	public static void resetCounters() {
+		hits.reset();
+		misses.reset();
+		returns.reset();
+		drops.reset();
+	}
+	
+	private ArrayPool() {
+	}
+}
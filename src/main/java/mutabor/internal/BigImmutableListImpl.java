@@ -0,0 +1,255 @@
+package mutabor.internal;
+
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_MASK;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SHIFT;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SIZE;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import mutabor.BigImmutableList;
+import mutabor.BigMutableList;
+import mutabor.ImmutableList;
+import mutabor.ReadOnlyList;
+
+/**
+ * Immutable list with {@code long} indexes stored in chunks of {@link ChunkedImmutableListImpl} size.
+ * Chunks may be shared with {@link BigMutableListImpl} and other snapshots.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class BigImmutableListImpl<E> implements BigImmutableList<E>, Serializable {
+	
+	private static final long serialVersionUID = -6210586402716351870L;
+	
+	protected final Object[][] chunks;
+	protected final long offset;
+	protected final long size;
+	
+	protected BigImmutableListImpl(Object[][] chunks, long offset, long size) {
+		this.chunks = chunks;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	protected static int chunkCount(long size) {
+		return (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+	}
+	
+	protected static void rangeCheck(long index, long size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	protected static void subListRangeCheck(long fromIndex, long toIndex, long size) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+		}
+		if (toIndex > size) {
+			throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+		}
+		if (fromIndex > toIndex) {
+			throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+		}
+	}
+	
+	/*
+	 * Walks chunks of range [fromIndex, toIndex), indexes are absolute positions in chunks.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <E> void forEach(Object[][] chunks, long fromIndex, long toIndex, Consumer<? super E> action) {
+		long i = fromIndex;
+		while (i < toIndex) {
+			Object[] chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+			int slot = (int) i & CHUNK_MASK;
+			int end = (int) Math.min(CHUNK_SIZE, slot + toIndex - i);
+			for (int j = slot; j < end; j++) {
+				action.accept((E) chunk[j]);
+			}
+			i += end - slot;
+		}
+	}
+	
+	@Override
+	public long size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(long index) {
+		rangeCheck(index, size);
+		long j = offset + index;
+		return (E) chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public long indexOf(Object o) {
+		for (long i = 0; i < size; i++) {
+			long j = offset + i;
+			Object e = chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public long lastIndexOf(Object o) {
+		for (long i = size - 1; i >= 0; i--) {
+			long j = offset + i;
+			Object e = chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public BigImmutableList<E> subList(long fromIndex, long toIndex) {
+		subListRangeCheck(fromIndex, toIndex, size);
+		return new BigImmutableListImpl<>(chunks, offset + fromIndex, toIndex - fromIndex);
+	}
+	
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		forEach(chunks, offset, offset + size, action);
+	}
+	
+	@Override
+	public void forEach(long fromIndex, long toIndex, Consumer<? super E> action) {
+		subListRangeCheck(fromIndex, toIndex, size);
+		forEach(chunks, offset + fromIndex, offset + toIndex, action);
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	protected class Itr implements Iterator<E> {
+		protected long cursor;
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			long j = offset + cursor++;
+			return (E) chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+		}
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends E> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public BigMutableList<E> mutable() {
+		return new BigMutableListImpl<>(this);
+	}
+	
+	@Override
+	public ImmutableList<E> asReadOnlyList() {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Size " + size + " exceeds Integer.MAX_VALUE");
+		}
+		int slot = (int) offset & CHUNK_MASK;
+		if (slot + size > Integer.MAX_VALUE) {
+			//int indexes of view would overflow, range is realigned to the start of chunk
+			Stats.copy((int) size);
+			return new ChunkedImmutableListImpl<>(copyChunks(chunks, offset, offset + size), 0, (int) size);
+		}
+		int first = (int) (offset >>> CHUNK_SHIFT);
+		Object[][] spine = Arrays.copyOfRange(chunks, first, chunkCount(offset + size));
+		return new ChunkedImmutableListImpl<>(spine, slot, (int) size);
+	}
+	
+	/*
+	 * Copies range [fromIndex, toIndex) of chunks into new chunks, starting from the first slot.
+	 */
+	protected static Object[][] copyChunks(Object[][] chunks, long fromIndex, long toIndex) {
+		long n = toIndex - fromIndex;
+		Object[][] res = new Object[chunkCount(n)][];
+		long i = 0;
+		while (i < n) {
+			long j = fromIndex + i;
+			int slot = (int) j & CHUNK_MASK;
+			int dest = (int) i & CHUNK_MASK;
+			int count = (int) Math.min(Math.min(CHUNK_SIZE - slot, CHUNK_SIZE - dest), n - i);
+			Object[] chunk = res[(int) (i >>> CHUNK_SHIFT)];
+			if (chunk == null) {
+				chunk = res[(int) (i >>> CHUNK_SHIFT)] = new Object[CHUNK_SIZE];
+			}
+			System.arraycopy(chunks[(int) (j >>> CHUNK_SHIFT)], slot, chunk, dest, count);
+			i += count;
+		}
+		return res;
+	}
+	
+	/*
+	 * Returns list which keeps only chunks of its own range.
+	 */
+	protected BigImmutableListImpl<E> compact() {
+		if (offset == 0 && chunks.length == chunkCount(size)) {
+			return this;
+		}
+		Stats.copy((int) Math.min(size, Integer.MAX_VALUE));
+		return new BigImmutableListImpl<>(copyChunks(chunks, offset, offset + size), 0, size);
+	}
+	
+	/*
+	 * Views are serialized as standalone lists.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+	
+	/*
+	 * Equal to big list or, if size fits into int, to read-only list with the same elements.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		long otherSize;
+		if (o instanceof BigImmutableList<?>) {
+			otherSize = ((BigImmutableList<?>) o).size();
+		} else if (o instanceof ReadOnlyList<?>) {
+			otherSize = ((ReadOnlyList<?>) o).size();
+		} else {
+			return false;
+		}
+		return otherSize == size && InternalUtils.equalIterables(this, (Iterable<?>) o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return InternalUtils.hashCodeIterable(this);
+	}
+}
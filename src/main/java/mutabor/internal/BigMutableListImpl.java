@@ -0,0 +1,324 @@
+package mutabor.internal;
+
+import static mutabor.internal.BigImmutableListImpl.chunkCount;
+import static mutabor.internal.BigImmutableListImpl.rangeCheck;
+import static mutabor.internal.BigImmutableListImpl.subListRangeCheck;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_MASK;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SHIFT;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SIZE;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import mutabor.BigImmutableList;
+import mutabor.BigMutableList;
+import mutabor.ImmutableList;
+
+/**
+ * Mutable list with {@code long} indexes stored in chunks of {@link ChunkedImmutableListImpl} size.
+ * Chunks are shared with snapshots, write to shared chunk copies this chunk only.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class BigMutableListImpl<E> implements BigMutableList<E>, Serializable {
+	
+	private static final long serialVersionUID = 1870449521390253116L;
+	
+	protected static final int MAX_CHUNKS = Integer.MAX_VALUE - 8;
+	
+	protected Object[][] chunks;
+	protected boolean[] shared;
+	protected long size;
+	protected transient BigImmutableListImpl<E> immutable;
+	protected transient int modCount;
+	
+	public BigMutableListImpl() {
+		this.chunks = new Object[0][];
+		this.shared = new boolean[0];
+	}
+	
+	/*
+	 * Shares chunks of immutable list if it starts from the first slot of chunk.
+	 */
+	protected BigMutableListImpl(BigImmutableListImpl<E> immutable) {
+		if ((immutable.offset & CHUNK_MASK) == 0) {
+			int first = (int) (immutable.offset >>> CHUNK_SHIFT);
+			this.chunks = Arrays.copyOfRange(immutable.chunks, first, first + chunkCount(immutable.size));
+			this.shared = new boolean[chunks.length];
+			Arrays.fill(shared, true);
+			this.immutable = immutable;
+		} else {
+			this.chunks = BigImmutableListImpl.copyChunks(immutable.chunks, immutable.offset, immutable.offset + immutable.size);
+			this.shared = new boolean[chunks.length];
+		}
+		this.size = immutable.size;
+	}
+	
+	@Override
+	public long size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(long index) {
+		rangeCheck(index, size);
+		return (E) chunks[(int) (index >>> CHUNK_SHIFT)][(int) index & CHUNK_MASK];
+	}
+	
+	@Override
+	public E set(long index, E element) {
+		rangeCheck(index, size);
+		beforeChange();
+		Object[] chunk = writableChunk((int) (index >>> CHUNK_SHIFT));
+		@SuppressWarnings("unchecked")
+		E old = (E) chunk[(int) index & CHUNK_MASK];
+		chunk[(int) index & CHUNK_MASK] = element;
+		return old;
+	}
+	
+	@Override
+	public boolean add(E e) {
+		beforeChange();
+		int c = (int) (size >>> CHUNK_SHIFT);
+		if (c == chunkCount(size)) {
+			addChunk();
+		}
+		writableChunk(c)[(int) size & CHUNK_MASK] = e;
+		size++;
+		return true;
+	}
+	
+	@Override
+	public void add(long index, E element) {
+		if (index == size) {
+			add(element);
+			return;
+		}
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		add(null);
+		makeWritable(index, size);
+		for (long i = size - 1; i > index; i--) {
+			long j = i - 1;
+			chunks[(int) (i >>> CHUNK_SHIFT)][(int) i & CHUNK_MASK] = chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+		}
+		chunks[(int) (index >>> CHUNK_SHIFT)][(int) index & CHUNK_MASK] = element;
+	}
+	
+	@Override
+	public boolean addAll(Iterable<? extends E> c) {
+		boolean changed = false;
+		for (E e : c) {
+			add(e);
+			changed = true;
+		}
+		return changed;
+	}
+	
+	@Override
+	public E remove(long index) {
+		E old = get(index);
+		beforeChange();
+		if (index == size - 1) {
+			truncate(index);
+			return old;
+		}
+		makeWritable(index, size);
+		for (long i = index; i < size - 1; i++) {
+			long j = i + 1;
+			chunks[(int) (i >>> CHUNK_SHIFT)][(int) i & CHUNK_MASK] = chunks[(int) (j >>> CHUNK_SHIFT)][(int) j & CHUNK_MASK];
+		}
+		truncate(size - 1);
+		return old;
+	}
+	
+	@Override
+	public void clear() {
+		beforeChange();
+		truncate(0);
+	}
+	
+	/*
+	 * Cuts the tail. Chunks beyond new size are dropped,
+	 * slots of last chunk are cleared only if chunk is not shared.
+	 */
+	protected void truncate(long newSize) {
+		int count = chunkCount(newSize);
+		for (int c = count; c < chunks.length; c++) {
+			chunks[c] = null;
+			shared[c] = false;
+		}
+		if ((newSize & CHUNK_MASK) != 0 && !shared[count - 1]) {
+			long last = Math.min(size, (long) count << CHUNK_SHIFT);
+			Arrays.fill(chunks[count - 1], (int) newSize & CHUNK_MASK, (int) ((last - 1) & CHUNK_MASK) + 1, null);
+		}
+		size = newSize;
+	}
+	
+	protected void addChunk() {
+		int c = chunkCount(size);
+		if (c == chunks.length) {
+			if (c >= MAX_CHUNKS) {
+				throw new OutOfMemoryError("Big list size exceeds " + ((long) MAX_CHUNKS << CHUNK_SHIFT));
+			}
+			//grown in long, spine near MAX_CHUNKS would overflow int
+			int capacity = (int) Math.min(Math.max(c + (long) (c >> 1), 4), MAX_CHUNKS);
+			chunks = Arrays.copyOf(chunks, capacity);
+			shared = Arrays.copyOf(shared, capacity);
+		}
+		chunks[c] = new Object[CHUNK_SIZE];
+		shared[c] = false;
+	}
+	
+	protected void makeWritable(long fromIndex, long toIndex) {
+		for (int c = (int) (fromIndex >>> CHUNK_SHIFT), last = (int) ((toIndex - 1) >>> CHUNK_SHIFT); c <= last; c++) {
+			writableChunk(c);
+		}
+	}
+	
+	/*
+	 * Copies chunk if it is shared with snapshot.
+	 */
+	protected Object[] writableChunk(int c) {
+		if (shared[c]) {
+			Stats.beforeChangeCopy(CHUNK_SIZE);
+			chunks[c] = chunks[c].clone();
+			shared[c] = false;
+		}
+		return chunks[c];
+	}
+	
+	protected void beforeChange() {
+		modCount++;
+		immutable = null;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public long indexOf(Object o) {
+		return view().indexOf(o);
+	}
+	
+	@Override
+	public long lastIndexOf(Object o) {
+		return view().lastIndexOf(o);
+	}
+	
+	/*
+	 * Read-only view over current chunks, chunks are not marked as shared.
+	 */
+	protected BigImmutableListImpl<E> view() {
+		return new BigImmutableListImpl<>(chunks, 0, size);
+	}
+	
+	@Override
+	public BigImmutableList<E> subList(long fromIndex, long toIndex) {
+		return snapshot().subList(fromIndex, toIndex);
+	}
+	
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		int expectedModCount = modCount;
+		BigImmutableListImpl.forEach(chunks, 0, size, action);
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	@Override
+	public void forEach(long fromIndex, long toIndex, Consumer<? super E> action) {
+		subListRangeCheck(fromIndex, toIndex, size);
+		int expectedModCount = modCount;
+		BigImmutableListImpl.forEach(chunks, fromIndex, toIndex, action);
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	protected class Itr implements Iterator<E> {
+		protected long cursor;
+		protected int expectedModCount = modCount;
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			long i = cursor++;
+			return (E) chunks[(int) (i >>> CHUNK_SHIFT)][(int) i & CHUNK_MASK];
+		}
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends E> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public BigImmutableList<E> snapshot() {
+		if (immutable != null) {
+			Stats.snapshot(true);
+			return immutable;
+		}
+		Stats.snapshot(false);
+		int count = chunkCount(size);
+		Arrays.fill(shared, 0, count, true);
+		immutable = new BigImmutableListImpl<>(Arrays.copyOf(chunks, count), 0, size);
+		return immutable;
+	}
+	
+	@Override
+	public void releaseSnapshot() {
+		immutable = null;
+	}
+	
+	@Override
+	public ImmutableList<E> asReadOnlyList() {
+		return snapshot().asReadOnlyList();
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof BigMutableList<?>) || ((BigMutableList<?>) o).size() != size) {
+			return false;
+		}
+		return InternalUtils.equalIterables(this, (Iterable<?>) o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return InternalUtils.hashCodeIterable(this);
+	}
+}
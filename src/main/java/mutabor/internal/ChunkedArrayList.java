@@ -0,0 +1,320 @@
+package mutabor.internal;
+
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_MASK;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SHIFT;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SIZE;
+import static mutabor.internal.ChunkedImmutableListImpl.chunkCount;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+
+import mutabor.ImmutableList;
+
+/**
+ * List stored in fixed-size chunks, which are shared with immutable snapshots.
+ * Write to shared chunk copies this chunk only, so first write after snapshot
+ * costs {@value ChunkedImmutableListImpl#CHUNK_SIZE} elements instead of the whole list.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ChunkedArrayList<E> extends AbstractList<E> implements FreezableList<E>, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = 2712659823017498571L;
+	
+	//only elements are serialized, tail of shared chunk may keep elements of snapshots
+	protected transient Object[][] chunks;
+	protected transient boolean[] shared;
+	protected int size;
+	protected transient PingPong.Tracker tracker;
+	
+	public ChunkedArrayList() {
+		this.chunks = new Object[0][];
+		this.shared = new boolean[0];
+	}
+	
+	public ChunkedArrayList(Collection<? extends E> c) {
+		Object[] arr = c.toArray();
+		this.chunks = ChunkedImmutableListImpl.toChunks(arr, 0, arr.length);
+		this.shared = new boolean[chunks.length];
+		this.size = arr.length;
+	}
+	
+	/*
+	 * Shares chunks of immutable list.
+	 */
+	protected ChunkedArrayList(ChunkedImmutableListImpl<E> immutable) {
+		if (immutable.offset == 0) {
+			this.chunks = Arrays.copyOf(immutable.chunks, chunkCount(immutable.size));
+			this.shared = new boolean[chunks.length];
+			Arrays.fill(shared, true);
+		} else {
+			this.chunks = immutable.copyChunks(0, immutable.size);
+			this.shared = new boolean[chunks.length];
+		}
+		this.size = immutable.size;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		rangeCheck(index);
+		return (E) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+	
+	@Override
+	public E set(int index, E element) {
+		rangeCheck(index);
+		Object[] chunk = writableChunk(index >>> CHUNK_SHIFT);
+		@SuppressWarnings("unchecked")
+		E old = (E) chunk[index & CHUNK_MASK];
+		chunk[index & CHUNK_MASK] = element;
+		return old;
+	}
+	
+	@Override
+	public boolean add(E e) {
+		modCount++;
+		int c = size >>> CHUNK_SHIFT;
+		if (c == chunkCount(size)) {
+			addChunk();
+		}
+		writableChunk(c)[size & CHUNK_MASK] = e;
+		size++;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, E element) {
+		if (index == size) {
+			add(element);
+			return;
+		}
+		rangeCheckForAdd(index);
+		add(null);
+		makeWritable(index, size);
+		for (int i = size - 1; i > index; i--) {
+			int j = i - 1;
+			chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+		}
+		chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = element;
+	}
+	
+	/*
+	 * Grows once and shifts tail once, instead of inserting elements one by one.
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+		rangeCheckForAdd(index);
+		Object[] arr = c.toArray();
+		int n = arr.length;
+		if (n == 0) {
+			return false;
+		}
+		int newSize = size + n;
+		if (newSize < 0) {
+			throw new OutOfMemoryError("List size exceeds " + Integer.MAX_VALUE);
+		}
+		modCount++;
+		growTo(newSize);
+		makeWritable(index, newSize);
+		for (int i = size - 1; i >= index; i--) {
+			int j = i + n;
+			chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK] = chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+		}
+		for (int pos = 0; pos < n; ) {
+			int i = index + pos;
+			int len = Math.min(n - pos, CHUNK_SIZE - (i & CHUNK_MASK));
+			System.arraycopy(arr, pos, chunks[i >>> CHUNK_SHIFT], i & CHUNK_MASK, len);
+			pos += len;
+		}
+		size = newSize;
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		return addAll(size, c);
+	}
+	
+	@Override
+	public E remove(int index) {
+		rangeCheck(index);
+		E old = get(index);
+		removeRange(index, index + 1);
+		return old;
+	}
+	
+	@Override
+	public void clear() {
+		modCount++;
+		truncate(0);
+	}
+	
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		modCount++;
+		if (toIndex == size) {
+			truncate(fromIndex);
+			return;
+		}
+		int n = toIndex - fromIndex;
+		makeWritable(fromIndex, size);
+		for (int i = fromIndex; i < size - n; i++) {
+			int j = i + n;
+			chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+		}
+		truncate(size - n);
+	}
+	
+	/*
+	 * Cuts the tail. Chunks beyond new size are dropped,
+	 * slots of last chunk are cleared only if chunk is not shared.
+	 */
+	protected void truncate(int newSize) {
+		int count = chunkCount(newSize);
+		for (int c = count; c < chunks.length; c++) {
+			chunks[c] = null;
+			shared[c] = false;
+		}
+		if ((newSize & CHUNK_MASK) != 0 && !shared[count - 1]) {
+			int last = Math.min(size, count << CHUNK_SHIFT);
+			Arrays.fill(chunks[count - 1], newSize & CHUNK_MASK, ((last - 1) & CHUNK_MASK) + 1, null);
+		}
+		size = newSize;
+	}
+	
+	protected void addChunk() {
+		int c = chunkCount(size);
+		if (c == chunks.length) {
+			int capacity = Math.max(c + (c >> 1), 4);
+			chunks = Arrays.copyOf(chunks, capacity);
+			shared = Arrays.copyOf(shared, capacity);
+		}
+		chunks[c] = new Object[CHUNK_SIZE];
+		shared[c] = false;
+	}
+	
+	/*
+	 * Adds empty chunks up to the new size, size itself is not changed.
+	 */
+	protected void growTo(int newSize) {
+		int count = chunkCount(newSize);
+		if (count > chunks.length) {
+			int capacity = Math.max(Math.max(chunks.length + (chunks.length >> 1), 4), count);
+			chunks = Arrays.copyOf(chunks, capacity);
+			shared = Arrays.copyOf(shared, capacity);
+		}
+		for (int c = chunkCount(size); c < count; c++) {
+			chunks[c] = new Object[CHUNK_SIZE];
+			shared[c] = false;
+		}
+	}
+	
+	protected void makeWritable(int fromIndex, int toIndex) {
+		for (int c = fromIndex >>> CHUNK_SHIFT, last = (toIndex - 1) >>> CHUNK_SHIFT; c <= last; c++) {
+			writableChunk(c);
+		}
+	}
+	
+	/*
+	 * Copies chunk if it is shared with snapshot.
+	 */
+	protected Object[] writableChunk(int c) {
+		if (shared[c]) {
+			Stats.beforeChangeCopy(CHUNK_SIZE);
+			chunks[c] = chunks[c].clone();
+			shared[c] = false;
+			if (tracker != null) {
+				tracker.copy(CHUNK_SIZE);
+			}
+		}
+		return chunks[c];
+	}
+	
+	@Override
+	public ImmutableList<E> freeze() {
+		if (size <= SmallImmutableListImpl.MAX_SIZE) {
+			return SmallImmutableListImpl.create(size == 0 ? InternalUtils.EMPTY_ARRAY : chunks[0], 0, size);
+		}
+		int count = chunkCount(size);
+		Arrays.fill(shared, 0, count, true);
+		return new ChunkedImmutableListImpl<>(Arrays.copyOf(chunks, count), 0, size);
+	}
+	
+	/*
+	 * In single-owner mode snapshots are dead after release, so chunks are not shared anymore.
+	 */
+	@Override
+	public void release() {
+		if (ArrayPool.isSingleOwner()) {
+			Arrays.fill(shared, false);
+		}
+	}
+	
+	@Override
+	public ImmutableList<E> detach() {
+		ImmutableList<E> res = freeze();
+		chunks = new Object[0][];
+		shared = new boolean[0];
+		size = 0;
+		modCount++;
+		return res;
+	}
+	
+	@Override
+	public void setTracker(PingPong.Tracker tracker) {
+		this.tracker = tracker;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		int expectedModCount = modCount;
+		out.defaultWriteObject();
+		for (int i = 0; i < size; i++) {
+			out.writeObject(chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (size < 0) {
+			throw new InvalidObjectException("size = " + size);
+		}
+		Object[][] arr = new Object[chunkCount(size)][];
+		for (int i = 0; i < size; i++) {
+			if ((i & CHUNK_MASK) == 0) {
+				arr[i >>> CHUNK_SHIFT] = new Object[CHUNK_SIZE];
+			}
+			arr[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = in.readObject();
+		}
+		chunks = arr;
+		shared = new boolean[arr.length];
+	}
+	
+	protected void rangeCheck(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	protected void rangeCheckForAdd(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package mutabor.internal;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+import mutabor.ImmutableList;
+import mutabor.MutableList;
+import mutabor.SubListRetentionPolicy;
+
+/**
+ * Immutable list stored in fixed-size chunks.
+ * Chunks may be shared with {@link ChunkedArrayList} and other snapshots.
+ * Element is found by two-level index: chunk, then slot in chunk.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ChunkedImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = 4409152683027751213L;
+	
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicReferenceFieldUpdater<ChunkedImmutableListImpl, DerivedValues> DERIVED =
+			AtomicReferenceFieldUpdater.newUpdater(ChunkedImmutableListImpl.class, DerivedValues.class, "derived");
+	
+	public static final int CHUNK_SHIFT = 12;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	protected final Object[][] chunks;
+	protected final int offset;
+	protected final int size;
+	//values of derive(), created on the first call
+	protected transient volatile DerivedValues derived;
+	
+	protected ChunkedImmutableListImpl(Object[][] chunks, int offset, int size) {
+		this.chunks = chunks;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	protected static int chunkCount(int size) {
+		return (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+	}
+	
+	/*
+	 * Copies elements of array range into new chunks.
+	 */
+	protected static Object[][] toChunks(Object[] data, int fromIndex, int toIndex) {
+		int n = toIndex - fromIndex;
+		Object[][] res = new Object[chunkCount(n)][];
+		for (int c = 0; c < res.length; c++) {
+			res[c] = new Object[CHUNK_SIZE];
+			int from = c << CHUNK_SHIFT;
+			System.arraycopy(data, fromIndex + from, res[c], 0, Math.min(CHUNK_SIZE, n - from));
+		}
+		return res;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public boolean containsAll(Iterable<?> c) {
+		for (Object e : c) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		for (int i = 0; i < size; i++) {
+			int j = offset + i;
+			Object e = chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		for (int i = size - 1; i >= 0; i--) {
+			int j = offset + i;
+			Object e = chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * Copies elements into array chunk by chunk.
+	 */
+	protected void copyTo(Object[] dest) {
+		int i = 0;
+		while (i < size) {
+			int j = offset + i;
+			int slot = j & CHUNK_MASK;
+			int n = Math.min(CHUNK_SIZE - slot, size - i);
+			System.arraycopy(chunks[j >>> CHUNK_SHIFT], slot, dest, i, n);
+			i += n;
+		}
+	}
+	
+	@Override
+	public Object[] toArray() {
+		Object[] arr = new Object[size];
+		copyTo(arr);
+		return arr;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		T[] arr = (a.length < size) ? (T[]) Array.newInstance(a.getClass().getComponentType(), size) : a;
+		copyTo(arr);
+		if (arr.length > size) {
+			arr[size] = null;
+		}
+		return arr;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int j = offset + index;
+		return (E) chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<E> listIterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return new ListItr(index);
+	}
+	
+	protected class ListItr implements ListIterator<E> {
+		protected int cursor;
+		
+		protected ListItr(int index) {
+			this.cursor = index;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			int j = offset + cursor++;
+			return (E) chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+		}
+		
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public E previous() {
+			if (cursor < 1) {
+				throw new NoSuchElementException();
+			}
+			int j = offset + --cursor;
+			return (E) chunks[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+		}
+		
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+		
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void set(E e) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void add(E e) {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Override
+	public ImmutableList<E> subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		int subSize = toIndex - fromIndex;
+		if (subSize <= SmallImmutableListImpl.MAX_SIZE) {
+			Object[] arr = new Object[subSize];
+			for (int i = 0; i < subSize; i++) {
+				arr[i] = get(fromIndex + i);
+			}
+			return SmallImmutableListImpl.create(arr, 0, subSize);
+		}
+		SubListRetentionPolicy policy = InternalUtils.subListRetentionPolicy;
+		if (policy.shouldCopy(subSize, retainedLength())) {
+			return new ChunkedImmutableListImpl<E>(fromIndex, toIndex, this);
+		}
+		ImmutableList<E> res = new ChunkedImmutableListImpl<>(chunks, offset + fromIndex, subSize);
+		if (policy.shouldTrack(subSize, retainedLength())) {
+			RetainedViews.track(res);
+		}
+		return res;
+	}
+	
+	/*
+	 * Copies range of the specified list into own chunks.
+	 */
+	protected ChunkedImmutableListImpl(int fromIndex, int toIndex, ChunkedImmutableListImpl<E> source) {
+		this(source.copyChunks(fromIndex, toIndex), 0, toIndex - fromIndex);
+		Stats.copy(size);
+	}
+	
+	/*
+	 * Copies range of this list into new chunks, chunk by chunk.
+	 * With non-zero offset every new chunk takes the tail of one chunk and the head of the next one.
+	 */
+	protected Object[][] copyChunks(int fromIndex, int toIndex) {
+		int n = toIndex - fromIndex;
+		Object[][] res = new Object[chunkCount(n)][];
+		for (int c = 0; c < res.length; c++) {
+			Object[] chunk = new Object[CHUNK_SIZE];
+			int count = Math.min(CHUNK_SIZE, n - (c << CHUNK_SHIFT));
+			int src = offset + fromIndex + (c << CHUNK_SHIFT);
+			for (int pos = 0; pos < count; ) {
+				int len = Math.min(count - pos, CHUNK_SIZE - (src & CHUNK_MASK));
+				System.arraycopy(chunks[src >>> CHUNK_SHIFT], src & CHUNK_MASK, chunk, pos, len);
+				pos += len;
+				src += len;
+			}
+			res[c] = chunk;
+		}
+		return res;
+	}
+	
+	protected int retainedLength() {
+		return chunks.length << CHUNK_SHIFT;
+	}
+	
+	@Override
+	public ImmutableList<E> compact() {
+		if (offset == 0 && chunks.length == chunkCount(size)) {
+			return this;
+		}
+		return new ChunkedImmutableListImpl<E>(0, size, this);
+	}
+	
+	/*
+	 * Only elements in range are serialized: slots beyond it may belong to other lists
+	 * or be written concurrently by producers of ConcurrentAppendLog.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return new SerializedList(this);
+	}
+	
+	protected static class SerializedList implements Serializable {
+		
+		private static final long serialVersionUID = -5820418036417462150L;
+		
+		protected transient ChunkedImmutableListImpl<?> list;
+		
+		protected SerializedList(ChunkedImmutableListImpl<?> list) {
+			this.list = list;
+		}
+		
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			out.writeInt(list.size);
+			for (int i = 0; i < list.size; i++) {
+				out.writeObject(list.get(i));
+			}
+		}
+		
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			int n = in.readInt();
+			if (n < 0) {
+				throw new InvalidObjectException("size = " + n);
+			}
+			Object[][] chunks = new Object[chunkCount(n)][];
+			for (int i = 0; i < n; i++) {
+				if ((i & CHUNK_MASK) == 0) {
+					chunks[i >>> CHUNK_SHIFT] = new Object[CHUNK_SIZE];
+				}
+				chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = in.readObject();
+			}
+			list = new ChunkedImmutableListImpl<>(chunks, 0, n);
+		}
+		
+		protected Object readResolve() throws ObjectStreamException {
+			return list;
+		}
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return InternalUtils.equalLists(this, o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return InternalUtils.hashCodeIterable(this);
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends E> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public List<E> toList() {
+		return new ListRepresentation<>(this);
+	}
+	
+	@Override
+	public <R> R derive(Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+		return DerivedValues.derive(DERIVED, this, key, function);
+	}
+	
+	@Override
+	public MutableList<E> mutable() {
+		return new RandomAccessMutableListImpl<>(this);
+	}
+}
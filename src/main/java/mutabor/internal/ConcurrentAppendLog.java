@@ -0,0 +1,149 @@
+package mutabor.internal;
+
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_MASK;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SHIFT;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SIZE;
+import static mutabor.internal.ChunkedImmutableListImpl.chunkCount;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import mutabor.AppendLog;
+import mutabor.ImmutableList;
+
+/**
+ * Multi-producer append log stored in chunks of {@link ChunkedImmutableListImpl}.
+ * Producers reserve slots by fetch-and-add and count committed slots per chunk.
+ * Published snapshots share chunks: slots below snapshot size are never written again.
+ * @param <E> the type of elements in this log
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ConcurrentAppendLog<E> implements AppendLog<E> {
+	
+	protected static final int MAX_SIZE = (Integer.MAX_VALUE >>> CHUNK_SHIFT) << CHUNK_SHIFT;
+	
+	protected final int batchSize;
+	protected final long maxDelayNanos;
+	
+	protected final AtomicLong reserved = new AtomicLong();
+	protected volatile Spine spine = new Spine(new Object[0][], new AtomicInteger[0]);
+	
+	protected final ReentrantLock publishLock = new ReentrantLock();
+	protected volatile ImmutableList<E> published = InternalUtils.emptyImmutableList();
+	protected volatile long publishedNanos = System.nanoTime();
+	
+	/*
+	 * Chunks and their counters of committed slots. Spine is never changed, growth creates new spine.
+	 */
+	protected static class Spine {
+		protected final Object[][] chunks;
+		protected final AtomicInteger[] committed;
+		
+		protected Spine(Object[][] chunks, AtomicInteger[] committed) {
+			this.chunks = chunks;
+			this.committed = committed;
+		}
+	}
+	
+	public ConcurrentAppendLog(int batchSize, long maxDelayNanos) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize = " + batchSize);
+		}
+		this.batchSize = batchSize;
+		this.maxDelayNanos = maxDelayNanos;
+	}
+	
+	@Override
+	public int append(E e) {
+		long index = reserved.getAndIncrement();
+		if (index >= MAX_SIZE) {
+			throw new IllegalStateException("Append log is full");
+		}
+		int c = (int) (index >>> CHUNK_SHIFT);
+		Spine s = spine;
+		if (c >= s.chunks.length) {
+			s = grow(c);
+		}
+		s.chunks[c][(int) index & CHUNK_MASK] = e;
+		s.committed[c].incrementAndGet();
+		
+		if (index + 1 - published.size() >= batchSize && publishLock.tryLock()) {
+			try {
+				doPublish();
+			} finally {
+				publishLock.unlock();
+			}
+		}
+		return (int) index;
+	}
+	
+	/*
+	 * Adds chunks up to the specified one and one more ahead,
+	 * so that producers rarely get here.
+	 */
+	protected synchronized Spine grow(int c) {
+		Spine s = spine;
+		if (c + 1 < s.chunks.length) {
+			return s;
+		}
+		int length = Math.min(c + 2, chunkCount(MAX_SIZE));
+		Object[][] chunks = Arrays.copyOf(s.chunks, length);
+		AtomicInteger[] committed = Arrays.copyOf(s.committed, length);
+		for (int i = s.chunks.length; i < length; i++) {
+			chunks[i] = new Object[CHUNK_SIZE];
+			committed[i] = new AtomicInteger();
+		}
+		s = new Spine(chunks, committed);
+		spine = s;
+		return s;
+	}
+	
+	@Override
+	public ImmutableList<E> snapshot() {
+		ImmutableList<E> res = published;
+		if (maxDelayNanos >= 0 && reserved.get() > res.size() && System.nanoTime() - publishedNanos >= maxDelayNanos) {
+			return publish();
+		}
+		return res;
+	}
+	
+	@Override
+	public ImmutableList<E> publish() {
+		publishLock.lock();
+		try {
+			return doPublish();
+		} finally {
+			publishLock.unlock();
+		}
+	}
+	
+	/*
+	 * Finds committed prefix: full chunks, then the last chunk if all its reserved slots are committed.
+	 * Counter is read before reservations, so equal numbers mean that every reserved slot is written.
+	 */
+	protected ImmutableList<E> doPublish() {
+		Spine s = spine;
+		int size = published.size();
+		int c = size >>> CHUNK_SHIFT;
+		int n = c << CHUNK_SHIFT;
+		for (; c < s.chunks.length; c++) {
+			int count = s.committed[c].get();
+			if (count == CHUNK_SIZE) {
+				n += CHUNK_SIZE;
+				continue;
+			}
+			long inChunk = Math.min(reserved.get() - ((long) c << CHUNK_SHIFT), CHUNK_SIZE);
+			if (count == inChunk) {
+				n += count;
+			}
+			break;
+		}
+		publishedNanos = System.nanoTime();
+		if (n > size) {
+			published = new ChunkedImmutableListImpl<>(Arrays.copyOf(s.chunks, chunkCount(n)), 0, n);
+		}
+		return published;
+	}
+}
@@ -0,0 +1,75 @@
+package mutabor.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+import mutabor.ImmutableList;
+
+/**
+ * Values derived from one immutable list by {@link ImmutableList#derive}, created on the first call.
+ * Every key has its own holder: computations of different keys do not block each other.
+ * Function may derive values of other keys from the same list, but two functions which derive
+ * each other's keys in opposite order deadlock when called concurrently by two threads.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class DerivedValues {
+	
+	protected final ConcurrentHashMap<Object, Holder> holders = new ConcurrentHashMap<>(4);
+	
+	protected static final class Holder {
+		//value is written before done, read after it
+		protected volatile boolean done;
+		protected Object value;
+		protected boolean computing;
+	}
+	
+	/*
+	 * Gets value of the key kept in the field of the list, the field is set by compare-and-set on the first call.
+	 * Empty lists, which may be shared instances, keep nothing.
+	 */
+	public static <L extends ImmutableList<E>, E, R> R derive(AtomicReferenceFieldUpdater<? super L, DerivedValues> field,
+			L list, Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+		if (key == null) {
+			throw new NullPointerException("key");
+		}
+		if (function == null) {
+			throw new NullPointerException("function");
+		}
+		if (list.isEmpty()) {
+			return function.apply(list);
+		}
+		DerivedValues values = field.get(list);
+		if (values == null) {
+			field.compareAndSet(list, null, new DerivedValues());
+			values = field.get(list);
+		}
+		return values.get(list, key, function);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <L, R> R get(L list, Object key, Function<? super L, ? extends R> function) {
+		Holder holder = holders.get(key);
+		if (holder == null) {
+			holder = holders.computeIfAbsent(key, k -> new Holder());
+		}
+		if (!holder.done) {
+			synchronized (holder) {
+				if (!holder.done) {
+					//other threads wait on monitor, so only the computing thread itself gets here
+					if (holder.computing) {
+						throw new IllegalStateException("Recursive derivation of " + key);
+					}
+					holder.computing = true;
+					try {
+						holder.value = function.apply(list);
+						holder.done = true;
+					} finally {
+						holder.computing = false;
+					}
+				}
+			}
+		}
+		return (R) holder.value;
+	}
+}
@@ -0,0 +1,217 @@
+package mutabor.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import mutabor.Equivalence;
+import mutabor.ReadOnlyList;
+
+/**
+ * Standard equivalences and search algorithms which use them.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class Equivalences {
+	
+	//below these sizes containsAll compares elements pairwise instead of building hash index
+	protected static final int HASH_MIN_LIST_SIZE = 16;
+	protected static final int HASH_MIN_QUERY_SIZE = 4;
+	
+	protected enum Standard implements Equivalence<Object> {
+		IDENTITY {
+			@Override
+			public boolean equivalent(Object a, Object b) {
+				return a == b;
+			}
+			
+			@Override
+			public int hash(Object o) {
+				return System.identityHashCode(o);
+			}
+		},
+		EQUALITY {
+			@Override
+			public boolean equivalent(Object a, Object b) {
+				return a.equals(b);
+			}
+			
+			@Override
+			public int hash(Object o) {
+				return o.hashCode();
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> Equivalence<T> identity() {
+		return (Equivalence<T>) Standard.IDENTITY;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> Equivalence<T> equality() {
+		return (Equivalence<T>) Standard.EQUALITY;
+	}
+	
+	/*
+	 * Search in array range, returns absolute index.
+	 */
+	public static int indexOf(Object[] data, int fromIndex, int toIndex, Object o) {
+		if (o == null) {
+			return indexOfIdentical(data, fromIndex, toIndex, null);
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (o.equals(data[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(Object[] data, int fromIndex, int toIndex, Object o) {
+		if (o == null) {
+			return lastIndexOfIdentical(data, fromIndex, toIndex, null);
+		}
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			if (o.equals(data[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int indexOfIdentical(Object[] data, int fromIndex, int toIndex, Object o) {
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (data[i] == o) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOfIdentical(Object[] data, int fromIndex, int toIndex, Object o) {
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			if (data[i] == o) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <E> int indexOf(Object[] data, int fromIndex, int toIndex, E o, Equivalence<? super E> eq) {
+		if (o == null || eq == Standard.IDENTITY) {
+			return indexOfIdentical(data, fromIndex, toIndex, o);
+		}
+		if (eq == Standard.EQUALITY) {
+			return indexOf(data, fromIndex, toIndex, o);
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			Object e = data[i];
+			if (e != null && eq.equivalent(o, (E) e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <E> int lastIndexOf(Object[] data, int fromIndex, int toIndex, E o, Equivalence<? super E> eq) {
+		if (o == null || eq == Standard.IDENTITY) {
+			return lastIndexOfIdentical(data, fromIndex, toIndex, o);
+		}
+		if (eq == Standard.EQUALITY) {
+			return lastIndexOf(data, fromIndex, toIndex, o);
+		}
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			Object e = data[i];
+			if (e != null && eq.equivalent(o, (E) e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * Generic search by get(int) for lists without array.
+	 */
+	public static <E> int indexOf(ReadOnlyList<E> list, E o, Equivalence<? super E> eq) {
+		for (int i = 0, size = list.size(); i < size; i++) {
+			if (equivalent(o, list.get(i), eq)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static <E> int lastIndexOf(ReadOnlyList<E> list, E o, Equivalence<? super E> eq) {
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (equivalent(o, list.get(i), eq)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	protected static <E> boolean equivalent(E a, E b, Equivalence<? super E> eq) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		return eq.equivalent(a, b);
+	}
+	
+	/*
+	 * Checks that list contains all elements of c.
+	 * Big queries against big lists use hash index of list elements built with eq.hash(),
+	 * so the cost is O(list + query) instead of O(list * query).
+	 */
+	public static <E> boolean containsAll(ReadOnlyList<E> list, Iterable<? extends E> c, Equivalence<? super E> eq) {
+		int size = list.size();
+		if (size < HASH_MIN_LIST_SIZE || (c instanceof Collection<?> && ((Collection<?>) c).size() < HASH_MIN_QUERY_SIZE)) {
+			for (E e : c) {
+				if (list.indexOf(e, eq) < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+		//chained hash table over list indexes: heads by hash, next by index
+		int mask = Integer.highestOneBit(Math.min(Math.max(size - 1, 1), 1 << 29) << 1) - 1;
+		int[] heads = new int[mask + 1];
+		Arrays.fill(heads, -1);
+		int[] next = new int[size];
+		boolean hasNull = false;
+		for (int i = size - 1; i >= 0; i--) {
+			E e = list.get(i);
+			if (e == null) {
+				hasNull = true;
+				next[i] = -1;
+				continue;
+			}
+			int h = spread(eq.hash(e)) & mask;
+			next[i] = heads[h];
+			heads[h] = i;
+		}
+		for (E o : c) {
+			if (o == null) {
+				if (!hasNull) {
+					return false;
+				}
+				continue;
+			}
+			int i = heads[spread(eq.hash(o)) & mask];
+			while (i >= 0 && !eq.equivalent(o, list.get(i))) {
+				i = next[i];
+			}
+			if (i < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	protected static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+	
+	private Equivalences() {
+	}
+}
@@ -0,0 +1,94 @@
+package mutabor.internal;
+
+/**
+ * Emits JDK Flight Recorder events for expensive operations:
+ * {@code mutabor.Copy}, {@code mutabor.Snapshot} and {@code mutabor.ConversionFallback}.
+ * Events are emitted only for lists not smaller than threshold,
+ * and only when JFR is available and event is enabled in recording.
+ * Events are recorded by {@code JfrEvents}, which is built only by JDK 11+ and loaded reflectively,
+ * so this class compiles and runs without {@code jdk.jfr}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class Events {
+	
+	public static final int DEFAULT_THRESHOLD = 10000;
+	
+	protected static final int COPY = 0;
+	protected static final int SNAPSHOT = 1;
+	protected static final int CONVERSION_FALLBACK = 2;
+	
+	/*
+	 * Implemented by JfrEvents.
+	 */
+	protected abstract static class Recorder {
+		protected abstract Object begin(int type);
+		protected abstract void commit(Object event, int elements, Class<?> sourceClass, String operation, boolean converted);
+	}
+	
+	//null if JFR or JfrEvents is not available
+	protected static final Recorder RECORDER;
+	static {
+		Recorder recorder;
+		try {
+			Class.forName("jdk.jfr.Event");
+			recorder = (Recorder) Class.forName("mutabor.internal.JfrEvents").getDeclaredConstructor().newInstance();
+		} catch (@SuppressWarnings("unused") Throwable e) {
+			recorder = null;
+		}
+		RECORDER = recorder;
+	}
+	protected static final boolean AVAILABLE = (RECORDER != null);
+	
+	protected static volatile int configuredThreshold = Integer.getInteger("mutabor.jfr.threshold", DEFAULT_THRESHOLD).intValue();
+	protected static volatile int threshold = AVAILABLE ? configuredThreshold : Integer.MAX_VALUE;
+	
+	public static int getThreshold() {
+		return configuredThreshold;
+	}
+	
+	public static void setThreshold(int elements) {
+		if (elements < 0) {
+			throw new IllegalArgumentException("threshold = " + elements);
+		}
+		configuredThreshold = elements;
+		threshold = AVAILABLE ? elements : Integer.MAX_VALUE;
+	}
+	
+	/*
+	 * Methods begin*() return event token or null,
+	 * token must be passed to corresponding commit*() after operation is done.
+	 */
+	
+	public static Object beginCopy(int elements) {
+		return (elements < threshold) ? null : RECORDER.begin(COPY);
+	}
+	
+	public static void commitCopy(Object event, int elements, Class<?> sourceClass, String operation) {
+		if (event != null) {
+			RECORDER.commit(event, elements, sourceClass, operation, false);
+		}
+	}
+	
+	public static Object beginSnapshot(int elements) {
+		return (elements < threshold) ? null : RECORDER.begin(SNAPSHOT);
+	}
+	
+	public static void commitSnapshot(Object event, int elements, Class<?> sourceClass, boolean converted) {
+		if (event != null) {
+			RECORDER.commit(event, elements, sourceClass, null, converted);
+		}
+	}
+	
+	public static Object beginConversionFallback(int elements) {
+		return (elements < threshold) ? null : RECORDER.begin(CONVERSION_FALLBACK);
+	}
+	
+	public static void commitConversionFallback(Object event, int elements, Class<?> sourceClass) {
+		if (event != null) {
+			RECORDER.commit(event, elements, sourceClass, null, false);
+		}
+	}
+	
+	private Events() {
+	}
+}
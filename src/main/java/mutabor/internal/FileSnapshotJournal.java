@@ -0,0 +1,494 @@
+package mutabor.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import mutabor.CodecInput;
+import mutabor.CodecOutput;
+import mutabor.ElementCodec;
+import mutabor.ImmutableList;
+import mutabor.ListCodec;
+import mutabor.SnapshotJournal;
+
+/**
+ * Snapshot journal in single file: magic number followed by records.
+ * Record is header (type, version, length and CRC32 of payload) followed by payload.
+ * Payload of checkpoint is list encoded by {@link ListCodec}, payload of delta is
+ * length of common prefix, length of common suffix and list of elements between them.
+ * Records are encoded and written by dedicated thread, one gathering write and one force per batch.
+ * On opening, records are verified and torn tail of interrupted write is truncated.
+ * Only positions of checkpoints are kept in memory.
+ * @param <E> the type of elements
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class FileSnapshotJournal<E> implements SnapshotJournal<E> {
+	
+	protected static final int MAGIC = 0x4d554a31;
+	protected static final int HEADER_SIZE = 1 + 8 + 4 + 4;
+	protected static final byte CHECKPOINT = 1;
+	protected static final byte DELTA = 2;
+	
+	protected final FileChannel channel;
+	protected final ListCodec<E> listCodec;
+	protected final int checkpointInterval;
+	protected final Thread writer;
+	
+	//guarded by this
+	protected final ArrayDeque<Pending<E>> queue = new ArrayDeque<>();
+	protected long firstVersion;
+	protected long lastVersion;
+	protected long durableVersion;
+	//end of the last durable record
+	protected long end;
+	protected long[] checkpointVersions = new long[16];
+	protected long[] checkpointPositions = new long[16];
+	protected int checkpoints;
+	protected IOException failure;
+	protected boolean closed;
+	
+	//used by writer thread only
+	protected ImmutableList<? extends E> previous;
+	protected long previousCheckpoint;
+	
+	protected static class Pending<E> {
+		protected final long version;
+		protected final ImmutableList<? extends E> list;
+		
+		protected Pending(long version, ImmutableList<? extends E> list) {
+			this.version = version;
+			this.list = list;
+		}
+	}
+	
+	public FileSnapshotJournal(Path path, ElementCodec<E> elementCodec, int checkpointInterval) throws IOException {
+		if (path == null) {
+			throw new NullPointerException("path");
+		}
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException("checkpointInterval = " + checkpointInterval);
+		}
+		this.listCodec = new ListCodec<>(elementCodec);
+		this.checkpointInterval = checkpointInterval;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			recover();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		this.writer = new Thread(this::writeLoop, "mutabor-journal-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	protected void readFully(ByteBuffer dst, long position) throws IOException {
+		while (dst.hasRemaining()) {
+			int n = channel.read(dst, position);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			position += n;
+		}
+	}
+	
+	/*
+	 * Scans records, stops at the first record which is incomplete, corrupted or out of order.
+	 */
+	protected void recover() throws IOException {
+		long size = channel.size();
+		if (size == 0) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			magic.putInt(MAGIC);
+			magic.flip();
+			while (magic.hasRemaining()) {
+				channel.write(magic, 0);
+			}
+			channel.force(true);
+			size = 4;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if (size >= 4) {
+			header.limit(4);
+			readFully(header, 0);
+		}
+		if (size < 4 || header.getInt(0) != MAGIC) {
+			throw new IOException("Not a snapshot journal");
+		}
+		ByteBuffer chunk = ByteBuffer.allocateDirect(CodecInput.DEFAULT_BUFFER_SIZE);
+		CRC32 crc = new CRC32();
+		long pos = 4;
+		long version = 0;
+		while (pos + HEADER_SIZE <= size) {
+			header.clear();
+			readFully(header, pos);
+			header.flip();
+			byte type = header.get();
+			long v = header.getLong();
+			int length = header.getInt();
+			int checksum = header.getInt();
+			if ((type != CHECKPOINT && type != DELTA) || length < 0 || pos + HEADER_SIZE + length > size
+					|| (version == 0 ? (type != CHECKPOINT || v <= 0) : v != version + 1)) {
+				break;
+			}
+			crc.reset();
+			for (long p = pos + HEADER_SIZE, payloadEnd = p + length; p < payloadEnd; ) {
+				chunk.clear();
+				chunk.limit((int) Math.min(chunk.capacity(), payloadEnd - p));
+				readFully(chunk, p);
+				p += chunk.position();
+				chunk.flip();
+				crc.update(chunk);
+			}
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			if (type == CHECKPOINT) {
+				addCheckpoint(v, pos);
+			}
+			if (version == 0) {
+				firstVersion = v;
+			}
+			version = v;
+			pos += HEADER_SIZE + length;
+		}
+		if (pos < size) {
+			//torn tail of interrupted write
+			channel.truncate(pos);
+			channel.force(true);
+		}
+		if (version == 0) {
+			firstVersion = 1;
+		}
+		lastVersion = version;
+		durableVersion = version;
+		end = pos;
+		channel.position(end);
+	}
+	
+	protected void addCheckpoint(long version, long position) {
+		if (checkpoints == checkpointVersions.length) {
+			checkpointVersions = Arrays.copyOf(checkpointVersions, checkpoints * 2);
+			checkpointPositions = Arrays.copyOf(checkpointPositions, checkpoints * 2);
+		}
+		checkpointVersions[checkpoints] = version;
+		checkpointPositions[checkpoints] = position;
+		checkpoints++;
+	}
+	
+	@Override
+	public synchronized long append(ImmutableList<? extends E> list) throws IOException {
+		if (list == null) {
+			throw new NullPointerException("list");
+		}
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		if (failure != null) {
+			throw new IOException("Journal write failed", failure);
+		}
+		long version = ++lastVersion;
+		queue.addLast(new Pending<>(version, list));
+		notifyAll();
+		return version;
+	}
+	
+	/*
+	 * Takes all pending versions at once: versions appended while the previous batch
+	 * was written share one write and one force.
+	 */
+	protected void writeLoop() {
+		List<Pending<E>> batch = new ArrayList<>();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodecOutput out = new CodecOutput(Channels.newChannel(bytes));
+		CRC32 crc = new CRC32();
+		try {
+			while (true) {
+				synchronized (this) {
+					while (queue.isEmpty() && !closed) {
+						wait();
+					}
+					if (queue.isEmpty()) {
+						return;
+					}
+					batch.addAll(queue);
+					queue.clear();
+				}
+				ByteBuffer[] buffers = new ByteBuffer[batch.size() * 2];
+				long[] positions = new long[batch.size()];
+				boolean[] checkpoint = new boolean[batch.size()];
+				long pos = end;
+				for (int i = 0; i < batch.size(); i++) {
+					Pending<E> p = batch.get(i);
+					bytes.reset();
+					checkpoint[i] = encode(p, out);
+					out.flush();
+					byte[] payload = bytes.toByteArray();
+					crc.reset();
+					crc.update(payload, 0, payload.length);
+					ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+					header.put(checkpoint[i] ? CHECKPOINT : DELTA);
+					header.putLong(p.version);
+					header.putInt(payload.length);
+					header.putInt((int) crc.getValue());
+					header.flip();
+					buffers[2 * i] = header;
+					buffers[2 * i + 1] = ByteBuffer.wrap(payload);
+					positions[i] = pos;
+					pos += HEADER_SIZE + payload.length;
+				}
+				while (buffers[buffers.length - 1].hasRemaining()) {
+					channel.write(buffers);
+				}
+				channel.force(false);
+				synchronized (this) {
+					for (int i = 0; i < batch.size(); i++) {
+						if (checkpoint[i]) {
+							addCheckpoint(batch.get(i).version, positions[i]);
+						}
+					}
+					end = pos;
+					durableVersion = batch.get(batch.size() - 1).version;
+					notifyAll();
+				}
+				batch.clear();
+			}
+		} catch (IOException e) {
+			fail(e);
+		} catch (InterruptedException e) {
+			fail(new InterruptedIOException("Journal writer is interrupted"));
+		} catch (RuntimeException e) {
+			fail(new IOException(e));
+		}
+	}
+	
+	protected synchronized void fail(IOException e) {
+		failure = e;
+		notifyAll();
+	}
+	
+	/*
+	 * Encodes version as delta from the previous one, or as checkpoint: the first version written
+	 * by this journal, every checkpointInterval versions, and when most of the list is replaced.
+	 */
+	protected boolean encode(Pending<E> p, CodecOutput out) throws IOException {
+		ImmutableList<? extends E> list = p.list;
+		ImmutableList<? extends E> prev = previous;
+		previous = list;
+		int size = list.size();
+		if (prev != null && p.version - previousCheckpoint < checkpointInterval) {
+			int prevSize = prev.size();
+			int max = Math.min(size, prevSize);
+			int prefix = 0;
+			while (prefix < max && same(list.get(prefix), prev.get(prefix))) {
+				prefix++;
+			}
+			int suffix = 0;
+			while (suffix < max - prefix && same(list.get(size - 1 - suffix), prev.get(prevSize - 1 - suffix))) {
+				suffix++;
+			}
+			if ((size - prefix - suffix) * 2L <= size) {
+				out.writeVarLong(prefix);
+				out.writeVarLong(suffix);
+				listCodec.write(out, list.subList(prefix, size - suffix));
+				return false;
+			}
+		}
+		listCodec.write(out, list);
+		previousCheckpoint = p.version;
+		return true;
+	}
+	
+	protected static boolean same(Object a, Object b) {
+		return a == b || (a != null && a.equals(b));
+	}
+	
+	@Override
+	public synchronized void sync() throws IOException {
+		awaitDurable(lastVersion);
+	}
+	
+	protected void awaitDurable(long version) throws IOException {
+		while (durableVersion < version && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		if (durableVersion < version) {
+			throw new IOException("Journal write failed", failure);
+		}
+	}
+	
+	@Override
+	public synchronized long firstVersion() {
+		return firstVersion;
+	}
+	
+	@Override
+	public synchronized long lastVersion() {
+		return lastVersion;
+	}
+	
+	@Override
+	public synchronized long durableVersion() {
+		return durableVersion;
+	}
+	
+	@Override
+	public ImmutableList<E> read(long version) throws IOException {
+		long checkpointVersion;
+		long position;
+		long limit;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Journal is closed");
+			}
+			if (version < firstVersion || version > lastVersion) {
+				throw new IllegalArgumentException("version = " + version);
+			}
+			awaitDurable(version);
+			//the first record is checkpoint, so there is checkpoint at or before any version
+			int lo = 0;
+			int hi = checkpoints - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (checkpointVersions[mid] <= version) {
+					lo = mid;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			checkpointVersion = checkpointVersions[lo];
+			position = checkpointPositions[lo];
+			limit = end;
+		}
+		CodecInput in = new CodecInput(new RangeChannel(position, limit));
+		Object[] data = null;
+		int size = 0;
+		for (long v = checkpointVersion; v <= version; v++) {
+			int type = in.readByte();
+			long recordVersion = in.readLong();
+			in.readInt();
+			in.readInt();
+			if (recordVersion != v) {
+				throw new IOException("Malformed journal: version " + recordVersion + " instead of " + v);
+			}
+			if (type == CHECKPOINT) {
+				ImmutableList<E> list = listCodec.read(in);
+				if (v == version) {
+					return list;
+				}
+				data = list.toArray();
+				size = data.length;
+				continue;
+			}
+			long prefixLength = in.readVarLong();
+			long suffixLength = in.readVarLong();
+			if (data == null || prefixLength < 0 || suffixLength < 0
+					|| prefixLength > size || prefixLength + suffixLength > size) {
+				throw new IOException("Malformed journal: delta of version " + v);
+			}
+			int prefix = (int) prefixLength;
+			int suffix = (int) suffixLength;
+			ImmutableList<E> middle = listCodec.read(in);
+			int m = middle.size();
+			int newSize = prefix + m + suffix;
+			if (newSize < 0) {
+				throw new IOException("List is too large");
+			}
+			if (newSize > data.length) {
+				data = Arrays.copyOf(data, Math.max(newSize, data.length + (data.length >>> 1)));
+			}
+			//delta is applied in place: suffix is moved, middle is replaced
+			System.arraycopy(data, size - suffix, data, prefix + m, suffix);
+			for (int i = 0; i < m; i++) {
+				data[prefix + i] = middle.get(i);
+			}
+			if (newSize < size) {
+				Arrays.fill(data, newSize, size, null);
+			}
+			size = newSize;
+		}
+		return InternalUtils.newImmutableList((data.length == size) ? data : Arrays.copyOf(data, size), size);
+	}
+	
+	/*
+	 * Range of file read by positional reads, so that reads do not interfere with writer.
+	 */
+	protected class RangeChannel implements ReadableByteChannel {
+		protected long position;
+		protected final long limit;
+		
+		protected RangeChannel(long position, long limit) {
+			this.position = position;
+			this.limit = limit;
+		}
+		
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (position >= limit) {
+				return -1;
+			}
+			int n = (int) Math.min(dst.remaining(), limit - position);
+			ByteBuffer range = dst.duplicate();
+			range.limit(range.position() + n);
+			int res = channel.read(range, position);
+			if (res > 0) {
+				dst.position(dst.position() + res);
+				position += res;
+			}
+			return res;
+		}
+		
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+		
+		@Override
+		public void close() {
+			//file is closed by journal
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			channel.close();
+		}
+		IOException e;
+		synchronized (this) {
+			e = failure;
+		}
+		if (e != null) {
+			throw new IOException("Journal write failed", e);
+		}
+	}
+}
@@ -0,0 +1,430 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import mutabor.FilteredList;
+import mutabor.ImmutableList;
+import mutabor.MutableList;
+
+/**
+ * View of immutable list through bitmap of selected indexes.
+ * Bitmap is accompanied by rank directory: number of selected elements before every block of words,
+ * so position in view is mapped to position in source by binary search plus scan of one block.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class FilteredListImpl<E> implements FilteredList<E>, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = -6416377385620311587L;
+	
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicReferenceFieldUpdater<FilteredListImpl, DerivedValues> DERIVED =
+			AtomicReferenceFieldUpdater.newUpdater(FilteredListImpl.class, DerivedValues.class, "derived");
+	
+	protected static final int BLOCK_SHIFT = 3;
+	protected static final int BLOCK_WORDS = 1 << BLOCK_SHIFT;
+	
+	//smaller lists are filtered sequentially even if parallel filtering is requested
+	protected static final int PARALLEL_THRESHOLD = 1 << 16;
+	
+	protected final ImmutableList<E> source;
+	protected final long[] words;
+	//ranks[b] is number of selected elements in blocks before b, ranks[blocks] is size
+	protected final int[] ranks;
+	protected final int size;
+	//values of derive(), created on the first call
+	protected transient volatile DerivedValues derived;
+	
+	protected FilteredListImpl(ImmutableList<E> source, long[] words) {
+		this.source = source;
+		this.words = words;
+		int blocks = (words.length + BLOCK_WORDS - 1) >>> BLOCK_SHIFT;
+		this.ranks = new int[blocks + 1];
+		int rank = 0;
+		for (int w = 0; w < words.length; w++) {
+			if ((w & (BLOCK_WORDS - 1)) == 0) {
+				ranks[w >>> BLOCK_SHIFT] = rank;
+			}
+			rank += Long.bitCount(words[w]);
+		}
+		ranks[blocks] = rank;
+		this.size = rank;
+	}
+	
+	public static <E> FilteredList<E> filter(ImmutableList<E> source, Predicate<? super E> predicate, boolean parallel) {
+		if (predicate == null) {
+			throw new NullPointerException("predicate");
+		}
+		int sourceSize = source.size();
+		long[] words = new long[(sourceSize + 63) >>> 6];
+		IntStream range = IntStream.range(0, words.length);
+		if (parallel && sourceSize >= PARALLEL_THRESHOLD) {
+			range = range.parallel();
+		}
+		//every word is written by one task only
+		range.forEach(w -> {
+			long word = 0;
+			for (int i = w << 6, end = Math.min(i + 64, sourceSize), bit = 0; i < end; i++, bit++) {
+				if (predicate.test(source.get(i))) {
+					word |= 1L << bit;
+				}
+			}
+			words[w] = word;
+		});
+		return new FilteredListImpl<>(source, words);
+	}
+	
+	@Override
+	public ImmutableList<E> getSource() {
+		return source;
+	}
+	
+	@Override
+	public int sourceIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return select(index);
+	}
+	
+	/*
+	 * Position of the k-th set bit.
+	 */
+	protected int select(int k) {
+		int lo = 0;
+		int hi = ranks.length - 2;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (ranks[mid] <= k) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		k -= ranks[lo];
+		int w = lo << BLOCK_SHIFT;
+		int count;
+		while (k >= (count = Long.bitCount(words[w]))) {
+			k -= count;
+			w++;
+		}
+		long word = words[w];
+		for (; k > 0; k--) {
+			word &= word - 1;
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
+	protected FilteredListImpl<E> checkSource(FilteredList<E> other) {
+		if (!(other instanceof FilteredListImpl<?>) || other.getSource() != source) {
+			throw new IllegalArgumentException("Filtered views of different lists");
+		}
+		return (FilteredListImpl<E>) other;
+	}
+	
+	@Override
+	public FilteredList<E> and(FilteredList<E> other) {
+		long[] otherWords = checkSource(other).words;
+		long[] res = new long[words.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = words[i] & otherWords[i];
+		}
+		return new FilteredListImpl<>(source, res);
+	}
+	
+	@Override
+	public FilteredList<E> or(FilteredList<E> other) {
+		long[] otherWords = checkSource(other).words;
+		long[] res = new long[words.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = words[i] | otherWords[i];
+		}
+		return new FilteredListImpl<>(source, res);
+	}
+	
+	@Override
+	public FilteredList<E> andNot(FilteredList<E> other) {
+		long[] otherWords = checkSource(other).words;
+		long[] res = new long[words.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = words[i] & ~otherWords[i];
+		}
+		return new FilteredListImpl<>(source, res);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public E get(int index) {
+		return source.get(sourceIndex(index));
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public boolean containsAll(Iterable<?> c) {
+		for (Object e : c) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		int index = 0;
+		for (int w = 0; w < words.length; w++) {
+			for (long word = words[w]; word != 0; word &= word - 1) {
+				E e = source.get((w << 6) + Long.numberOfTrailingZeros(word));
+				if (o == null ? e == null : o.equals(e)) {
+					return index;
+				}
+				index++;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		int index = size;
+		for (int w = words.length - 1; w >= 0; w--) {
+			for (long word = words[w]; word != 0; word &= ~Long.highestOneBit(word)) {
+				index--;
+				E e = source.get((w << 6) + 63 - Long.numberOfLeadingZeros(word));
+				if (o == null ? e == null : o.equals(e)) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		for (int w = 0; w < words.length; w++) {
+			for (long word = words[w]; word != 0; word &= word - 1) {
+				action.accept(source.get((w << 6) + Long.numberOfTrailingZeros(word)));
+			}
+		}
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	/*
+	 * Iterator over set bits: current word is consumed bit by bit.
+	 */
+	protected class Itr implements Iterator<E> {
+		protected int w = -1;
+		protected long word;
+		
+		@Override
+		public boolean hasNext() {
+			while (word == 0) {
+				if (w + 1 >= words.length) {
+					return false;
+				}
+				word = words[++w];
+			}
+			return true;
+		}
+		
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int bit = Long.numberOfTrailingZeros(word);
+			word &= word - 1;
+			return source.get((w << 6) + bit);
+		}
+	}
+	
+	@Override
+	public ListIterator<E> listIterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return new ListItr(index);
+	}
+	
+	protected class ListItr implements ListIterator<E> {
+		protected int cursor;
+		
+		protected ListItr(int index) {
+			this.cursor = index;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		@Override
+		public E next() {
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			return get(cursor++);
+		}
+		
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+		
+		@Override
+		public E previous() {
+			if (cursor <= 0) {
+				throw new NoSuchElementException();
+			}
+			return get(--cursor);
+		}
+		
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+		
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void set(E e) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void add(E e) {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Override
+	public Object[] toArray() {
+		Object[] res = new Object[size];
+		int i = 0;
+		for (E e : this) {
+			res[i++] = e;
+		}
+		return res;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		if (a.length < size) {
+			return (T[]) Arrays.copyOf(toArray(), size, a.getClass());
+		}
+		int i = 0;
+		for (E e : this) {
+			a[i++] = (T) e;
+		}
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+	
+	/*
+	 * Range of view is selected by clearing bits outside of it, source is shared.
+	 */
+	@Override
+	public ImmutableList<E> subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		if (fromIndex == toIndex) {
+			return InternalUtils.emptyImmutableList();
+		}
+		int from = select(fromIndex);
+		int to = select(toIndex - 1) + 1;
+		long[] res = Arrays.copyOf(words, words.length);
+		Arrays.fill(res, 0, from >>> 6, 0L);
+		res[from >>> 6] &= -1L << from;
+		if ((to & 63) != 0) {
+			res[to >>> 6] &= (1L << to) - 1;
+		}
+		Arrays.fill(res, (to + 63) >>> 6, res.length, 0L);
+		return new FilteredListImpl<>(source, res);
+	}
+	
+	@Override
+	public ImmutableList<E> compact() {
+		return InternalUtils.newImmutableList(toArray(), size);
+	}
+	
+	@Override
+	public <R> R derive(Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+		return DerivedValues.derive(DERIVED, this, key, function);
+	}
+	
+	@Override
+	public MutableList<E> mutable() {
+		return compact().mutable();
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends E> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public List<E> toList() {
+		return new ListRepresentation<>(this);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return InternalUtils.equalLists(this, o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return InternalUtils.hashCodeIterable(this);
+	}
+	
+	/*
+	 * Source list is not serialized, only selected elements.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+}
@@ -0,0 +1,253 @@
+package mutabor.internal;
+
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SHIFT;
+import static mutabor.internal.ChunkedImmutableListImpl.CHUNK_SIZE;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import mutabor.Footprint;
+
+/**
+ * Estimation of memory held by lists: list objects are walked down to their arrays,
+ * every array remembers which objects use it and which range of it is used.
+ * Object sizes are estimated from reference size, assuming 8-byte alignment.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class FootprintAnalyzer {
+	
+	protected static final int REFERENCE_SIZE = Stats.REFERENCE_SIZE;
+	protected static final int OBJECT_HEADER = (REFERENCE_SIZE == 4) ? 12 : 16;
+	protected static final int ARRAY_HEADER = (REFERENCE_SIZE == 4) ? 16 : 24;
+	
+	//roots published to MBean
+	protected static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+	protected static final Set<Reference<Object>> tracked =
+			Collections.newSetFromMap(new ConcurrentHashMap<Reference<Object>, Boolean>());
+	//attributes of one MBean scrape are served from one walk of tracked roots
+	protected static final long CACHE_NANOS = TimeUnit.SECONDS.toNanos(1);
+	protected static volatile CachedFootprint cached;
+	
+	protected final Map<Object, Boolean> objects = new IdentityHashMap<>();
+	protected final Map<Object, ArrayUse> arrays = new IdentityHashMap<>();
+	protected long shallowBytes;
+	
+	protected static class ArrayUse {
+		protected final long bytes;
+		protected final int length;
+		protected final Map<Object, Boolean> owners = new IdentityHashMap<>();
+		protected int from = Integer.MAX_VALUE;
+		protected int to;
+		protected boolean owned;
+		
+		protected ArrayUse(long bytes, int length) {
+			this.bytes = bytes;
+			this.length = length;
+		}
+	}
+	
+	protected static final class CachedFootprint {
+		protected final Footprint footprint;
+		protected final long time;
+		
+		protected CachedFootprint(Footprint footprint, long time) {
+			this.footprint = footprint;
+			this.time = time;
+		}
+	}
+	
+	public static Footprint analyze(Iterable<?> roots) {
+		FootprintAnalyzer analyzer = new FootprintAnalyzer();
+		for (Object root : roots) {
+			analyzer.visit(root);
+		}
+		return analyzer.result();
+	}
+	
+	public static void track(Object root) {
+		expunge();
+		tracked.add(new WeakReference<Object>(root, queue));
+		cached = null;
+	}
+	
+	/*
+	 * Footprint of tracked roots computed at most once per second, so that its parts add up.
+	 */
+	public static Footprint trackedCached() {
+		CachedFootprint c = cached;
+		long now = System.nanoTime();
+		if (c == null || now - c.time >= CACHE_NANOS) {
+			c = new CachedFootprint(tracked(), now);
+			cached = c;
+		}
+		return c.footprint;
+	}
+	
+	/*
+	 * Footprint of live tracked roots and of sublist views tracked by retention policy.
+	 */
+	public static Footprint tracked() {
+		expunge();
+		List<Object> roots = new ArrayList<>();
+		for (Reference<Object> ref : tracked) {
+			Object root = ref.get();
+			if (root != null) {
+				roots.add(root);
+			}
+		}
+		roots.addAll(RetainedViews.views());
+		return analyze(roots);
+	}
+	
+	protected static void expunge() {
+		Reference<?> ref;
+		while ((ref = queue.poll()) != null) {
+			tracked.remove(ref);
+		}
+	}
+	
+	protected static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+	
+	protected static long objectBytes(int references, int ints) {
+		return align(OBJECT_HEADER + (long) references * REFERENCE_SIZE + ints * 4L);
+	}
+	
+	protected static long arrayBytes(int length, int elementSize) {
+		return align(ARRAY_HEADER + (long) length * elementSize);
+	}
+	
+	/*
+	 * Counts shallow size of object once, returns false if object was already counted.
+	 */
+	protected boolean shallow(Object o, long bytes) {
+		if (objects.put(o, Boolean.TRUE) != null) {
+			return false;
+		}
+		shallowBytes += bytes;
+		return true;
+	}
+	
+	/*
+	 * Records use of range of reference array by owner.
+	 * Owned arrays are not views: their unused tail is slack, not pinned memory.
+	 */
+	protected void use(Object[] array, int from, int to, Object owner, boolean owned) {
+		ArrayUse use = arrays.get(array);
+		if (use == null) {
+			use = new ArrayUse(arrayBytes(array.length, REFERENCE_SIZE), array.length);
+			arrays.put(array, use);
+		}
+		use.owners.put(owner, Boolean.TRUE);
+		if (from < to) {
+			use.from = Math.min(use.from, from);
+			use.to = Math.max(use.to, to);
+		}
+		use.owned |= owned;
+	}
+	
+	/*
+	 * Records fully used array of another type: spines of chunks, bitmaps.
+	 */
+	protected void use(Object array, int length, int elementSize, Object owner) {
+		ArrayUse use = arrays.get(array);
+		if (use == null) {
+			use = new ArrayUse(arrayBytes(length, elementSize), length);
+			arrays.put(array, use);
+		}
+		use.owners.put(owner, Boolean.TRUE);
+		use.from = 0;
+		use.to = length;
+		use.owned = true;
+	}
+	
+	protected void useChunks(Object[][] chunks, int offset, int size, Object owner) {
+		use(chunks, chunks.length, REFERENCE_SIZE, owner);
+		for (int c = offset >>> CHUNK_SHIFT, last = (offset + size - 1) >>> CHUNK_SHIFT; size > 0 && c <= last; c++) {
+			int start = c << CHUNK_SHIFT;
+			use(chunks[c], Math.max(offset - start, 0), Math.min(offset + size - start, CHUNK_SIZE), owner, true);
+		}
+	}
+	
+	protected void visit(Object o) {
+		if (o instanceof ImmutableListImpl<?>) {
+			ImmutableListImpl<?> list = (ImmutableListImpl<?>) o;
+			shallow(list, objectBytes(2, 1));
+			use(list.data, 0, list.size, list, true);
+		} else if (o instanceof ImmutableListImpl<?>.SubList) {
+			ImmutableListImpl<?>.SubList view = (ImmutableListImpl<?>.SubList) o;
+			shallow(view, objectBytes(2, 3));
+			//parent object is kept reachable by view, but its array is not used by view beyond range
+			ImmutableListImpl<?> parent = view.parent();
+			shallow(parent, objectBytes(2, 1));
+			use(parent.data, view.fromIndex, view.toIndex, view, false);
+		} else if (o instanceof ChunkedImmutableListImpl<?>) {
+			ChunkedImmutableListImpl<?> list = (ChunkedImmutableListImpl<?>) o;
+			shallow(list, objectBytes(2, 2));
+			useChunks(list.chunks, list.offset, list.size, list);
+		} else if (o instanceof SmallImmutableListImpl<?>) {
+			SmallImmutableListImpl<?> list = (SmallImmutableListImpl<?>) o;
+			shallow(list, objectBytes(list.size(), 0));
+		} else if (o instanceof FilteredListImpl<?>) {
+			FilteredListImpl<?> list = (FilteredListImpl<?>) o;
+			if (shallow(list, objectBytes(4, 1))) {
+				use(list.words, list.words.length, 8, list);
+				use(list.ranks, list.ranks.length, 4, list);
+				visit(list.source);
+			}
+		} else if (o instanceof MutableListImpl<?>) {
+			MutableListImpl<?> list = (MutableListImpl<?>) o;
+			if (shallow(list, objectBytes(4, 0))) {
+				visit(list.immutable);
+				visit(list.list);
+			}
+		} else if (o instanceof SnapshotArrayList<?>) {
+			SnapshotArrayList<?> list = (SnapshotArrayList<?>) o;
+			shallow(list, objectBytes(3, 4));
+			use(list.data, 0, list.size, list, true);
+			if (list.retired != null) {
+				use(list.retired, 0, 0, list, true);
+			}
+		} else if (o instanceof ChunkedArrayList<?>) {
+			ChunkedArrayList<?> list = (ChunkedArrayList<?>) o;
+			shallow(list, objectBytes(3, 2));
+			useChunks(list.chunks, 0, list.size, list);
+			use(list.shared, list.shared.length, 1, list);
+		} else if (o instanceof ListRepresentation<?>) {
+			ListRepresentation<?> list = (ListRepresentation<?>) o;
+			if (shallow(list, objectBytes(1, 0))) {
+				visit(list.list);
+			}
+		}
+	}
+	
+	protected Footprint result() {
+		long retainedBytes = shallowBytes;
+		long slackBytes = 0;
+		long pinnedBytes = 0;
+		long sharedBytes = 0;
+		for (ArrayUse use : arrays.values()) {
+			retainedBytes += use.bytes;
+			if (use.owners.size() > 1) {
+				sharedBytes += use.bytes;
+			}
+			long unused = (long) (use.length - Math.max(use.to - Math.min(use.from, use.to), 0)) * REFERENCE_SIZE;
+			if (use.owned) {
+				slackBytes += unused;
+			} else {
+				pinnedBytes += unused;
+			}
+		}
+		return new Footprint(shallowBytes, retainedBytes, slackBytes, pinnedBytes, sharedBytes, arrays.size());
+	}
+}
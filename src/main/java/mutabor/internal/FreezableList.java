@@ -0,0 +1,39 @@
+package mutabor.internal;
+
+import java.util.List;
+
+import mutabor.ImmutableList;
+
+/**
+ * Storage of mutable list which can share its data with immutable snapshots.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public interface FreezableList<E> extends List<E> {
+	
+	/**
+	 * Creates immutable snapshot sharing data with this list.
+	 * Data visible to snapshot is copied before it is changed by this list.
+	 * @return immutable snapshot
+	 */
+	ImmutableList<E> freeze();
+	
+	/**
+	 * Called when owner releases snapshot.
+	 * In single-owner mode of {@link ArrayPool} snapshots are not used after release,
+	 * so data shared with them may be taken back.
+	 */
+	void release();
+	
+	/**
+	 * Creates immutable list taking over data of this list, this list becomes empty.
+	 * @return immutable list
+	 */
+	ImmutableList<E> detach();
+	
+	/**
+	 * Sets tracker notified when shared data is copied.
+	 * @param tracker tracker or {@code null}
+	 */
+	void setTracker(PingPong.Tracker tracker);
+}
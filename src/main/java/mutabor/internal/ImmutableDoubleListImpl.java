@@ -0,0 +1,159 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.DoubleStream;
+
+import mutabor.ImmutableDoubleList;
+
+/**
+ * Immutable list of {@code double} values, range of array.
+ * Operations are delegated to {@link PrimitiveKernels}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableDoubleListImpl implements ImmutableDoubleList, Serializable {
+	
+	private static final long serialVersionUID = -5460380471259031687L;
+	
+	protected static final ImmutableDoubleListImpl EMPTY = new ImmutableDoubleListImpl(new double[0], 0, 0);
+	
+	protected final double[] data;
+	protected final int offset;
+	protected final int size;
+	
+	protected ImmutableDoubleListImpl(double[] data, int offset, int size) {
+		this.data = data;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	public static ImmutableDoubleList copyOf(double[] original) {
+		if (original == null || original.length == 0) {
+			return EMPTY;
+		}
+		return new ImmutableDoubleListImpl(original.clone(), 0, original.length);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return data[offset + index];
+	}
+	
+	@Override
+	public int indexOf(double value) {
+		int res = PrimitiveKernels.indexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public int lastIndexOf(double value) {
+		int res = PrimitiveKernels.lastIndexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public boolean contains(double value) {
+		return PrimitiveKernels.indexOf(data, offset, offset + size, value) >= 0;
+	}
+	
+	@Override
+	public int count(double value) {
+		return PrimitiveKernels.count(data, offset, offset + size, value);
+	}
+	
+	@Override
+	public double sum() {
+		return PrimitiveKernels.sum(data, offset, offset + size);
+	}
+	
+	@Override
+	public double min() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.min(data, offset, offset + size);
+	}
+	
+	@Override
+	public double max() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.max(data, offset, offset + size);
+	}
+	
+	@Override
+	public double[] toArray() {
+		return Arrays.copyOfRange(data, offset, offset + size);
+	}
+	
+	@Override
+	public ImmutableDoubleList subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		if (fromIndex == toIndex) {
+			return EMPTY;
+		}
+		return new ImmutableDoubleListImpl(data, offset + fromIndex, toIndex - fromIndex);
+	}
+	
+	@Override
+	public ImmutableDoubleList compact() {
+		if (offset == 0 && data.length == size) {
+			return this;
+		}
+		return new ImmutableDoubleListImpl(toArray(), 0, size);
+	}
+	
+	@Override
+	public DoubleStream stream() {
+		return Arrays.stream(data, offset, offset + size);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableDoubleList) || ((ImmutableDoubleList) o).size() != size) {
+			return false;
+		}
+		if (o instanceof ImmutableDoubleListImpl) {
+			ImmutableDoubleListImpl other = (ImmutableDoubleListImpl) o;
+			return PrimitiveKernels.equals(data, offset, other.data, other.offset, size);
+		}
+		ImmutableDoubleList other = (ImmutableDoubleList) o;
+		for (int i = 0; i < size; i++) {
+			if (Double.doubleToLongBits(data[offset + i]) != Double.doubleToLongBits(other.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return PrimitiveKernels.hashCode(data, offset, offset + size);
+	}
+	
+	/*
+	 * Array beyond range is not part of the list and is not serialized.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+}
@@ -0,0 +1,159 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import mutabor.ImmutableIntList;
+
+/**
+ * Immutable list of {@code int} values, range of array.
+ * Operations are delegated to {@link PrimitiveKernels}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableIntListImpl implements ImmutableIntList, Serializable {
+	
+	private static final long serialVersionUID = -2848219087442591318L;
+	
+	protected static final ImmutableIntListImpl EMPTY = new ImmutableIntListImpl(new int[0], 0, 0);
+	
+	protected final int[] data;
+	protected final int offset;
+	protected final int size;
+	
+	protected ImmutableIntListImpl(int[] data, int offset, int size) {
+		this.data = data;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	public static ImmutableIntList copyOf(int[] original) {
+		if (original == null || original.length == 0) {
+			return EMPTY;
+		}
+		return new ImmutableIntListImpl(original.clone(), 0, original.length);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return data[offset + index];
+	}
+	
+	@Override
+	public int indexOf(int value) {
+		int res = PrimitiveKernels.indexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public int lastIndexOf(int value) {
+		int res = PrimitiveKernels.lastIndexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public boolean contains(int value) {
+		return PrimitiveKernels.indexOf(data, offset, offset + size, value) >= 0;
+	}
+	
+	@Override
+	public int count(int value) {
+		return PrimitiveKernels.count(data, offset, offset + size, value);
+	}
+	
+	@Override
+	public long sum() {
+		return PrimitiveKernels.sum(data, offset, offset + size);
+	}
+	
+	@Override
+	public int min() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.min(data, offset, offset + size);
+	}
+	
+	@Override
+	public int max() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.max(data, offset, offset + size);
+	}
+	
+	@Override
+	public int[] toArray() {
+		return Arrays.copyOfRange(data, offset, offset + size);
+	}
+	
+	@Override
+	public ImmutableIntList subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		if (fromIndex == toIndex) {
+			return EMPTY;
+		}
+		return new ImmutableIntListImpl(data, offset + fromIndex, toIndex - fromIndex);
+	}
+	
+	@Override
+	public ImmutableIntList compact() {
+		if (offset == 0 && data.length == size) {
+			return this;
+		}
+		return new ImmutableIntListImpl(toArray(), 0, size);
+	}
+	
+	@Override
+	public IntStream stream() {
+		return Arrays.stream(data, offset, offset + size);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableIntList) || ((ImmutableIntList) o).size() != size) {
+			return false;
+		}
+		if (o instanceof ImmutableIntListImpl) {
+			ImmutableIntListImpl other = (ImmutableIntListImpl) o;
+			return PrimitiveKernels.equals(data, offset, other.data, other.offset, size);
+		}
+		ImmutableIntList other = (ImmutableIntList) o;
+		for (int i = 0; i < size; i++) {
+			if (data[offset + i] != other.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return PrimitiveKernels.hashCode(data, offset, offset + size);
+	}
+	
+	/*
+	 * Array beyond range is not part of the list and is not serialized.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+}
@@ -0,0 +1,141 @@
+package mutabor.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import mutabor.ImmutableList;
+
+/**
+ * Collector into {@link ImmutableList}.
+ * Accumulators keep elements in chunks, merging of accumulators appends chunk lists
+ * without copying elements. Chunks are flattened once into exact-size array
+ * which is handed to immutable list as is.
+ * Collector itself is stateless and may be reused: size hint is shared by accumulators of one collect,
+ * the first accumulator to receive an element allocates the hinted capacity.
+ * @param <E> the type of elements
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableListCollector<E> implements Collector<E, ImmutableListCollector.Accumulator, ImmutableList<E>> {
+	
+	protected static final int MIN_CHUNK = 16;
+	protected static final int MAX_CHUNK = 1 << 16;
+	
+	protected final int sizeHint;
+	
+	public ImmutableListCollector(int sizeHint) {
+		if (sizeHint < 0) {
+			throw new IllegalArgumentException("sizeHint = " + sizeHint);
+		}
+		this.sizeHint = sizeHint;
+	}
+	
+	/**
+	 * Chunks of accumulated elements.
+	 */
+	public static class Accumulator {
+		protected final ArrayList<Object[]> chunks = new ArrayList<>();
+		protected final ArrayList<Integer> counts = new ArrayList<>();
+		protected Object[] current;
+		protected int count;
+		protected int size;
+		protected final int sizeHint;
+		//shared by accumulators of one collect, set when the hint is taken
+		protected final AtomicBoolean hintTaken;
+		
+		protected Accumulator(int sizeHint, AtomicBoolean hintTaken) {
+			this.sizeHint = sizeHint;
+			this.hintTaken = hintTaken;
+		}
+		
+		protected void add(Object e) {
+			if (current == null || count == current.length) {
+				flush();
+				current = new Object[nextCapacity()];
+			}
+			current[count++] = e;
+			size++;
+		}
+		
+		/*
+		 * Capacity of the next chunk: the hint for the first chunk of only one accumulator,
+		 * otherwise growing with accumulated size.
+		 */
+		protected int nextCapacity() {
+			if (size == 0 && sizeHint > 0 && !hintTaken.get() && hintTaken.compareAndSet(false, true)) {
+				return sizeHint;
+			}
+			return (size < MIN_CHUNK) ? MIN_CHUNK : Math.min(size, MAX_CHUNK);
+		}
+		
+		/*
+		 * Moves current chunk to the list of filled chunks.
+		 */
+		protected void flush() {
+			if (count > 0) {
+				chunks.add(current);
+				counts.add(Integer.valueOf(count));
+			}
+			current = null;
+			count = 0;
+		}
+		
+		protected Accumulator merge(Accumulator other) {
+			flush();
+			other.flush();
+			chunks.addAll(other.chunks);
+			counts.addAll(other.counts);
+			size += other.size;
+			return this;
+		}
+		
+		protected <E> ImmutableList<E> finish() {
+			flush();
+			if (chunks.size() == 1 && chunks.get(0).length == size) {
+				//exactly sized chunk becomes data of immutable list
+				return InternalUtils.newImmutableList(chunks.get(0), size);
+			}
+			Object[] data = new Object[size];
+			int pos = 0;
+			for (int i = 0; i < chunks.size(); i++) {
+				int n = counts.get(i).intValue();
+				System.arraycopy(chunks.get(i), 0, data, pos, n);
+				pos += n;
+			}
+			return InternalUtils.newImmutableList(data, size);
+		}
+	}
+	
+	@Override
+	public Supplier<Accumulator> supplier() {
+		//stream takes supplier once per collect, so the flag is per collect
+		AtomicBoolean hintTaken = new AtomicBoolean();
+		return () -> new Accumulator(sizeHint, hintTaken);
+	}
+	
+	@Override
+	public BiConsumer<Accumulator, E> accumulator() {
+		return Accumulator::add;
+	}
+	
+	@Override
+	public BinaryOperator<Accumulator> combiner() {
+		return Accumulator::merge;
+	}
+	
+	@Override
+	public Function<Accumulator, ImmutableList<E>> finisher() {
+		return Accumulator::finish;
+	}
+	
+	@Override
+	public Set<Characteristics> characteristics() {
+		return Collections.emptySet();
+	}
+}
@@ -1,5 +1,6 @@
 package mutabor.internal;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -7,9 +8,13 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
 import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
 
+import mutabor.Equivalence;
 import mutabor.ImmutableList;
 import mutabor.MutableList;
+import mutabor.SubListRetentionPolicy;
 
 /**
  * Immutable list implementation.
@@ -21,8 +26,17 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 	
 	private static final long serialVersionUID = 39387334160562704L;
 	
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicReferenceFieldUpdater<ImmutableListImpl, DerivedValues> DERIVED =
+			AtomicReferenceFieldUpdater.newUpdater(ImmutableListImpl.class, DerivedValues.class, "derived");
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicReferenceFieldUpdater<ImmutableListImpl.SubList, DerivedValues> SUBLIST_DERIVED =
+			AtomicReferenceFieldUpdater.newUpdater(ImmutableListImpl.SubList.class, DerivedValues.class, "derived");
+	
 	protected final Object[] data;
 	protected final int size;
+	//values of derive(), created on the first call
+	protected transient volatile DerivedValues derived;
 	
 	protected ImmutableListImpl(Object[] data) {
 		this(data, data.length);
@@ -60,43 +74,37 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 	
 	@Override
 	public int indexOf(Object o) {
-		if (o == null) {
-			for (int i = 0; i < size; i++) {
-				if (data[i] == null) {
-					return i;
-				}
-			}
-		} else {
-			for (int i = 0; i < size; i++) {
-				if (o.equals(data[i])) {
-					return i;
-				}
-			}
-		}
-		return -1;
+		return Equivalences.indexOf(data, 0, size, o);
 	}
 	
 	@Override
 	public int lastIndexOf(Object o) {
-		if (o == null) {
-			for (int i = size - 1; i >= 0; i--) {
-				if (data[i] == null) {
-					return i;
-				}
-			}
-		} else {
-			for (int i = size - 1; i >= 0; i--) {
-				if (o.equals(data[i])) {
-					return i;
-				}
-			}
-		}
-		return -1;
+		return Equivalences.lastIndexOf(data, 0, size, o);
+	}
+	
+	@Override
+	public int indexOfIdentical(Object o) {
+		return Equivalences.indexOfIdentical(data, 0, size, o);
+	}
+	
+	@Override
+	public int lastIndexOfIdentical(Object o) {
+		return Equivalences.lastIndexOfIdentical(data, 0, size, o);
+	}
+	
+	@Override
+	public int indexOf(E o, Equivalence<? super E> eq) {
+		return Equivalences.indexOf(data, 0, size, o, eq);
+	}
+	
+	@Override
+	public int lastIndexOf(E o, Equivalence<? super E> eq) {
+		return Equivalences.lastIndexOf(data, 0, size, o, eq);
 	}
 	
 	@Override
 	public Object[] toArray() {
-		return Arrays.copyOf(data, size);
+		return Arrays.copyOf(data, size, Object[].class);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -115,6 +123,10 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 	@SuppressWarnings("unchecked")
 	@Override
 	public E get(int index) {
+		if (index >= size) {
+			//array may be longer than list, its tail may be used by other lists
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
 		return (E) data[index];
 	}
 	
@@ -213,7 +225,34 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 	@Override
 	public ImmutableList<E> subList(int fromIndex, int toIndex) {
 		subListRangeCheck(fromIndex, toIndex, size);
-		return new SubList(fromIndex, toIndex);
+		return newSubList(fromIndex, toIndex);
+	}
+	
+	/*
+	 * Creates view of data range or standalone copy of it, depending on retention policy.
+	 */
+	protected ImmutableList<E> newSubList(int fromIndex, int toIndex) {
+		int subSize = toIndex - fromIndex;
+		if (subSize == 0) {
+			return InternalUtils.emptyImmutableList();
+		}
+		SubListRetentionPolicy policy = InternalUtils.subListRetentionPolicy;
+		if (policy.shouldCopy(subSize, data.length)) {
+			return InternalUtils.copyRangeToImmutableList(data, fromIndex, toIndex);
+		}
+		SubList res = new SubList(fromIndex, toIndex);
+		if (policy.shouldTrack(subSize, data.length)) {
+			RetainedViews.track(res);
+		}
+		return res;
+	}
+	
+	@Override
+	public ImmutableList<E> compact() {
+		if (data.length == size) {
+			return this;
+		}
+		return InternalUtils.copyRangeToImmutableList(data, 0, size);
 	}
 	
 	protected static void subListRangeCheck(int fromIndex, int toIndex, int size) {
@@ -232,6 +271,8 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 		protected final int fromIndex;
 		protected final int toIndex;
 		protected final int subSize;
+		//values of derive(), created on the first call
+		protected volatile DerivedValues derived;
 		
 		protected SubList(int fromIndex, int toIndex) {
 			this.fromIndex = fromIndex;
@@ -266,43 +307,44 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 		
 		@Override
 		public int indexOf(Object o) {
-			if (o == null) {
-				for (int i = fromIndex; i < toIndex; i++) {
-					if (data[i] == null) {
-						return i;
-					}
-				}
-			} else {
-				for (int i = fromIndex; i < toIndex; i++) {
-					if (o.equals(data[i])) {
-						return i;
-					}
-				}
-			}
-			return -1;
+			return relative(Equivalences.indexOf(data, fromIndex, toIndex, o));
 		}
 		
 		@Override
 		public int lastIndexOf(Object o) {
-			if (o == null) {
-				for (int i = toIndex - 1; i >= fromIndex; i--) {
-					if (data[i] == null) {
-						return i;
-					}
-				}
-			} else {
-				for (int i = toIndex - 1; i >= fromIndex; i--) {
-					if (o.equals(data[i])) {
-						return i;
-					}
-				}
-			}
-			return -1;
+			return relative(Equivalences.lastIndexOf(data, fromIndex, toIndex, o));
+		}
+		
+		@Override
+		public int indexOfIdentical(Object o) {
+			return relative(Equivalences.indexOfIdentical(data, fromIndex, toIndex, o));
+		}
+		
+		@Override
+		public int lastIndexOfIdentical(Object o) {
+			return relative(Equivalences.lastIndexOfIdentical(data, fromIndex, toIndex, o));
+		}
+		
+		@Override
+		public int indexOf(E o, Equivalence<? super E> eq) {
+			return relative(Equivalences.indexOf(data, fromIndex, toIndex, o, eq));
+		}
+		
+		@Override
+		public int lastIndexOf(E o, Equivalence<? super E> eq) {
+			return relative(Equivalences.lastIndexOf(data, fromIndex, toIndex, o, eq));
+		}
+		
+		/*
+		 * Converts index in data array to index in this sublist.
+		 */
+		protected int relative(int index) {
+			return (index < 0) ? -1 : index - fromIndex;
 		}
 		
 		@Override
 		public Object[] toArray() {
-			return Arrays.copyOfRange(data, fromIndex, toIndex);
+			return Arrays.copyOfRange(data, fromIndex, toIndex, Object[].class);
 		}
 		
 		@SuppressWarnings("unchecked")
@@ -345,7 +387,20 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 		@Override
 		public ImmutableList<E> subList(int fromIndexSub, int toIndexSub) {
 			subListRangeCheck(fromIndexSub, toIndexSub, subSize);
-			return new SubList(fromIndex + fromIndexSub, fromIndex + toIndexSub);
+			return newSubList(fromIndex + fromIndexSub, fromIndex + toIndexSub);
+		}
+		
+		@Override
+		public ImmutableList<E> compact() {
+			return InternalUtils.copyRangeToImmutableList(data, fromIndex, toIndex);
+		}
+		
+		protected int retainedLength() {
+			return data.length;
+		}
+		
+		protected ImmutableListImpl<E> parent() {
+			return ImmutableListImpl.this;
 		}
 		
 		@Override
@@ -368,6 +423,11 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 			return new ListRepresentation<>(this);
 		}
 		
+		@Override
+		public <R> R derive(Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+			return DerivedValues.derive(SUBLIST_DERIVED, this, key, function);
+		}
+		
 		@Override
 		public MutableList<E> mutable() {
 			return new RandomAccessMutableListImpl<>(this);
@@ -394,6 +454,21 @@ public class ImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Clo
 		return new ListRepresentation<>(this);
 	}
 	
+	/*
+	 * Tail of array beyond size is not part of the list and is not serialized.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		if (data.length != size) {
+			return new ImmutableListImpl<>(Arrays.copyOf(data, size));
+		}
+		return this;
+	}
+	
+	@Override
+	public <R> R derive(Object key, Function<? super ImmutableList<E>, ? extends R> function) {
+		return DerivedValues.derive(DERIVED, this, key, function);
+	}
+	
 	@Override
 	public MutableList<E> mutable() { 
 		return new RandomAccessMutableListImpl<>(this);
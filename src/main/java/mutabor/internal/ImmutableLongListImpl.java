@@ -0,0 +1,159 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+
+import mutabor.ImmutableLongList;
+
+/**
+ * Immutable list of {@code long} values, range of array.
+ * Operations are delegated to {@link PrimitiveKernels}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableLongListImpl implements ImmutableLongList, Serializable {
+	
+	private static final long serialVersionUID = 7301145916402117643L;
+	
+	protected static final ImmutableLongListImpl EMPTY = new ImmutableLongListImpl(new long[0], 0, 0);
+	
+	protected final long[] data;
+	protected final int offset;
+	protected final int size;
+	
+	protected ImmutableLongListImpl(long[] data, int offset, int size) {
+		this.data = data;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	public static ImmutableLongList copyOf(long[] original) {
+		if (original == null || original.length == 0) {
+			return EMPTY;
+		}
+		return new ImmutableLongListImpl(original.clone(), 0, original.length);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public long get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return data[offset + index];
+	}
+	
+	@Override
+	public int indexOf(long value) {
+		int res = PrimitiveKernels.indexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public int lastIndexOf(long value) {
+		int res = PrimitiveKernels.lastIndexOf(data, offset, offset + size, value);
+		return (res < 0) ? -1 : res - offset;
+	}
+	
+	@Override
+	public boolean contains(long value) {
+		return PrimitiveKernels.indexOf(data, offset, offset + size, value) >= 0;
+	}
+	
+	@Override
+	public int count(long value) {
+		return PrimitiveKernels.count(data, offset, offset + size, value);
+	}
+	
+	@Override
+	public long sum() {
+		return PrimitiveKernels.sum(data, offset, offset + size);
+	}
+	
+	@Override
+	public long min() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.min(data, offset, offset + size);
+	}
+	
+	@Override
+	public long max() {
+		if (size <= 0) {
+			throw new NoSuchElementException();
+		}
+		return PrimitiveKernels.max(data, offset, offset + size);
+	}
+	
+	@Override
+	public long[] toArray() {
+		return Arrays.copyOfRange(data, offset, offset + size);
+	}
+	
+	@Override
+	public ImmutableLongList subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		if (fromIndex == toIndex) {
+			return EMPTY;
+		}
+		return new ImmutableLongListImpl(data, offset + fromIndex, toIndex - fromIndex);
+	}
+	
+	@Override
+	public ImmutableLongList compact() {
+		if (offset == 0 && data.length == size) {
+			return this;
+		}
+		return new ImmutableLongListImpl(toArray(), 0, size);
+	}
+	
+	@Override
+	public LongStream stream() {
+		return Arrays.stream(data, offset, offset + size);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableLongList) || ((ImmutableLongList) o).size() != size) {
+			return false;
+		}
+		if (o instanceof ImmutableLongListImpl) {
+			ImmutableLongListImpl other = (ImmutableLongListImpl) o;
+			return PrimitiveKernels.equals(data, offset, other.data, other.offset, size);
+		}
+		ImmutableLongList other = (ImmutableLongList) o;
+		for (int i = 0; i < size; i++) {
+			if (data[offset + i] != other.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return PrimitiveKernels.hashCode(data, offset, offset + size);
+	}
+	
+	/*
+	 * Array beyond range is not part of the list and is not serialized.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+}
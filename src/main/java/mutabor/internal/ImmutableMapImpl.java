@@ -0,0 +1,205 @@
+package mutabor.internal;
+
+import static mutabor.internal.ImmutableSetImpl.MIN_CAPACITY;
+import static mutabor.internal.ImmutableSetImpl.NULL;
+import static mutabor.internal.ImmutableSetImpl.REMOVED;
+import static mutabor.internal.ImmutableSetImpl.find;
+import static mutabor.internal.ImmutableSetImpl.mask;
+import static mutabor.internal.ImmutableSetImpl.unmask;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import mutabor.ImmutableMap;
+import mutabor.ImmutableSet;
+import mutabor.MutableMap;
+
+/**
+ * Immutable map implementation: keys are stored in open-addressing table of {@link ImmutableSetImpl} layout,
+ * values are stored in parallel array at the same slots.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableMapImpl<K, V> implements ImmutableMap<K, V>, Serializable {
+	
+	private static final long serialVersionUID = 4706214409553001652L;
+	
+	protected static final ImmutableMapImpl<Object, Object> EMPTY =
+			new ImmutableMapImpl<>(new Object[MIN_CAPACITY], new Object[MIN_CAPACITY], 0, 0);
+	
+	protected final Object[] keys;
+	protected final Object[] values;
+	protected final int size;
+	//number of occupied slots, kept for mutable copies
+	protected final int used;
+	
+	protected ImmutableMapImpl(Object[] keys, Object[] values, int size, int used) {
+		this.keys = keys;
+		this.values = values;
+		this.size = size;
+		this.used = used;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <K, V> ImmutableMap<K, V> empty() {
+		return (ImmutableMap<K, V>) EMPTY;
+	}
+	
+	public static <K, V> ImmutableMap<K, V> copyOf(Map<? extends K, ? extends V> original) {
+		if (original == null || original.isEmpty()) {
+			return empty();
+		}
+		if (original instanceof MutableMapImpl<?, ?>) {
+			@SuppressWarnings("unchecked")
+			MutableMapImpl<K, V> map = (MutableMapImpl<K, V>) original;
+			return map.snapshot();
+		}
+		MutableMapImpl<K, V> map = new MutableMapImpl<>(original.size());
+		map.putAll(original);
+		return map.snapshot();
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return find(keys, mask(key)) >= 0;
+	}
+	
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && keys[i] != REMOVED && Objects.equals(value, values[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		int i = find(keys, mask(key));
+		return (i < 0) ? null : (V) values[i];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		int i = find(keys, mask(key));
+		return (i < 0) ? defaultValue : (V) values[i];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		for (int i = 0; i < keys.length; i++) {
+			Object k = keys[i];
+			if (k != null && k != REMOVED) {
+				action.accept(unmask(k), (V) values[i]);
+			}
+		}
+	}
+	
+	@Override
+	public ImmutableSet<K> keys() {
+		return new ImmutableSetImpl<>(keys, size, used);
+	}
+	
+	@Override
+	public Map<K, V> toMap() {
+		return new MapRepresentation<>(this);
+	}
+	
+	@Override
+	public MutableMap<K, V> mutable() {
+		return new MutableMapImpl<>(this);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableMap<?, ?>)) {
+			return false;
+		}
+		ImmutableMap<?, ?> other = (ImmutableMap<?, ?>) o;
+		if (other.size() != size) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			Object k = keys[i];
+			if (k != null && k != REMOVED) {
+				Object key = unmask(k);
+				Object value = values[i];
+				if (!Objects.equals(value, other.get(key)) || (value == null && !other.containsKey(key))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		int res = 0;
+		for (int i = 0; i < keys.length; i++) {
+			Object k = keys[i];
+			if (k != null && k != REMOVED) {
+				res += ((k == NULL) ? 0 : k.hashCode()) ^ Objects.hashCode(values[i]);
+			}
+		}
+		return res;
+	}
+	
+	/*
+	 * Markers are not preserved by serialization, so only mappings are written.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		Object[] k = new Object[size];
+		Object[] v = new Object[size];
+		int n = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && keys[i] != REMOVED) {
+				k[n] = unmask(keys[i]);
+				v[n] = values[i];
+				n++;
+			}
+		}
+		return new SerializedMap(k, v);
+	}
+	
+	protected static class SerializedMap implements Serializable {
+		
+		private static final long serialVersionUID = -1339650213493522788L;
+		
+		protected final Object[] keys;
+		protected final Object[] values;
+		
+		protected SerializedMap(Object[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+		
+		protected Object readResolve() throws ObjectStreamException {
+			MutableMapImpl<Object, Object> map = new MutableMapImpl<>(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				map.put(keys[i], values[i]);
+			}
+			return map.snapshot();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.lang.reflect.Array;
+
+import mutabor.ImmutableRecordList;
+import mutabor.MutableRecordList;
+import mutabor.RecordSchema;
+
+/**
+ * Immutable columnar record list.
+ * Column arrays may be shared with {@link MutableRecordListImpl}, only first {@code size} slots are used.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableRecordListImpl extends AbstractRecordList implements ImmutableRecordList {
+	
+	private static final long serialVersionUID = 7286019554382271140L;
+	
+	//final fields publish snapshot safely to other threads, together with columns of superclass
+	protected final int size;
+	
+	protected ImmutableRecordListImpl(RecordSchema schema, Object[] columns, int size) {
+		super(schema, columns);
+		this.size = size;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public MutableRecordList mutable() {
+		return new MutableRecordListImpl(this);
+	}
+	
+	/*
+	 * Slots of columns beyond size are not part of the list and are not serialized.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		if (columns.length == 0 || Array.getLength(columns[0]) == size) {
+			return this;
+		}
+		Object[] trimmed = new Object[columns.length];
+		for (int c = 0; c < columns.length; c++) {
+			trimmed[c] = copyColumn(columns[c], size);
+		}
+		return new ImmutableRecordListImpl(schema, trimmed, size);
+	}
+}
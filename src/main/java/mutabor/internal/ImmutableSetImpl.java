@@ -0,0 +1,237 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import mutabor.ImmutableSet;
+import mutabor.MutableSet;
+
+/**
+ * Immutable set implementation: open-addressing table with linear probing in single array.
+ * Elements are stored in slots as is, {@code null} element is stored as {@link #NULL} marker,
+ * slots of removed elements (only in tables taken from {@link MutableSetImpl}) hold {@link #REMOVED} marker.
+ * @param <E> the type of elements in this set
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableSetImpl<E> implements ImmutableSet<E>, Serializable {
+	
+	private static final long serialVersionUID = 2316894716016521873L;
+	
+	protected static final Object NULL = new Object();
+	protected static final Object REMOVED = new Object();
+	
+	protected static final int MIN_CAPACITY = 8;
+	protected static final int MAX_CAPACITY = 1 << 30;
+	
+	protected static final ImmutableSetImpl<Object> EMPTY = new ImmutableSetImpl<>(new Object[MIN_CAPACITY], 0, 0);
+	
+	protected final Object[] table;
+	protected final int size;
+	//number of occupied slots, kept for mutable copies
+	protected final int used;
+	
+	protected ImmutableSetImpl(Object[] table, int size, int used) {
+		this.table = table;
+		this.size = size;
+		this.used = used;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <E> ImmutableSet<E> empty() {
+		return (ImmutableSet<E>) EMPTY;
+	}
+	
+	public static <E> ImmutableSet<E> copyOf(Collection<? extends E> original) {
+		if (original == null || original.isEmpty()) {
+			return empty();
+		}
+		if (original instanceof MutableSetImpl<?>) {
+			@SuppressWarnings("unchecked")
+			MutableSetImpl<E> set = (MutableSetImpl<E>) original;
+			return set.snapshot();
+		}
+		MutableSetImpl<E> set = new MutableSetImpl<>(original.size());
+		set.addAll(original);
+		return set.snapshot();
+	}
+	
+	/*
+	 * Length of table for the specified number of elements, table is at most half full.
+	 */
+	protected static int capacityFor(int size) {
+		if (size >= MAX_CAPACITY >>> 1) {
+			return MAX_CAPACITY;
+		}
+		return Math.max(Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1, MIN_CAPACITY);
+	}
+	
+	protected static Object mask(Object o) {
+		return (o == null) ? NULL : o;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static <E> E unmask(Object o) {
+		return (o == NULL) ? null : (E) o;
+	}
+	
+	protected static int slot(Object key, int mask) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	/*
+	 * Returns slot of masked key or -1.
+	 */
+	protected static int find(Object[] table, Object key) {
+		int mask = table.length - 1;
+		Object e;
+		for (int i = slot(key, mask); (e = table[i]) != null; i = (i + 1) & mask) {
+			if (e == key || (e != REMOVED && e != NULL && key.equals(e))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return find(table, mask(o)) >= 0;
+	}
+	
+	@Override
+	public boolean containsAll(Iterable<?> c) {
+		for (Object e : c) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	protected class Itr implements Iterator<E> {
+		protected int cursor = advance(0);
+		
+		protected int advance(int from) {
+			while (from < table.length && (table[from] == null || table[from] == REMOVED)) {
+				from++;
+			}
+			return from;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < table.length;
+		}
+		
+		@Override
+		public E next() {
+			if (cursor >= table.length) {
+				throw new NoSuchElementException();
+			}
+			E res = unmask(table[cursor]);
+			cursor = advance(cursor + 1);
+			return res;
+		}
+	}
+	
+	@Override
+	public Object[] toArray() {
+		Object[] res = new Object[size];
+		int i = 0;
+		for (Object e : table) {
+			if (e != null && e != REMOVED) {
+				res[i++] = unmask(e);
+			}
+		}
+		return res;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		Object[] res = toArray();
+		if (a.length < size) {
+			return (T[]) Arrays.copyOf(res, size, a.getClass());
+		}
+		System.arraycopy(res, 0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		return new SetRepresentation<>(this);
+	}
+	
+	@Override
+	public MutableSet<E> mutable() {
+		return new MutableSetImpl<>(this);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableSet<?>)) {
+			return false;
+		}
+		ImmutableSet<?> other = (ImmutableSet<?>) o;
+		return other.size() == size && containsAll(other);
+	}
+	
+	@Override
+	public int hashCode() {
+		int res = 0;
+		for (Object e : table) {
+			if (e != null && e != REMOVED && e != NULL) {
+				res += e.hashCode();
+			}
+		}
+		return res;
+	}
+	
+	/*
+	 * Markers are not preserved by serialization, so only elements are written.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return new SerializedSet(toArray());
+	}
+	
+	protected static class SerializedSet implements Serializable {
+		
+		private static final long serialVersionUID = -7903537017290893306L;
+		
+		protected final Object[] elements;
+		
+		protected SerializedSet(Object[] elements) {
+			this.elements = elements;
+		}
+		
+		protected Object readResolve() throws ObjectStreamException {
+			return copyOf(Arrays.asList(elements));
+		}
+	}
+}
@@ -0,0 +1,767 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import mutabor.ImmutableList;
+import mutabor.ImmutableStringList;
+import mutabor.MutableList;
+
+/**
+ * Immutable list of strings packed into single byte buffer.
+ * Element {@code i} takes bytes from {@code offsets[i]} to {@code offsets[i + 1]},
+ * {@code null} elements take no bytes and are marked in bitmap.
+ * Buffer is Latin-1 when all characters fit into byte, UTF-8 otherwise.
+ * Unpaired surrogates are encoded as 3-byte sequences, so every {@link String} is stored without loss.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class ImmutableStringListImpl implements ImmutableStringList, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = 5532074415046907147L;
+	
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicReferenceFieldUpdater<ImmutableStringListImpl, DerivedValues> DERIVED =
+			AtomicReferenceFieldUpdater.newUpdater(ImmutableStringListImpl.class, DerivedValues.class, "derived");
+	
+	protected static final ImmutableStringListImpl EMPTY =
+			new ImmutableStringListImpl(new byte[0], new int[1], null, true, 0, 0, null, 0);
+	
+	protected final byte[] bytes;
+	protected final int[] offsets;
+	//bit per element, null if there are no null elements
+	protected final long[] nulls;
+	protected final boolean latin1;
+	protected final int offset;
+	protected final int size;
+	//decoded elements of cached list, cache[i - cacheOffset] is element at absolute index i
+	protected final transient String[] cache;
+	protected final transient int cacheOffset;
+	//values of derive(), created on the first call
+	protected transient volatile DerivedValues derived;
+	
+	protected ImmutableStringListImpl(byte[] bytes, int[] offsets, long[] nulls, boolean latin1,
+			int offset, int size, String[] cache, int cacheOffset) {
+		this.bytes = bytes;
+		this.offsets = offsets;
+		this.nulls = nulls;
+		this.latin1 = latin1;
+		this.offset = offset;
+		this.size = size;
+		this.cache = cache;
+		this.cacheOffset = cacheOffset;
+	}
+	
+	public static ImmutableStringList.Builder builder() {
+		return new BuilderImpl();
+	}
+	
+	/*
+	 * Packs strings, lists which are already packed are returned as is.
+	 */
+	public static ImmutableStringList copyOf(Iterable<String> original) {
+		if (original == null) {
+			return EMPTY;
+		}
+		if (original instanceof ImmutableStringList) {
+			return (ImmutableStringList) original;
+		}
+		return new BuilderImpl().addAll(original).build();
+	}
+	
+	protected static boolean isLatin1(CharSequence s) {
+		for (int i = 0, n = s.length(); i < n; i++) {
+			if (s.charAt(i) > 0xff) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	protected static int utf8Length(CharSequence s) {
+		int res = 0;
+		for (int i = 0, n = s.length(); i < n; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				res++;
+			} else if (c < 0x800) {
+				res += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+				res += 4;
+				i++;
+			} else {
+				res += 3;
+			}
+		}
+		return res;
+	}
+	
+	/*
+	 * Writes UTF-8 bytes of string, returns position after them.
+	 */
+	protected static int encodeUtf8(CharSequence s, byte[] dst, int pos) {
+		for (int i = 0, n = s.length(); i < n; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				dst[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				dst[pos++] = (byte) (0xc0 | (c >>> 6));
+				dst[pos++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				dst[pos++] = (byte) (0xf0 | (cp >>> 18));
+				dst[pos++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+				dst[pos++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+				dst[pos++] = (byte) (0x80 | (cp & 0x3f));
+			} else {
+				dst[pos++] = (byte) (0xe0 | (c >>> 12));
+				dst[pos++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+				dst[pos++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		return pos;
+	}
+	
+	/*
+	 * Number of bytes of UTF-8 sequence by its first byte.
+	 */
+	protected static int sequenceLength(int b) {
+		if (b >= 0) {
+			return 1;
+		}
+		if ((b & 0xe0) == 0xc0) {
+			return 2;
+		}
+		if ((b & 0xf0) == 0xe0) {
+			return 3;
+		}
+		return 4;
+	}
+	
+	/*
+	 * Code point of UTF-8 sequence of known length.
+	 */
+	protected static int codePoint(byte[] b, int pos, int length) {
+		switch (length) {
+		case 1:
+			return b[pos];
+		case 2:
+			return ((b[pos] & 0x1f) << 6) | (b[pos + 1] & 0x3f);
+		case 3:
+			return ((b[pos] & 0x0f) << 12) | ((b[pos + 1] & 0x3f) << 6) | (b[pos + 2] & 0x3f);
+		default:
+			return ((b[pos] & 0x07) << 18) | ((b[pos + 1] & 0x3f) << 12) | ((b[pos + 2] & 0x3f) << 6) | (b[pos + 3] & 0x3f);
+		}
+	}
+	
+	protected static String decodeUtf8(byte[] b, int from, int to) {
+		char[] chars = new char[to - from];
+		int n = 0;
+		for (int pos = from; pos < to; ) {
+			int length = sequenceLength(b[pos]);
+			int cp = codePoint(b, pos, length);
+			pos += length;
+			if (length == 4) {
+				chars[n++] = Character.highSurrogate(cp);
+				chars[n++] = Character.lowSurrogate(cp);
+			} else {
+				chars[n++] = (char) cp;
+			}
+		}
+		return new String(chars, 0, n);
+	}
+	
+	/*
+	 * Compares Latin-1 bytes with characters: whole range or its prefix.
+	 */
+	protected static boolean matchLatin1(byte[] b, int from, int to, CharSequence s, boolean prefix) {
+		int n = s.length();
+		if (prefix ? n > to - from : n != to - from) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if ((b[from + i] & 0xff) != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * Compares UTF-8 bytes with characters unit by unit: whole range or its prefix.
+	 * Prefix may end between surrogates of one code point, as in String.startsWith.
+	 */
+	protected static boolean matchUtf8(byte[] b, int from, int to, CharSequence s, boolean prefix) {
+		int n = s.length();
+		int i = 0;
+		for (int pos = from; pos < to; ) {
+			if (i >= n) {
+				return prefix;
+			}
+			int length = sequenceLength(b[pos]);
+			int cp = codePoint(b, pos, length);
+			pos += length;
+			if (length == 4) {
+				if (s.charAt(i++) != Character.highSurrogate(cp)) {
+					return false;
+				}
+				if (i >= n) {
+					return prefix;
+				}
+				if (s.charAt(i++) != Character.lowSurrogate(cp)) {
+					return false;
+				}
+			} else if (s.charAt(i++) != cp) {
+				return false;
+			}
+		}
+		return i == n;
+	}
+	
+	protected boolean isNull(int i) {
+		return nulls != null && (nulls[i >>> 6] & (1L << i)) != 0;
+	}
+	
+	protected void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	/*
+	 * Decodes element at absolute index.
+	 */
+	protected String decode(int i) {
+		if (isNull(i)) {
+			return null;
+		}
+		int from = offsets[i];
+		int to = offsets[i + 1];
+		if (latin1) {
+			return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+		}
+		return decodeUtf8(bytes, from, to);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public String get(int index) {
+		checkIndex(index);
+		int i = offset + index;
+		if (cache == null) {
+			return decode(i);
+		}
+		//racy caching is safe: strings are immutable and decoded strings are equal
+		String res = cache[i - cacheOffset];
+		if (res == null) {
+			res = decode(i);
+			cache[i - cacheOffset] = res;
+		}
+		return res;
+	}
+	
+	@Override
+	public boolean equalsAt(int index, CharSequence s) {
+		checkIndex(index);
+		int i = offset + index;
+		if (isNull(i)) {
+			return s == null;
+		}
+		if (s == null) {
+			return false;
+		}
+		return latin1
+				? matchLatin1(bytes, offsets[i], offsets[i + 1], s, false)
+				: matchUtf8(bytes, offsets[i], offsets[i + 1], s, false);
+	}
+	
+	@Override
+	public boolean startsWith(int index, CharSequence prefix) {
+		checkIndex(index);
+		int i = offset + index;
+		if (isNull(i)) {
+			return false;
+		}
+		return latin1
+				? matchLatin1(bytes, offsets[i], offsets[i + 1], prefix, true)
+				: matchUtf8(bytes, offsets[i], offsets[i + 1], prefix, true);
+	}
+	
+	@Override
+	public int hashCodeAt(int index) {
+		checkIndex(index);
+		return hashCodeOf(offset + index);
+	}
+	
+	protected int hashCodeOf(int i) {
+		int h = 0;
+		int to = offsets[i + 1];
+		if (latin1) {
+			for (int pos = offsets[i]; pos < to; pos++) {
+				h = 31 * h + (bytes[pos] & 0xff);
+			}
+			return h;
+		}
+		for (int pos = offsets[i]; pos < to; ) {
+			int length = sequenceLength(bytes[pos]);
+			int cp = codePoint(bytes, pos, length);
+			pos += length;
+			if (length == 4) {
+				h = 31 * h + Character.highSurrogate(cp);
+				h = 31 * h + Character.lowSurrogate(cp);
+			} else {
+				h = 31 * h + cp;
+			}
+		}
+		return h;
+	}
+	
+	@Override
+	public int byteSize() {
+		return offsets[offset + size] - offsets[offset];
+	}
+	
+	/*
+	 * Encodes searched string once in buffer encoding, then compares byte ranges.
+	 * Returns null if string can not be present in buffer.
+	 */
+	protected byte[] encodeKey(String s) {
+		if (latin1) {
+			return isLatin1(s) ? s.getBytes(StandardCharsets.ISO_8859_1) : null;
+		}
+		byte[] res = new byte[utf8Length(s)];
+		encodeUtf8(s, res, 0);
+		return res;
+	}
+	
+	protected boolean matches(int i, byte[] key) {
+		int from = offsets[i];
+		if (offsets[i + 1] - from != key.length || isNull(i)) {
+			return false;
+		}
+		for (int j = 0; j < key.length; j++) {
+			if (bytes[from + j] != key[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		if (o == null) {
+			for (int i = offset; i < offset + size; i++) {
+				if (isNull(i)) {
+					return i - offset;
+				}
+			}
+			return -1;
+		}
+		if (!(o instanceof String)) {
+			return -1;
+		}
+		byte[] key = encodeKey((String) o);
+		if (key != null) {
+			for (int i = offset; i < offset + size; i++) {
+				if (matches(i, key)) {
+					return i - offset;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		if (o == null) {
+			for (int i = offset + size - 1; i >= offset; i--) {
+				if (isNull(i)) {
+					return i - offset;
+				}
+			}
+			return -1;
+		}
+		if (!(o instanceof String)) {
+			return -1;
+		}
+		byte[] key = encodeKey((String) o);
+		if (key != null) {
+			for (int i = offset + size - 1; i >= offset; i--) {
+				if (matches(i, key)) {
+					return i - offset;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public boolean containsAll(Iterable<?> c) {
+		for (Object e : c) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public void forEach(Consumer<? super String> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(get(i));
+		}
+	}
+	
+	@Override
+	public Iterator<String> iterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<String> listIterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<String> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return new ListItr(index);
+	}
+	
+	protected class ListItr implements ListIterator<String> {
+		protected int cursor;
+		
+		protected ListItr(int index) {
+			this.cursor = index;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		@Override
+		public String next() {
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			return get(cursor++);
+		}
+		
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+		
+		@Override
+		public String previous() {
+			if (cursor <= 0) {
+				throw new NoSuchElementException();
+			}
+			return get(--cursor);
+		}
+		
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+		
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void set(String e) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void add(String e) {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Override
+	public Object[] toArray() {
+		Object[] res = new Object[size];
+		for (int i = 0; i < size; i++) {
+			res[i] = get(i);
+		}
+		return res;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		if (a.length < size) {
+			return (T[]) Arrays.copyOf(toArray(), size, a.getClass());
+		}
+		for (int i = 0; i < size; i++) {
+			a[i] = (T) get(i);
+		}
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+	
+	@Override
+	public ImmutableStringList subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size);
+		if (fromIndex == toIndex) {
+			return EMPTY;
+		}
+		return new ImmutableStringListImpl(bytes, offsets, nulls, latin1,
+				offset + fromIndex, toIndex - fromIndex, cache, cacheOffset);
+	}
+	
+	@Override
+	public ImmutableStringList cached() {
+		if (cache != null || size == 0) {
+			return this;
+		}
+		return new ImmutableStringListImpl(bytes, offsets, nulls, latin1, offset, size, new String[size], offset);
+	}
+	
+	@Override
+	public ImmutableStringList compact() {
+		int from = offsets[offset];
+		int to = offsets[offset + size];
+		if (cache == null && offset == 0 && size == offsets.length - 1 && from == 0 && to == bytes.length) {
+			return this;
+		}
+		int[] resOffsets = new int[size + 1];
+		for (int i = 0; i <= size; i++) {
+			resOffsets[i] = offsets[offset + i] - from;
+		}
+		long[] resNulls = null;
+		for (int i = 0; i < size; i++) {
+			if (isNull(offset + i)) {
+				if (resNulls == null) {
+					resNulls = new long[(size + 63) >>> 6];
+				}
+				resNulls[i >>> 6] |= 1L << i;
+			}
+		}
+		return new ImmutableStringListImpl(Arrays.copyOfRange(bytes, from, to), resOffsets, resNulls, latin1,
+				0, size, null, 0);
+	}
+	
+	@Override
+	public <R> R derive(Object key, Function<? super ImmutableList<String>, ? extends R> function) {
+		return DerivedValues.derive(DERIVED, this, key, function);
+	}
+	
+	@Override
+	public MutableList<String> mutable() {
+		return new RandomAccessMutableListImpl<>(this);
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends String> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public List<String> toList() {
+		return new ListRepresentation<>(this);
+	}
+	
+	/*
+	 * Packed lists of the same encoding are compared by bytes.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof ImmutableStringListImpl) {
+			ImmutableStringListImpl other = (ImmutableStringListImpl) o;
+			if (other.latin1 == latin1) {
+				if (other.size != size) {
+					return false;
+				}
+				for (int i = 0; i < size; i++) {
+					if (!sameElements(offset + i, other, other.offset + i)) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+		return InternalUtils.equalLists(this, o);
+	}
+	
+	protected boolean sameElements(int i, ImmutableStringListImpl other, int j) {
+		int from = offsets[i];
+		int length = offsets[i + 1] - from;
+		int otherFrom = other.offsets[j];
+		if (other.offsets[j + 1] - otherFrom != length || isNull(i) != other.isNull(j)) {
+			return false;
+		}
+		for (int k = 0; k < length; k++) {
+			if (bytes[from + k] != other.bytes[otherFrom + k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		int res = 1;
+		for (int i = offset; i < offset + size; i++) {
+			res = 31 * res + hashCodeOf(i);
+		}
+		return res;
+	}
+	
+	/*
+	 * Views and caches are not serialized, only own range of buffer.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return compact();
+	}
+	
+	/**
+	 * Builder over growing buffer. Buffer starts as Latin-1 and is re-encoded into UTF-8
+	 * once, when the first string with other characters is added.
+	 */
+	protected static class BuilderImpl implements ImmutableStringList.Builder {
+		
+		protected byte[] bytes = new byte[64];
+		protected int length;
+		protected int[] offsets = new int[17];
+		protected int count;
+		protected long[] nulls;
+		protected boolean latin1 = true;
+		
+		@Override
+		public BuilderImpl add(String s) {
+			if (count + 2 > offsets.length) {
+				offsets = Arrays.copyOf(offsets, newCapacity(offsets.length, count + 2));
+			}
+			if (s == null) {
+				if (nulls == null) {
+					nulls = new long[(offsets.length + 63) >>> 6];
+				} else if ((count >>> 6) >= nulls.length) {
+					nulls = Arrays.copyOf(nulls, (offsets.length + 63) >>> 6);
+				}
+				nulls[count >>> 6] |= 1L << count;
+			} else {
+				if (latin1 && !isLatin1(s)) {
+					toUtf8();
+				}
+				int n = latin1 ? s.length() : utf8Length(s);
+				ensureCapacity(length + n);
+				if (latin1) {
+					for (int i = 0; i < n; i++) {
+						bytes[length + i] = (byte) s.charAt(i);
+					}
+					length += n;
+				} else {
+					length = encodeUtf8(s, bytes, length);
+				}
+			}
+			count++;
+			offsets[count] = length;
+			return this;
+		}
+		
+		@Override
+		public BuilderImpl addAll(Iterable<String> strings) {
+			for (String s : strings) {
+				add(s);
+			}
+			return this;
+		}
+		
+		protected static int newCapacity(int capacity, int minCapacity) {
+			if (minCapacity < 0) {
+				throw new OutOfMemoryError("String list buffer is too big");
+			}
+			int res = capacity + (capacity >>> 1);
+			return (res - minCapacity < 0) ? minCapacity : res;
+		}
+		
+		protected void ensureCapacity(int minCapacity) {
+			if (minCapacity - bytes.length > 0 || minCapacity < 0) {
+				bytes = Arrays.copyOf(bytes, newCapacity(bytes.length, minCapacity));
+			}
+		}
+		
+		/*
+		 * Re-encodes Latin-1 buffer: bytes above 0x7f take two bytes in UTF-8.
+		 */
+		protected void toUtf8() {
+			int resLength = length;
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] < 0) {
+					resLength++;
+				}
+			}
+			byte[] res = new byte[Math.max(resLength, bytes.length)];
+			int pos = 0;
+			for (int k = 0; k < count; k++) {
+				int from = offsets[k];
+				int to = offsets[k + 1];
+				offsets[k] = pos;
+				for (int i = from; i < to; i++) {
+					int b = bytes[i] & 0xff;
+					if (b < 0x80) {
+						res[pos++] = (byte) b;
+					} else {
+						res[pos++] = (byte) (0xc0 | (b >>> 6));
+						res[pos++] = (byte) (0x80 | (b & 0x3f));
+					}
+				}
+			}
+			offsets[count] = pos;
+			bytes = res;
+			length = pos;
+			latin1 = false;
+		}
+		
+		@Override
+		public int size() {
+			return count;
+		}
+		
+		@Override
+		public ImmutableStringList build() {
+			if (count == 0) {
+				return EMPTY;
+			}
+			return new ImmutableStringListImpl(Arrays.copyOf(bytes, length), Arrays.copyOf(offsets, count + 1),
+					(nulls == null) ? null : Arrays.copyOf(nulls, (count + 63) >>> 6), latin1, 0, count, null, 0);
+		}
+	}
+}
@@ -2,14 +2,18 @@ package mutabor.internal;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.RandomAccess;
 
+import mutabor.BigImmutableList;
+import mutabor.BigMutableList;
 import mutabor.ImmutableList;
 import mutabor.MutableList;
 import mutabor.ReadOnlyList;
+import mutabor.SubListRetentionPolicy;
 import mutabor.internal.ImmutableListImpl;
 
 /**
@@ -20,6 +24,8 @@ public class InternalUtils {
 	
 	protected static final Object[] EMPTY_ARRAY = new Object[0];
 	
+	protected static volatile SubListRetentionPolicy subListRetentionPolicy = SubListRetentionPolicy.KEEP_VIEWS;
+	
 	protected static final Field data_ArrayList;
 	protected static final Field size_ArrayList;
 	static {
@@ -55,27 +61,65 @@ public class InternalUtils {
 		data_Arrays$ArrayList = data;
 	}
 	
+	public static <E> ImmutableList<E> emptyImmutableList() {
+		return SmallImmutableListImpl.empty();
+	}
+	
+	/*
+	 * Wraps array into immutable list.
+	 * Small lists are represented by field-based implementations, array is not retained in this case.
+	 */
+	public static <E> ImmutableList<E> newImmutableList(Object[] data, int size) {
+		if (size <= SmallImmutableListImpl.MAX_SIZE) {
+			return SmallImmutableListImpl.create(data, 0, size);
+		}
+		return new ImmutableListImpl<>(data, size);
+	}
+	
+	public static <E> ImmutableList<E> copyRangeToImmutableList(Object[] data, int fromIndex, int toIndex) {
+		int size = toIndex - fromIndex;
+		Stats.copy(size);
+		if (size <= SmallImmutableListImpl.MAX_SIZE) {
+			return SmallImmutableListImpl.create(data, fromIndex, toIndex);
+		}
+		Object event = Events.beginCopy(size);
+		Object[] arr = Arrays.copyOfRange(data, fromIndex, toIndex);
+		Events.commitCopy(event, size, data.getClass(), "copyRange");
+		return new ImmutableListImpl<>(arr);
+	}
+	
 	public static <E> ImmutableList<E> copyToImmutableList(E[] original) {
 		if (original == null) {
-			return new ImmutableListImpl<>(EMPTY_ARRAY);
+			return emptyImmutableList();
 		}
 		
+		Stats.copy(original.length);
+		if (original.length <= SmallImmutableListImpl.MAX_SIZE) {
+			return SmallImmutableListImpl.create(original, 0, original.length);
+		}
+		
+		Object event = Events.beginCopy(original.length);
 		Object[] arr = new Object[original.length];
 		System.arraycopy(original, 0, arr, 0, original.length);
+		Events.commitCopy(event, original.length, original.getClass(), "copyToImmutableList");
 		return new ImmutableListImpl<>(arr);
 	}
 	
 	public static <E> ImmutableList<E> copyToImmutableList(Collection<? extends E> original) {
 		if (original == null) {
-			return new ImmutableListImpl<>(EMPTY_ARRAY);
+			return emptyImmutableList();
 		}
 		
-		return new ImmutableListImpl<>(original.toArray());
+		Object event = Events.beginCopy(original.size());
+		Object[] arr = original.toArray();
+		Stats.copy(arr.length);
+		Events.commitCopy(event, arr.length, original.getClass(), "copyToImmutableList");
+		return newImmutableList(arr, arr.length);
 	}
 	
 	public static <E> ImmutableList<E> convertToImmutableList(Collection<? extends E> original) {
 		if (original == null) {
-			return new ImmutableListImpl<>(EMPTY_ARRAY);
+			return emptyImmutableList();
 		}
 		
 		Collection<? extends E> c = original;
@@ -83,23 +127,46 @@ public class InternalUtils {
 			@SuppressWarnings("unchecked")
 			MutableListImpl<E> mutable = (MutableListImpl<E>) original;
 			if (mutable.immutable != null) {
-				mutable.list = null;
+				mutable.setList(null);
 				return mutable.immutable;
 			}
 			c = mutable.list;
 		}
 		
+		if (c instanceof FreezableList<?>) {
+			Stats.steal(true);
+			@SuppressWarnings("unchecked")
+			FreezableList<E> freezable = (FreezableList<E>) c;
+			return freezable.detach();
+		}
+		
 		int size = c.size();
 		Object[] arr = stealDataArray(c);
+		Stats.steal(arr != null);
 		if (arr == null) {
 			return null;
 		}
 		
-		return new ImmutableListImpl<>(arr, size);
+		return newImmutableList(arr, size);
 	}
 	
 	public static <E> MutableList<E> copyToMutableList(Collection<? extends E> original) {
-		return new RandomAccessMutableListImpl<>(new ArrayList<>(original));
+		return new RandomAccessMutableListImpl<>(new SnapshotArrayList<>(original));
+	}
+	
+	public static <E> MutableList<E> copyToChunkedMutableList(Collection<? extends E> original) {
+		if (original == null) {
+			return new RandomAccessMutableListImpl<>(new ChunkedArrayList<E>());
+		}
+		return new RandomAccessMutableListImpl<>(new ChunkedArrayList<>(original));
+	}
+	
+	public static <E> BigMutableList<E> copyToBigMutableList(Iterable<? extends E> original) {
+		BigMutableListImpl<E> res = new BigMutableListImpl<>();
+		if (original != null) {
+			res.addAll(original);
+		}
+		return res;
 	}
 	
 	public static <E> MutableList<E> convertToMutableList(List<E> original) {
@@ -110,6 +177,33 @@ public class InternalUtils {
 		return (original instanceof RandomAccess) ? new RandomAccessMutableListImpl<>(original) : new MutableListImpl<>(original);
 	}
 	
+	public static SubListRetentionPolicy getSubListRetentionPolicy() {
+		return subListRetentionPolicy;
+	}
+	
+	public static void setSubListRetentionPolicy(SubListRetentionPolicy policy) {
+		if (policy == null) {
+			throw new NullPointerException("policy");
+		}
+		subListRetentionPolicy = policy;
+	}
+	
+	/*
+	 * Returns number of array slots kept reachable by immutable list.
+	 */
+	public static int retainedLength(ImmutableList<?> list) {
+		if (list instanceof ImmutableListImpl<?>) {
+			return ((ImmutableListImpl<?>) list).data.length;
+		}
+		if (list instanceof ImmutableListImpl<?>.SubList) {
+			return ((ImmutableListImpl<?>.SubList) list).retainedLength();
+		}
+		if (list instanceof ChunkedImmutableListImpl<?>) {
+			return ((ChunkedImmutableListImpl<?>) list).retainedLength();
+		}
+		return list.size();
+	}
+	
 	/*
 	 * Calculates hash code of iterable.
 	 * Uses AbstractList algorithm.
@@ -158,6 +252,10 @@ public class InternalUtils {
 		if (list1 == list2) {
 			return true;
 		}
+		if (list2 instanceof BigImmutableList<?>) {
+			//symmetric to BigImmutableListImpl.equals()
+			return ((BigImmutableList<?>) list2).size() == list1.size() && equalIterables(list1, (Iterable<?>) list2);
+		}
 		if (list2 == null || !(list2 instanceof ReadOnlyList<?>)) {
 			return false;
 		}
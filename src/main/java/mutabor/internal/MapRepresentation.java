@@ -0,0 +1,89 @@
+package mutabor.internal;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import mutabor.ImmutableMap;
+
+/**
+ * {@link java.util.Map} representation of immutable map.
+ * Modification methods of {@link AbstractMap} throw {@link UnsupportedOperationException}.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class MapRepresentation<K, V> extends AbstractMap<K, V> implements Serializable {
+	
+	private static final long serialVersionUID = -2486170905374916528L;
+	
+	protected ImmutableMap<K, V> map;
+	
+	public MapRepresentation(ImmutableMap<K, V> map) {
+		this.map = map;
+	}
+	
+	@Override
+	public int size() {
+		return map.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+	
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+	
+	@Override
+	public V get(Object key) {
+		return map.get(key);
+	}
+	
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		return map.getOrDefault(key, defaultValue);
+	}
+	
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		map.forEach(action);
+	}
+	
+	@Override
+	public Set<K> keySet() {
+		return map.keys().toSet();
+	}
+	
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return map.size();
+			}
+			
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				List<Map.Entry<K, V>> entries = new ArrayList<>(map.size());
+				map.forEach((k, v) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(k, v)));
+				return Collections.unmodifiableList(entries).iterator();
+			}
+		};
+	}
+}
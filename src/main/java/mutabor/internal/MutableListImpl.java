@@ -1,11 +1,15 @@
 package mutabor.internal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import mutabor.ImmutableList;
 import mutabor.MutableList;
@@ -21,19 +25,42 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	protected ImmutableList<E> immutable;
 	protected List<E> list;
+	//list itself when it is SnapshotArrayList: reads go directly to its array, without interface calls
+	protected transient SnapshotArrayList<E> array;
+	protected transient PingPong.Tracker pingPong;
 	
 	protected MutableListImpl(ImmutableList<E> immutable) {
 		this.immutable = immutable;
-		this.list = null;
+		setList(null);
+		this.pingPong = PingPong.track();
 	}
 	
 	protected MutableListImpl(List<E> list) {
 		this.immutable = null;
+		setList(list);
+		this.pingPong = PingPong.track();
+		if (pingPong != null && list instanceof FreezableList<?>) {
+			((FreezableList<?>) list).setTracker(pingPong);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void setList(List<E> list) {
 		this.list = list;
+		this.array = (list instanceof SnapshotArrayList<?>) ? (SnapshotArrayList<E>) list : null;
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		setList(list);
 	}
 	
 	@Override
 	public int size() {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.size;
+		}
 		if (immutable != null) {
 			return immutable.size();
 		}
@@ -42,6 +69,10 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public boolean isEmpty() {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.size == 0;
+		}
 		if (immutable != null) {
 			return immutable.isEmpty();
 		}
@@ -50,6 +81,10 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public boolean contains(Object o) {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.contains(o);
+		}
 		if (immutable != null) {
 			return immutable.contains(o);
 		}
@@ -58,9 +93,23 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public Iterator<E> iterator() {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return new ArrayItr(a);
+		}
 		return listIterator();
 	}
 	
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			a.forEach(action);
+			return;
+		}
+		MutableList.super.forEach(action);
+	}
+	
 	@Override
 	public Object[] toArray() {
 		if (immutable != null) {
@@ -129,6 +178,10 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public E get(int index) {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.get(index);
+		}
 		if (immutable != null) {
 			return immutable.get(index);
 		}
@@ -155,6 +208,10 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public int indexOf(Object o) {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.indexOf(o);
+		}
 		if (immutable != null) {
 			return immutable.indexOf(o);
 		}
@@ -163,6 +220,10 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	
 	@Override
 	public int lastIndexOf(Object o) {
+		SnapshotArrayList<E> a = array;
+		if (a != null) {
+			return a.lastIndexOf(o);
+		}
 		if (immutable != null) {
 			return immutable.lastIndexOf(o);
 		}
@@ -214,35 +275,153 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 	@Override
 	public ImmutableList<E> snapshot() {
 		if (immutable != null) {
+			Stats.snapshot(true);
+			return immutable;
+		}
+		
+		Stats.snapshot(false);
+		int size = list.size();
+		Class<?> listClass = list.getClass();
+		Object event = Events.beginSnapshot(size);
+		if (list instanceof FreezableList<?>) {
+			//list keeps its data, only data changed later is copied
+			immutable = ((FreezableList<E>) list).freeze();
+			Events.commitSnapshot(event, size, listClass, true);
+			if (pingPong != null) {
+				pingPong.snapshot(0);
+			}
 			return immutable;
 		}
 		
 		immutable = InternalUtils.convertToImmutableList(list);
 		if (immutable != null) {
-			list = null;
+			setList(null);
+			Events.commitSnapshot(event, size, listClass, true);
+			if (pingPong != null) {
+				pingPong.snapshot(0);
+			}
 			return immutable;
 		}
 		
+		Stats.conversionFallback();
+		Object fallbackEvent = Events.beginConversionFallback(size);
 		immutable = InternalUtils.copyToImmutableList(list);
+		Events.commitConversionFallback(fallbackEvent, size, listClass);
+		Events.commitSnapshot(event, size, listClass, false);
+		if (pingPong != null) {
+			pingPong.snapshot(size);
+		}
 		return immutable; 
 	}
 	
 	@Override
 	public void releaseSnapshot() {
-		beforeChange();
+		//release is not a write, ping-pong detector does not count it
+		if (list == null) {
+			createList(false);
+		}
+		immutable = null;
+		if (list instanceof FreezableList<?>) {
+			((FreezableList<E>) list).release();
+		}
 	}
 	
 	protected void beforeChange() {
 		if (list == null) {
-			list = new ArrayList<>(immutable.toList());
+			createList(true);
+		} else if (immutable != null && pingPong != null) {
+			pingPong.write();
 		}
 		immutable = null;
 	}
 	
+	/*
+	 * Creates list from immutable one, write tells whether ping-pong detector counts it as write after snapshot.
+	 */
+	protected void createList(boolean write) {
+		if (immutable instanceof ChunkedImmutableListImpl<?>) {
+			//chunks are shared, each of them is copied on first write
+			ChunkedArrayList<E> chunkedList = new ChunkedArrayList<>((ChunkedImmutableListImpl<E>) immutable);
+			if (pingPong != null) {
+				chunkedList.setTracker(pingPong);
+				if (write) {
+					pingPong.write();
+				}
+			}
+			setList(chunkedList);
+		} else {
+			int size = immutable.size();
+			Stats.beforeChangeCopy(size);
+			Object event = Events.beginCopy(size);
+			Object[] arr = ArrayPool.acquire(size);
+			immutable.toArray(arr);
+			SnapshotArrayList<E> arrayList = new SnapshotArrayList<>(arr, size);
+			Events.commitCopy(event, size, immutable.getClass(), write ? "beforeChange" : "releaseSnapshot");
+			if (pingPong != null) {
+				arrayList.tracker = pingPong;
+				if (write) {
+					pingPong.copy(size);
+				}
+			}
+			setList(arrayList);
+		}
+	}
+	
+	/*
+	 * Iterator over array of SnapshotArrayList, changes go through this list.
+	 */
+	protected final class ArrayItr implements Iterator<E> {
+		protected final SnapshotArrayList<E> a;
+		protected int cursor;
+		protected int lastRet = -1;
+		protected int expectedModCount;
+		
+		protected ArrayItr(SnapshotArrayList<E> a) {
+			this.a = a;
+			this.expectedModCount = a.getModCount();
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < a.size;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (a.getModCount() != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			int i = cursor;
+			if (i >= a.size) {
+				throw new NoSuchElementException();
+			}
+			cursor = i + 1;
+			lastRet = i;
+			return (E) a.data[i];
+		}
+		
+		@Override
+		public void remove() {
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			if (a.getModCount() != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			MutableListImpl.this.remove(lastRet);
+			cursor = lastRet;
+			lastRet = -1;
+			expectedModCount = a.getModCount();
+		}
+	}
+	
 	protected class ListItr implements ListIterator<E> {
 		protected ListIterator<E> iter;
 		protected boolean iterIsImmutable;
 		protected int cursor;
+		//direction of the last move, replayed on new iterator so that remove() and set() apply to the same element
+		protected int lastMove;
 		
 		protected ListItr(int index) {
 			iterIsImmutable = (immutable != null);
@@ -259,6 +438,7 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 		public E next() {
 			E res = iter.next();
 			cursor++;
+			lastMove = 1;
 			return res;
 		}
 		
@@ -271,6 +451,7 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 		public E previous() {
 			E res = iter.previous();
 			cursor--;
+			lastMove = -1;
 			return res;
 		}
 		
@@ -307,6 +488,13 @@ public class MutableListImpl<E> implements MutableList<E>, Cloneable, Serializab
 			if (iterIsImmutable) {
 				iterIsImmutable = false;
 				iter = list.listIterator(cursor);
+				if (lastMove > 0) {
+					iter.previous();
+					iter.next();
+				} else if (lastMove < 0) {
+					iter.next();
+					iter.previous();
+				}
 			}
 		}
 	}
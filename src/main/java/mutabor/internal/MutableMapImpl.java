@@ -0,0 +1,386 @@
+package mutabor.internal;
+
+import static mutabor.internal.ImmutableSetImpl.MIN_CAPACITY;
+import static mutabor.internal.ImmutableSetImpl.REMOVED;
+import static mutabor.internal.ImmutableSetImpl.capacityFor;
+import static mutabor.internal.ImmutableSetImpl.find;
+import static mutabor.internal.ImmutableSetImpl.mask;
+import static mutabor.internal.ImmutableSetImpl.slot;
+import static mutabor.internal.ImmutableSetImpl.unmask;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import mutabor.ImmutableMap;
+import mutabor.MutableMap;
+
+/**
+ * Mutable map over key and value tables of {@link ImmutableMapImpl} layout.
+ * Snapshot takes both tables as is. Tables are copied independently before the next change:
+ * replacing value of existing key copies values only, keys stay shared with snapshots.
+ * Removed keys leave {@link ImmutableSetImpl#REMOVED} markers, as in {@link MutableSetImpl}.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class MutableMapImpl<K, V> extends AbstractMap<K, V> implements MutableMap<K, V>, Serializable {
+	
+	private static final long serialVersionUID = 8914577470271474215L;
+	
+	protected transient Object[] keys;
+	protected transient Object[] values;
+	protected transient int size;
+	//number of occupied slots: keys and removal markers
+	protected transient int used;
+	protected transient boolean sharedKeys;
+	protected transient boolean sharedValues;
+	protected transient ImmutableMapImpl<K, V> immutable;
+	protected transient int modCount;
+	
+	public MutableMapImpl() {
+		this.keys = new Object[MIN_CAPACITY];
+		this.values = new Object[MIN_CAPACITY];
+	}
+	
+	public MutableMapImpl(int expectedSize) {
+		int capacity = capacityFor(expectedSize);
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+	}
+	
+	/*
+	 * Shares tables of immutable map until the first change.
+	 */
+	protected MutableMapImpl(ImmutableMapImpl<K, V> immutable) {
+		this.keys = immutable.keys;
+		this.values = immutable.values;
+		this.size = immutable.size;
+		this.used = immutable.used;
+		this.sharedKeys = true;
+		this.sharedValues = true;
+		this.immutable = immutable;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return find(keys, mask(key)) >= 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		int i = find(keys, mask(key));
+		return (i < 0) ? null : (V) values[i];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		int i = find(keys, mask(key));
+		return (i < 0) ? defaultValue : (V) values[i];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value) {
+		Object k = mask(key);
+		int i = find(keys, k);
+		if (i >= 0) {
+			V old = (V) values[i];
+			beforeValueChange();
+			values[i] = value;
+			return old;
+		}
+		if ((used + 1) * 4L > keys.length * 3L) {
+			beforeRehash();
+			rehash(capacityFor(size + 1));
+		} else {
+			beforeKeyChange();
+		}
+		insert(k, value);
+		return null;
+	}
+	
+	/*
+	 * Puts key which is known to be absent into the first free or removed slot.
+	 */
+	protected void insert(Object key, Object value) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (keys[i] != null && keys[i] != REMOVED) {
+			i = (i + 1) & mask;
+		}
+		if (keys[i] == null) {
+			used++;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+	}
+	
+	protected void rehash(int capacity) {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		sharedKeys = false;
+		sharedValues = false;
+		size = 0;
+		used = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null && oldKeys[i] != REMOVED) {
+				insert(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		int i = find(keys, mask(key));
+		if (i < 0) {
+			return null;
+		}
+		V old = (V) values[i];
+		beforeKeyChange();
+		removeSlot(i);
+		return old;
+	}
+	
+	protected void removeSlot(int i) {
+		keys[i] = REMOVED;
+		values[i] = null;
+		size--;
+	}
+	
+	@Override
+	public void clear() {
+		beforeKeyChange();
+		keys = new Object[MIN_CAPACITY];
+		values = new Object[MIN_CAPACITY];
+		size = 0;
+		used = 0;
+	}
+	
+	/*
+	 * Change of value: keys may stay shared with snapshots, iterators stay valid.
+	 */
+	protected void beforeValueChange() {
+		immutable = null;
+		if (sharedValues) {
+			Stats.beforeChangeCopy(size);
+			values = values.clone();
+			sharedValues = false;
+		}
+	}
+	
+	/*
+	 * Change of key set: values are changed as well.
+	 */
+	protected void beforeKeyChange() {
+		modCount++;
+		beforeValueChange();
+		if (sharedKeys) {
+			keys = keys.clone();
+			sharedKeys = false;
+		}
+	}
+	
+	/*
+	 * Change of key set by rehash: new tables are filled from shared ones, which are not cloned first.
+	 */
+	protected void beforeRehash() {
+		modCount++;
+		immutable = null;
+		if (sharedKeys || sharedValues) {
+			Stats.beforeChangeCopy(size);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for (int i = 0; i < keys.length && modCount == expectedModCount; i++) {
+			Object k = keys[i];
+			if (k != null && k != REMOVED) {
+				action.accept(unmask(k), (V) values[i]);
+			}
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new EntrySet();
+	}
+	
+	protected class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public void clear() {
+			MutableMapImpl.this.clear();
+		}
+		
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryItr();
+		}
+	}
+	
+	protected class EntryItr implements Iterator<Map.Entry<K, V>> {
+		protected int cursor = advance(0);
+		protected int lastRet = -1;
+		protected int expectedModCount = modCount;
+		
+		protected int advance(int from) {
+			Object[] k = keys;
+			while (from < k.length && (k[from] == null || k[from] == REMOVED)) {
+				from++;
+			}
+			return from;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < keys.length;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map.Entry<K, V> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (cursor >= keys.length) {
+				throw new NoSuchElementException();
+			}
+			lastRet = cursor;
+			cursor = advance(cursor + 1);
+			return new Entry(lastRet, unmask(keys[lastRet]), (V) values[lastRet]);
+		}
+		
+		@Override
+		public void remove() {
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			//table copy keeps slots, so cursor stays valid
+			beforeKeyChange();
+			removeSlot(lastRet);
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+	}
+	
+	/*
+	 * Entry which writes value through to its slot while key set is not changed.
+	 */
+	protected class Entry extends AbstractMap.SimpleEntry<K, V> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected final int slot;
+		protected final int expectedModCount = modCount;
+		
+		protected Entry(int slot, K key, V value) {
+			super(key, value);
+			this.slot = slot;
+		}
+		
+		@Override
+		public V setValue(V value) {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			beforeValueChange();
+			values[slot] = value;
+			return super.setValue(value);
+		}
+	}
+	
+	@Override
+	public ImmutableMap<K, V> snapshot() {
+		if (immutable != null) {
+			Stats.snapshot(true);
+			return immutable;
+		}
+		Stats.snapshot(false);
+		if (used - size > size + MIN_CAPACITY) {
+			//do not let snapshot keep tables mostly made of removed slots, slots of iterators and entries move
+			modCount++;
+			rehash(capacityFor(size));
+		}
+		sharedKeys = true;
+		sharedValues = true;
+		immutable = new ImmutableMapImpl<>(keys, values, size, used);
+		return immutable;
+	}
+	
+	@Override
+	public void releaseSnapshot() {
+		immutable = null;
+		if (ArrayPool.isSingleOwner()) {
+			//caller guarantees that released snapshot is not used anymore
+			sharedKeys = false;
+			sharedValues = false;
+		}
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && keys[i] != REMOVED) {
+				out.writeObject(unmask(keys[i]));
+				out.writeObject(values[i]);
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		if (n < 0) {
+			throw new InvalidObjectException("size = " + n);
+		}
+		int capacity = capacityFor(n);
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		for (int i = 0; i < n; i++) {
+			put((K) in.readObject(), (V) in.readObject());
+		}
+	}
+}
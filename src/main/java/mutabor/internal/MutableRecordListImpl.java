@@ -0,0 +1,168 @@
+package mutabor.internal;
+
+import java.util.Arrays;
+
+import mutabor.ImmutableRecordList;
+import mutabor.MutableRecordList;
+import mutabor.RecordSchema;
+
+/**
+ * Mutable columnar record list.
+ * Rows {@code [0, frozen)} of columns marked as shared are visible to snapshots and never written;
+ * change of such a row copies the column first. Other columns are not copied.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class MutableRecordListImpl extends AbstractRecordList implements MutableRecordList {
+	
+	private static final long serialVersionUID = -2216245113404683095L;
+	
+	protected static final int MIN_CAPACITY = 10;
+	
+	protected int size;
+	protected int capacity;
+	protected int frozen;
+	protected boolean[] shared;
+	protected transient ImmutableRecordListImpl immutable;
+	
+	public MutableRecordListImpl(RecordSchema schema) {
+		super(schema, new Object[schema.getColumnCount()]);
+		for (int c = 0; c < columns.length; c++) {
+			columns[c] = newColumn(schema.getType(c), 0);
+		}
+		this.shared = new boolean[columns.length];
+	}
+	
+	/*
+	 * Shares columns of immutable list.
+	 * Slots beyond size may belong to list which created the snapshot, so the first added row copies columns.
+	 */
+	protected MutableRecordListImpl(ImmutableRecordListImpl immutable) {
+		super(immutable.schema, immutable.columns.clone());
+		this.size = immutable.size;
+		this.capacity = size;
+		this.frozen = size;
+		this.shared = new boolean[columns.length];
+		Arrays.fill(shared, true);
+		this.immutable = immutable;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public void setInt(int row, int column, int value) {
+		rangeCheck(row);
+		beforeChange();
+		((int[]) writableColumn(column, row))[row] = value;
+	}
+	
+	@Override
+	public void setLong(int row, int column, long value) {
+		rangeCheck(row);
+		beforeChange();
+		((long[]) writableColumn(column, row))[row] = value;
+	}
+	
+	@Override
+	public void setDouble(int row, int column, double value) {
+		rangeCheck(row);
+		beforeChange();
+		((double[]) writableColumn(column, row))[row] = value;
+	}
+	
+	@Override
+	public int addRow() {
+		beforeChange();
+		if (size < frozen) {
+			//rows between size and frozen are still visible to snapshots
+			for (int c = 0; c < columns.length; c++) {
+				writableColumn(c, size);
+			}
+			frozen = 0;
+		}
+		ensureCapacity(size + 1);
+		for (int c = 0; c < columns.length; c++) {
+			clearSlot(columns[c], size);
+		}
+		return size++;
+	}
+	
+	@Override
+	public void removeRow(int row) {
+		rangeCheck(row);
+		beforeChange();
+		for (int c = 0; c < columns.length; c++) {
+			System.arraycopy(writableColumn(c, row), row + 1, columns[c], row, size - row - 1);
+		}
+		size--;
+	}
+	
+	@Override
+	public void clear() {
+		beforeChange();
+		size = 0;
+	}
+	
+	protected static void clearSlot(Object column, int row) {
+		if (column instanceof int[]) {
+			((int[]) column)[row] = 0;
+		} else if (column instanceof long[]) {
+			((long[]) column)[row] = 0;
+		} else {
+			((double[]) column)[row] = 0;
+		}
+	}
+	
+	protected void ensureCapacity(int minCapacity) {
+		if (minCapacity > capacity) {
+			int newCapacity = capacity + (capacity >> 1);
+			if (newCapacity < minCapacity) {
+				newCapacity = Math.max(minCapacity, MIN_CAPACITY);
+			}
+			//old arrays stay with snapshots, new ones are not shared
+			for (int c = 0; c < columns.length; c++) {
+				columns[c] = copyColumn(columns[c], newCapacity);
+			}
+			Arrays.fill(shared, false);
+			capacity = newCapacity;
+			frozen = 0;
+		}
+	}
+	
+	/*
+	 * Returns column array which may be written at the specified row,
+	 * copies column if row is visible to snapshots.
+	 */
+	protected Object writableColumn(int column, int row) {
+		if (row < frozen && shared[column]) {
+			Stats.beforeChangeCopy(size);
+			columns[column] = copyColumn(columns[column], capacity);
+			shared[column] = false;
+		}
+		return columns[column];
+	}
+	
+	protected void beforeChange() {
+		immutable = null;
+	}
+	
+	@Override
+	public ImmutableRecordList snapshot() {
+		if (immutable != null) {
+			Stats.snapshot(true);
+			return immutable;
+		}
+		Stats.snapshot(false);
+		frozen = Math.max(frozen, size);
+		Arrays.fill(shared, true);
+		immutable = new ImmutableRecordListImpl(schema, columns.clone(), size);
+		return immutable;
+	}
+	
+	@Override
+	public void releaseSnapshot() {
+		immutable = null;
+	}
+}
@@ -0,0 +1,279 @@
+package mutabor.internal;
+
+import static mutabor.internal.ImmutableSetImpl.MIN_CAPACITY;
+import static mutabor.internal.ImmutableSetImpl.REMOVED;
+import static mutabor.internal.ImmutableSetImpl.capacityFor;
+import static mutabor.internal.ImmutableSetImpl.find;
+import static mutabor.internal.ImmutableSetImpl.mask;
+import static mutabor.internal.ImmutableSetImpl.slot;
+import static mutabor.internal.ImmutableSetImpl.unmask;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import mutabor.ImmutableSet;
+import mutabor.MutableSet;
+
+/**
+ * Mutable set over open-addressing table of {@link ImmutableSetImpl} layout.
+ * Snapshot takes the table as is, the table is copied before the next change.
+ * Removed elements leave {@link ImmutableSetImpl#REMOVED} markers, so that slots of other elements
+ * do not move and iterators stay valid; markers are dropped when table is rebuilt.
+ * @param <E> the type of elements in this set
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class MutableSetImpl<E> extends AbstractSet<E> implements MutableSet<E>, Serializable {
+	
+	private static final long serialVersionUID = -3150817236498712950L;
+	
+	protected transient Object[] table;
+	protected transient int size;
+	//number of occupied slots: elements and removal markers
+	protected transient int used;
+	protected transient boolean shared;
+	protected transient ImmutableSetImpl<E> immutable;
+	protected transient int modCount;
+	
+	public MutableSetImpl() {
+		this.table = new Object[MIN_CAPACITY];
+	}
+	
+	public MutableSetImpl(int expectedSize) {
+		this.table = new Object[capacityFor(expectedSize)];
+	}
+	
+	/*
+	 * Shares table of immutable set until the first change.
+	 */
+	protected MutableSetImpl(ImmutableSetImpl<E> immutable) {
+		this.table = immutable.table;
+		this.size = immutable.size;
+		this.used = immutable.used;
+		this.shared = true;
+		this.immutable = immutable;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return find(table, mask(o)) >= 0;
+	}
+	
+	@Override
+	public boolean add(E e) {
+		Object key = mask(e);
+		if (find(table, key) >= 0) {
+			return false;
+		}
+		if ((used + 1) * 4L > table.length * 3L) {
+			beforeRehash();
+			rehash(capacityFor(size + 1));
+		} else {
+			beforeChange();
+		}
+		insert(key);
+		return true;
+	}
+	
+	/*
+	 * Puts key which is known to be absent into the first free or removed slot.
+	 */
+	protected void insert(Object key) {
+		int mask = table.length - 1;
+		int i = slot(key, mask);
+		while (table[i] != null && table[i] != REMOVED) {
+			i = (i + 1) & mask;
+		}
+		if (table[i] == null) {
+			used++;
+		}
+		table[i] = key;
+		size++;
+	}
+	
+	protected void rehash(int capacity) {
+		Object[] old = table;
+		table = new Object[capacity];
+		shared = false;
+		size = 0;
+		used = 0;
+		for (Object e : old) {
+			if (e != null && e != REMOVED) {
+				insert(e);
+			}
+		}
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		int i = find(table, mask(o));
+		if (i < 0) {
+			return false;
+		}
+		beforeChange();
+		removeSlot(i);
+		return true;
+	}
+	
+	protected void removeSlot(int i) {
+		table[i] = REMOVED;
+		size--;
+		if (size == 0 && used > MIN_CAPACITY) {
+			table = new Object[MIN_CAPACITY];
+			used = 0;
+		}
+	}
+	
+	@Override
+	public void clear() {
+		beforeChange();
+		if (table.length > MIN_CAPACITY) {
+			table = new Object[MIN_CAPACITY];
+		} else {
+			Arrays.fill(table, null);
+		}
+		size = 0;
+		used = 0;
+	}
+	
+	/*
+	 * Releases saved snapshot and copies table if it is shared with snapshots.
+	 */
+	protected void beforeChange() {
+		modCount++;
+		immutable = null;
+		if (shared) {
+			Stats.beforeChangeCopy(size);
+			table = table.clone();
+			shared = false;
+		}
+	}
+	
+	/*
+	 * Change by rehash: new table is filled from shared one, which is not cloned first.
+	 */
+	protected void beforeRehash() {
+		modCount++;
+		immutable = null;
+		if (shared) {
+			Stats.beforeChangeCopy(size);
+		}
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	protected class Itr implements Iterator<E> {
+		protected int cursor = advance(0);
+		protected int lastRet = -1;
+		protected int expectedModCount = modCount;
+		
+		protected int advance(int from) {
+			Object[] t = table;
+			while (from < t.length && (t[from] == null || t[from] == REMOVED)) {
+				from++;
+			}
+			return from;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < table.length;
+		}
+		
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (cursor >= table.length) {
+				throw new NoSuchElementException();
+			}
+			lastRet = cursor;
+			cursor = advance(cursor + 1);
+			return unmask(table[lastRet]);
+		}
+		
+		@Override
+		public void remove() {
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			//table copy keeps slots, so cursor stays valid
+			beforeChange();
+			table[lastRet] = REMOVED;
+			size--;
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+	}
+	
+	@Override
+	public ImmutableSet<E> snapshot() {
+		if (immutable != null) {
+			Stats.snapshot(true);
+			return immutable;
+		}
+		Stats.snapshot(false);
+		if (used - size > size + MIN_CAPACITY) {
+			//do not let snapshot keep table mostly made of removed slots, slots of iterators move
+			modCount++;
+			rehash(capacityFor(size));
+		}
+		shared = true;
+		immutable = new ImmutableSetImpl<>(table, size, used);
+		return immutable;
+	}
+	
+	@Override
+	public void releaseSnapshot() {
+		immutable = null;
+		if (ArrayPool.isSingleOwner()) {
+			//caller guarantees that released snapshot is not used anymore
+			shared = false;
+		}
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (E e : this) {
+			out.writeObject(e);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		if (n < 0) {
+			throw new InvalidObjectException("size = " + n);
+		}
+		table = new Object[capacityFor(n)];
+		for (int i = 0; i < n; i++) {
+			add((E) in.readObject());
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package mutabor.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detector of snapshot/write cycles of mutable lists.
+ * When enabled, every mutable list created afterwards remembers its allocation site
+ * and counts cycles "snapshot, then write", each of which costs a copy of the whole list.
+ * At most {@link #MAX_SITES} allocation sites are kept, lists created at other sites are not tracked.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class PingPong {
+	
+	protected static final int MAX_SITE_DEPTH = 16;
+	public static final int MAX_SITES = 1024;
+	
+	protected static volatile boolean enabled = Boolean.getBoolean("mutabor.pingpong");
+	
+	protected static final ConcurrentMap<List<StackTraceElement>, Site> sites = new ConcurrentHashMap<>();
+	
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	public static void setEnabled(boolean enabled) {
+		PingPong.enabled = enabled;
+	}
+	
+	public static Collection<Site> sites() {
+		return sites.values();
+	}
+	
+	public static void reset() {
+		sites.clear();
+	}
+	
+	/*
+	 * Returns tracker of mutable list or null if list is not tracked.
+	 */
+	public static Tracker tracker(Object list) {
+		return (list instanceof MutableListImpl<?>) ? ((MutableListImpl<?>) list).pingPong : null;
+	}
+	
+	/*
+	 * Returns tracker for new mutable list or null if detector is disabled.
+	 */
+	public static Tracker track() {
+		if (!enabled) {
+			return null;
+		}
+		List<StackTraceElement> stack = allocationSite(new Throwable().getStackTrace());
+		Site site = sites.get(stack);
+		if (site == null) {
+			if (sites.size() >= MAX_SITES) {
+				return null;
+			}
+			Site newSite = new Site(stack);
+			site = sites.putIfAbsent(stack, newSite);
+			if (site == null) {
+				site = newSite;
+			}
+		}
+		site.instances.increment();
+		return new Tracker(site);
+	}
+	
+	/*
+	 * Skips frames of library itself.
+	 */
+	protected static List<StackTraceElement> allocationSite(StackTraceElement[] stack) {
+		int from = 0;
+		while (from < stack.length && isLibraryFrame(stack[from])) {
+			from++;
+		}
+		int to = Math.min(stack.length, from + MAX_SITE_DEPTH);
+		return new ArrayList<>(Arrays.asList(stack).subList(from, to));
+	}
+	
+	protected static boolean isLibraryFrame(StackTraceElement frame) {
+		String className = frame.getClassName();
+		return className.startsWith("mutabor.internal.") || className.equals("mutabor.Mutabor");
+	}
+	
+	/**
+	 * Counters of allocation site.
+	 */
+	public static class Site {
+		protected final List<StackTraceElement> stack;
+		public final LongAdder instances = new LongAdder();
+		public final LongAdder cycles = new LongAdder();
+		public final LongAdder copiedElements = new LongAdder();
+		public final LongAccumulator maxInstanceCycles = new LongAccumulator(Math::max, 0);
+		
+		protected Site(List<StackTraceElement> stack) {
+			this.stack = stack;
+		}
+		
+		public StackTraceElement[] getStackTrace() {
+			return stack.toArray(new StackTraceElement[stack.size()]);
+		}
+	}
+	
+	/**
+	 * Counters of single mutable list.
+	 */
+	public static class Tracker {
+		protected final Site site;
+		protected long pendingCopiedElements;
+		protected long cycles;
+		protected long copiedElements;
+		
+		protected Tracker(Site site) {
+			this.site = site;
+		}
+		
+		public long getCycles() {
+			return cycles;
+		}
+		
+		public long getCopiedElements() {
+			return copiedElements;
+		}
+		
+		/*
+		 * Called when snapshot is created, copied is number of elements copied to create it.
+		 */
+		protected void snapshot(int copied) {
+			pendingCopiedElements += copied;
+		}
+		
+		/*
+		 * Called on first write after snapshot.
+		 */
+		protected void write() {
+			if (pendingCopiedElements > 0) {
+				copy(0);
+			}
+		}
+		
+		/*
+		 * Called when list is copied because its data is shared with snapshot.
+		 */
+		protected void copy(int copied) {
+			long cycleCopied = pendingCopiedElements + copied;
+			pendingCopiedElements = 0;
+			cycles++;
+			copiedElements += cycleCopied;
+			site.cycles.increment();
+			site.copiedElements.add(cycleCopied);
+			site.maxInstanceCycles.accumulate(cycles);
+		}
+	}
+	
+	private PingPong() {
+	}
+}
@@ -0,0 +1,414 @@
+package mutabor.internal;
+
+/**
+ * Loops over ranges of primitive arrays used by primitive immutable lists.
+ * Ranges of at least {@value #VECTOR_MIN_LENGTH} elements are processed by {@code VectorKernels}
+ * on Vector API, which is built only by JDK 16+ and loaded reflectively when module
+ * {@code jdk.incubator.vector} is added to the JVM ({@code --add-modules jdk.incubator.vector})
+ * and system property {@code mutabor.vector} is not {@code false}.
+ * Otherwise scalar loops below are used: JIT compiler unrolls them, but does not vectorize early-exit searches.
+ * Sum of doubles is always computed in index order, so it is never vectorized.
+ * Neither is hash code of longs: multiplication of long lanes is no faster than the unrolled scalar loop.
+ * Hash codes are the same as of {@link java.util.List} of boxed values.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class PrimitiveKernels {
+	
+	protected static final int VECTOR_MIN_LENGTH = 32;
+	
+	/*
+	 * Implemented by VectorKernels, called for ranges of at least VECTOR_MIN_LENGTH elements.
+	 */
+	protected abstract static class Vectorized {
+		protected abstract int indexOf(int[] a, int fromIndex, int toIndex, int v);
+		protected abstract int lastIndexOf(int[] a, int fromIndex, int toIndex, int v);
+		protected abstract int count(int[] a, int fromIndex, int toIndex, int v);
+		protected abstract long sum(int[] a, int fromIndex, int toIndex);
+		protected abstract int min(int[] a, int fromIndex, int toIndex);
+		protected abstract int max(int[] a, int fromIndex, int toIndex);
+		protected abstract boolean equals(int[] a, int aFrom, int[] b, int bFrom, int length);
+		protected abstract int hashCode(int[] a, int fromIndex, int toIndex);
+		
+		protected abstract int indexOf(long[] a, int fromIndex, int toIndex, long v);
+		protected abstract int lastIndexOf(long[] a, int fromIndex, int toIndex, long v);
+		protected abstract int count(long[] a, int fromIndex, int toIndex, long v);
+		protected abstract long sum(long[] a, int fromIndex, int toIndex);
+		protected abstract long min(long[] a, int fromIndex, int toIndex);
+		protected abstract long max(long[] a, int fromIndex, int toIndex);
+		protected abstract boolean equals(long[] a, int aFrom, long[] b, int bFrom, int length);
+		
+		protected abstract int indexOf(double[] a, int fromIndex, int toIndex, double v);
+		protected abstract int lastIndexOf(double[] a, int fromIndex, int toIndex, double v);
+		protected abstract int count(double[] a, int fromIndex, int toIndex, double v);
+		protected abstract double min(double[] a, int fromIndex, int toIndex);
+		protected abstract double max(double[] a, int fromIndex, int toIndex);
+		protected abstract boolean equals(double[] a, int aFrom, double[] b, int bFrom, int length);
+		protected abstract int hashCode(double[] a, int fromIndex, int toIndex);
+	}
+	
+	//null if Vector API or VectorKernels is not available
+	protected static final Vectorized VECTOR;
+	static {
+		Vectorized vector;
+		try {
+			if (!"false".equals(System.getProperty("mutabor.vector"))) {
+				Class.forName("jdk.incubator.vector.IntVector");
+				vector = (Vectorized) Class.forName("mutabor.internal.VectorKernels").getDeclaredConstructor().newInstance();
+			} else {
+				vector = null;
+			}
+		} catch (@SuppressWarnings("unused") Throwable e) {
+			vector = null;
+		}
+		VECTOR = vector;
+	}
+	//ranges at least this long go to VECTOR
+	protected static final int VECTOR_THRESHOLD = (VECTOR != null) ? VECTOR_MIN_LENGTH : Integer.MAX_VALUE;
+	
+	public static boolean isVectorized() {
+		return VECTOR != null;
+	}
+	
+	//powers of 31 for hash code of 4 elements per step
+	protected static final int P1 = 31;
+	protected static final int P2 = 31 * 31;
+	protected static final int P3 = 31 * 31 * 31;
+	protected static final int P4 = 31 * 31 * 31 * 31;
+	
+	/* int */
+	
+	public static int indexOf(int[] a, int fromIndex, int toIndex, int v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.indexOf(a, fromIndex, toIndex, v);
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(int[] a, int fromIndex, int toIndex, int v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.lastIndexOf(a, fromIndex, toIndex, v);
+		}
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int count(int[] a, int fromIndex, int toIndex, int v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.count(a, fromIndex, toIndex, v);
+		}
+		int res = 0;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res += (a[i] == v) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	public static long sum(int[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.sum(a, fromIndex, toIndex);
+		}
+		long s0 = 0;
+		long s1 = 0;
+		int i = fromIndex;
+		for (; i + 1 < toIndex; i += 2) {
+			s0 += a[i];
+			s1 += a[i + 1];
+		}
+		if (i < toIndex) {
+			s0 += a[i];
+		}
+		return s0 + s1;
+	}
+	
+	public static int min(int[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.min(a, fromIndex, toIndex);
+		}
+		int res = Integer.MAX_VALUE;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static int max(int[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.max(a, fromIndex, toIndex);
+		}
+		int res = Integer.MIN_VALUE;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static boolean equals(int[] a, int aFrom, int[] b, int bFrom, int length) {
+		if (length >= VECTOR_THRESHOLD) {
+			return VECTOR.equals(a, aFrom, b, bFrom, length);
+		}
+		for (int i = 0; i < length; i++) {
+			if (a[aFrom + i] != b[bFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public static int hashCode(int[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.hashCode(a, fromIndex, toIndex);
+		}
+		int h = 1;
+		int i = fromIndex;
+		for (; i + 3 < toIndex; i += 4) {
+			h = P4 * h + P3 * a[i] + P2 * a[i + 1] + P1 * a[i + 2] + a[i + 3];
+		}
+		for (; i < toIndex; i++) {
+			h = 31 * h + a[i];
+		}
+		return h;
+	}
+	
+	/* long */
+	
+	public static int indexOf(long[] a, int fromIndex, int toIndex, long v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.indexOf(a, fromIndex, toIndex, v);
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(long[] a, int fromIndex, int toIndex, long v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.lastIndexOf(a, fromIndex, toIndex, v);
+		}
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int count(long[] a, int fromIndex, int toIndex, long v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.count(a, fromIndex, toIndex, v);
+		}
+		int res = 0;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res += (a[i] == v) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	public static long sum(long[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.sum(a, fromIndex, toIndex);
+		}
+		long s0 = 0;
+		long s1 = 0;
+		int i = fromIndex;
+		for (; i + 1 < toIndex; i += 2) {
+			s0 += a[i];
+			s1 += a[i + 1];
+		}
+		if (i < toIndex) {
+			s0 += a[i];
+		}
+		return s0 + s1;
+	}
+	
+	public static long min(long[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.min(a, fromIndex, toIndex);
+		}
+		long res = Long.MAX_VALUE;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static long max(long[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.max(a, fromIndex, toIndex);
+		}
+		long res = Long.MIN_VALUE;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static boolean equals(long[] a, int aFrom, long[] b, int bFrom, int length) {
+		if (length >= VECTOR_THRESHOLD) {
+			return VECTOR.equals(a, aFrom, b, bFrom, length);
+		}
+		for (int i = 0; i < length; i++) {
+			if (a[aFrom + i] != b[bFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public static int hashCode(long[] a, int fromIndex, int toIndex) {
+		int h = 1;
+		int i = fromIndex;
+		for (; i + 3 < toIndex; i += 4) {
+			h = P4 * h + P3 * hash(a[i]) + P2 * hash(a[i + 1]) + P1 * hash(a[i + 2]) + hash(a[i + 3]);
+		}
+		for (; i < toIndex; i++) {
+			h = 31 * h + hash(a[i]);
+		}
+		return h;
+	}
+	
+	protected static int hash(long v) {
+		return (int) (v ^ (v >>> 32));
+	}
+	
+	/* double: elements are compared as by Double.equals(), so NaN is found and 0.0 differs from -0.0 */
+	
+	public static int indexOf(double[] a, int fromIndex, int toIndex, double v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.indexOf(a, fromIndex, toIndex, v);
+		}
+		if (v != v || v == 0) {
+			long bits = Double.doubleToLongBits(v);
+			for (int i = fromIndex; i < toIndex; i++) {
+				if (Double.doubleToLongBits(a[i]) == bits) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(double[] a, int fromIndex, int toIndex, double v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.lastIndexOf(a, fromIndex, toIndex, v);
+		}
+		if (v != v || v == 0) {
+			long bits = Double.doubleToLongBits(v);
+			for (int i = toIndex - 1; i >= fromIndex; i--) {
+				if (Double.doubleToLongBits(a[i]) == bits) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		for (int i = toIndex - 1; i >= fromIndex; i--) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public static int count(double[] a, int fromIndex, int toIndex, double v) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.count(a, fromIndex, toIndex, v);
+		}
+		if (v != v || v == 0) {
+			long bits = Double.doubleToLongBits(v);
+			int res = 0;
+			for (int i = fromIndex; i < toIndex; i++) {
+				res += (Double.doubleToLongBits(a[i]) == bits) ? 1 : 0;
+			}
+			return res;
+		}
+		int res = 0;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res += (a[i] == v) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	/*
+	 * Sum in index order: reordering of floating point additions would change the result.
+	 */
+	public static double sum(double[] a, int fromIndex, int toIndex) {
+		double res = 0;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res += a[i];
+		}
+		return res;
+	}
+	
+	public static double min(double[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.min(a, fromIndex, toIndex);
+		}
+		double res = Double.POSITIVE_INFINITY;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static double max(double[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.max(a, fromIndex, toIndex);
+		}
+		double res = Double.NEGATIVE_INFINITY;
+		for (int i = fromIndex; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	public static boolean equals(double[] a, int aFrom, double[] b, int bFrom, int length) {
+		if (length >= VECTOR_THRESHOLD) {
+			return VECTOR.equals(a, aFrom, b, bFrom, length);
+		}
+		for (int i = 0; i < length; i++) {
+			if (Double.doubleToLongBits(a[aFrom + i]) != Double.doubleToLongBits(b[bFrom + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public static int hashCode(double[] a, int fromIndex, int toIndex) {
+		if (toIndex - fromIndex >= VECTOR_THRESHOLD) {
+			return VECTOR.hashCode(a, fromIndex, toIndex);
+		}
+		int h = 1;
+		int i = fromIndex;
+		for (; i + 3 < toIndex; i += 4) {
+			h = P4 * h + P3 * hash(a[i]) + P2 * hash(a[i + 1]) + P1 * hash(a[i + 2]) + hash(a[i + 3]);
+		}
+		for (; i < toIndex; i++) {
+			h = 31 * h + hash(a[i]);
+		}
+		return h;
+	}
+	
+	protected static int hash(double v) {
+		return hash(Double.doubleToLongBits(v));
+	}
+	
+	private PrimitiveKernels() {
+	}
+}
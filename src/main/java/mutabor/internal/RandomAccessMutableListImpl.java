@@ -10,7 +10,7 @@ import mutabor.ImmutableList;
  * @param <E> the type of elements in this list
  * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
  */
-public class RandomAccessMutableListImpl<E> extends MutableListImpl<E> implements RandomAccess {
+public final class RandomAccessMutableListImpl<E> extends MutableListImpl<E> implements RandomAccess {
 	
 	private static final long serialVersionUID = 5455093627290146672L;
 	
@@ -0,0 +1,62 @@
+package mutabor.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mutabor.ImmutableList;
+
+/**
+ * Weak registry of sublist views which keep big parent arrays reachable.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class RetainedViews {
+	
+	protected static final ReferenceQueue<ImmutableList<?>> queue = new ReferenceQueue<>();
+	protected static final Set<Reference<? extends ImmutableList<?>>> views =
+			Collections.newSetFromMap(new ConcurrentHashMap<Reference<? extends ImmutableList<?>>, Boolean>());
+	
+	public static void track(ImmutableList<?> view) {
+		expunge();
+		views.add(new WeakReference<ImmutableList<?>>(view, queue));
+	}
+	
+	/*
+	 * Returns live tracked views, views which waste more memory go first.
+	 */
+	public static List<ImmutableList<?>> views() {
+		expunge();
+		List<ImmutableList<?>> res = new ArrayList<>();
+		for (Reference<? extends ImmutableList<?>> ref : views) {
+			ImmutableList<?> view = ref.get();
+			if (view != null) {
+				res.add(view);
+			}
+		}
+		Collections.sort(res, new Comparator<ImmutableList<?>>() {
+			@Override
+			public int compare(ImmutableList<?> o1, ImmutableList<?> o2) {
+				long waste1 = InternalUtils.retainedLength(o1) - o1.size();
+				long waste2 = InternalUtils.retainedLength(o2) - o2.size();
+				return waste1 < waste2 ? 1 : (waste1 > waste2 ? -1 : 0);
+			}
+		});
+		return res;
+	}
+	
+	protected static void expunge() {
+		Reference<? extends ImmutableList<?>> ref;
+		while ((ref = queue.poll()) != null) {
+			views.remove(ref);
+		}
+	}
+	
+	private RetainedViews() {
+	}
+}
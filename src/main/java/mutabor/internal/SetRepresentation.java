@@ -0,0 +1,95 @@
+package mutabor.internal;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import mutabor.ImmutableSet;
+
+/**
+ * {@link java.util.Set} representation of immutable set.
+ * @param <E> the type of elements in this set
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class SetRepresentation<E> extends AbstractSet<E> implements Serializable {
+	
+	private static final long serialVersionUID = 6601437431846790305L;
+	
+	protected ImmutableSet<E> set;
+	
+	public SetRepresentation(ImmutableSet<E> set) {
+		this.set = set;
+	}
+	
+	@Override
+	public int size() {
+		return set.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return set.isEmpty();
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return set.contains(o);
+	}
+	
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		return set.containsAll(c);
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return set.iterator();
+	}
+	
+	@Override
+	public Object[] toArray() {
+		return set.toArray();
+	}
+	
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return set.toArray(a);
+	}
+	
+	@Override
+	public boolean add(E e) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,405 @@
+package mutabor.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import mutabor.ImmutableList;
+import mutabor.MutableList;
+
+/**
+ * Base of immutable lists which hold their elements in fields instead of array.
+ * Used for lists of up to {@link #MAX_SIZE} elements: such list needs no array
+ * header and no {@code size} field.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public abstract class SmallImmutableListImpl<E> implements ImmutableList<E>, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = -2791870735508349410L;
+	
+	/**
+	 * Max size of list which may be represented by field-based implementation.
+	 */
+	public static final int MAX_SIZE = 4;
+	
+	/**
+	 * Creates immutable list containing elements of specified array range.
+	 * Range must not be longer than {@link #MAX_SIZE}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <E> ImmutableList<E> create(Object[] data, int fromIndex, int toIndex) {
+		switch (toIndex - fromIndex) {
+		case 0:
+			return (ImmutableList<E>) List0.INSTANCE;
+		case 1:
+			return new List1<>((E) data[fromIndex]);
+		case 2:
+			return new List2<>((E) data[fromIndex], (E) data[fromIndex + 1]);
+		case 3:
+			return new List3<>((E) data[fromIndex], (E) data[fromIndex + 1], (E) data[fromIndex + 2]);
+		case 4:
+			return new List4<>((E) data[fromIndex], (E) data[fromIndex + 1], (E) data[fromIndex + 2], (E) data[fromIndex + 3]);
+		default:
+			throw new IllegalArgumentException("Size " + (toIndex - fromIndex) + " exceeds " + MAX_SIZE);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static <E> ImmutableList<E> empty() {
+		return (ImmutableList<E>) List0.INSTANCE;
+	}
+	
+	protected SmallImmutableListImpl() {
+	}
+	
+	protected IndexOutOfBoundsException outOfBounds(int index) {
+		return new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() <= 0;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public boolean containsAll(Iterable<?> c) {
+		for (Object e : c) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			Object e = get(i);
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		for (int i = size() - 1; i >= 0; i--) {
+			Object e = get(i);
+			if (o == null ? e == null : o.equals(e)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public Object[] toArray() {
+		int size = size();
+		Object[] arr = new Object[size];
+		for (int i = 0; i < size; i++) {
+			arr[i] = get(i);
+		}
+		return arr;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		int size = size();
+		T[] arr = (a.length < size) ? (T[]) Array.newInstance(a.getClass().getComponentType(), size) : a;
+		for (int i = 0; i < size; i++) {
+			arr[i] = (T) get(i);
+		}
+		if (arr.length > size) {
+			arr[size] = null;
+		}
+		return arr;
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<E> listIterator() {
+		return new ListItr(0);
+	}
+	
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return new ListItr(index);
+	}
+	
+	protected class ListItr implements ListIterator<E> {
+		protected int cursor;
+		
+		protected ListItr(int index) {
+			this.cursor = index;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return cursor < size();
+		}
+		
+		@Override
+		public E next() {
+			if (cursor >= size()) {
+				throw new NoSuchElementException();
+			}
+			return get(cursor++);
+		}
+		
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+		
+		@Override
+		public E previous() {
+			if (cursor < 1) {
+				throw new NoSuchElementException();
+			}
+			return get(--cursor);
+		}
+		
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+		
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void set(E e) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void add(E e) {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	@Override
+	public ImmutableList<E> subList(int fromIndex, int toIndex) {
+		ImmutableListImpl.subListRangeCheck(fromIndex, toIndex, size());
+		if (fromIndex == 0 && toIndex == size()) {
+			return this;
+		}
+		return create(toArray(), fromIndex, toIndex);
+	}
+	
+	@Override
+	public ImmutableList<E> compact() {
+		return this;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return InternalUtils.equalLists(this, o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return InternalUtils.hashCodeIterable(this);
+	}
+	
+	@Override
+	public boolean contentEquals(Iterable<? extends E> iterable) {
+		return InternalUtils.equalIterables(this, iterable);
+	}
+	
+	@Override
+	public List<E> toList() {
+		return new ListRepresentation<>(this);
+	}
+	
+	@Override
+	public MutableList<E> mutable() {
+		return new RandomAccessMutableListImpl<>(this);
+	}
+	
+	/**
+	 * Empty list. Single instance is shared.
+	 */
+	protected static final class List0<E> extends SmallImmutableListImpl<E> {
+		
+		private static final long serialVersionUID = 6020314395815104128L;
+		
+		protected static final List0<Object> INSTANCE = new List0<>();
+		
+		private List0() {
+		}
+		
+		@Override
+		public int size() {
+			return 0;
+		}
+		
+		@Override
+		public E get(int index) {
+			throw outOfBounds(index);
+		}
+		
+		@Override
+		public Object[] toArray() {
+			return InternalUtils.EMPTY_ARRAY;
+		}
+		
+		private Object readResolve() throws ObjectStreamException {
+			return INSTANCE;
+		}
+	}
+	
+	protected static final class List1<E> extends SmallImmutableListImpl<E> {
+		
+		private static final long serialVersionUID = -6283452017740462297L;
+		
+		protected final E e0;
+		
+		protected List1(E e0) {
+			this.e0 = e0;
+		}
+		
+		@Override
+		public int size() {
+			return 1;
+		}
+		
+		@Override
+		public E get(int index) {
+			if (index == 0) {
+				return e0;
+			}
+			throw outOfBounds(index);
+		}
+	}
+	
+	protected static final class List2<E> extends SmallImmutableListImpl<E> {
+		
+		private static final long serialVersionUID = 3416713582066851307L;
+		
+		protected final E e0;
+		protected final E e1;
+		
+		protected List2(E e0, E e1) {
+			this.e0 = e0;
+			this.e1 = e1;
+		}
+		
+		@Override
+		public int size() {
+			return 2;
+		}
+		
+		@Override
+		public E get(int index) {
+			switch (index) {
+			case 0:
+				return e0;
+			case 1:
+				return e1;
+			default:
+				throw outOfBounds(index);
+			}
+		}
+	}
+	
+	protected static final class List3<E> extends SmallImmutableListImpl<E> {
+		
+		private static final long serialVersionUID = -1158934276113402836L;
+		
+		protected final E e0;
+		protected final E e1;
+		protected final E e2;
+		
+		protected List3(E e0, E e1, E e2) {
+			this.e0 = e0;
+			this.e1 = e1;
+			this.e2 = e2;
+		}
+		
+		@Override
+		public int size() {
+			return 3;
+		}
+		
+		@Override
+		public E get(int index) {
+			switch (index) {
+			case 0:
+				return e0;
+			case 1:
+				return e1;
+			case 2:
+				return e2;
+			default:
+				throw outOfBounds(index);
+			}
+		}
+	}
+	
+	protected static final class List4<E> extends SmallImmutableListImpl<E> {
+		
+		private static final long serialVersionUID = 7809127263450944129L;
+		
+		protected final E e0;
+		protected final E e1;
+		protected final E e2;
+		protected final E e3;
+		
+		protected List4(E e0, E e1, E e2, E e3) {
+			this.e0 = e0;
+			this.e1 = e1;
+			this.e2 = e2;
+			this.e3 = e3;
+		}
+		
+		@Override
+		public int size() {
+			return 4;
+		}
+		
+		@Override
+		public E get(int index) {
+			switch (index) {
+			case 0:
+				return e0;
+			case 1:
+				return e1;
+			case 2:
+				return e2;
+			case 3:
+				return e3;
+			default:
+				throw outOfBounds(index);
+			}
+		}
+	}
+}
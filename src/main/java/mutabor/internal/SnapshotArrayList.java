@@ -0,0 +1,375 @@
+package mutabor.internal;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import mutabor.ImmutableList;
+
+/**
+ * Array list which shares prefix of its array with immutable snapshots.
+ * Slots {@code [0, frozen)} are visible to snapshots and never written;
+ * any change of them copies the array first. Appends and truncation at the tail
+ * use free capacity of the shared array without copying.
+ * @param <E> the type of elements in this list
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public final class SnapshotArrayList<E> extends AbstractList<E> implements FreezableList<E>, RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = -3389224108062540919L;
+	
+	protected static final int MIN_CAPACITY = 10;
+	
+	//only elements are serialized, without free capacity and slots left to snapshots
+	protected transient Object[] data;
+	protected int size;
+	protected transient int frozen;
+	protected transient Object[] retired;
+	protected transient PingPong.Tracker tracker;
+	
+	public SnapshotArrayList() {
+		this.data = InternalUtils.EMPTY_ARRAY;
+	}
+	
+	public SnapshotArrayList(Collection<? extends E> c) {
+		Object[] arr = c.toArray();
+		if (arr.getClass() != Object[].class) {
+			arr = Arrays.copyOf(arr, arr.length, Object[].class);
+		}
+		this.data = arr;
+		this.size = arr.length;
+	}
+	
+	/*
+	 * Takes ownership of the array, array must not be used by caller anymore.
+	 */
+	protected SnapshotArrayList(Object[] data) {
+		this(data, data.length);
+	}
+	
+	/*
+	 * Takes ownership of the array, array must not be used by caller anymore.
+	 */
+	protected SnapshotArrayList(Object[] data, int size) {
+		this.data = data;
+		this.size = size;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		rangeCheck(index);
+		return (E) data[index];
+	}
+	
+	/*
+	 * Keeps array left to snapshots only if it may be returned to pool by release(),
+	 * otherwise this list must not keep it reachable.
+	 */
+	protected void retire(Object[] arr) {
+		retired = (ArrayPool.isEnabled() && ArrayPool.isSingleOwner()) ? arr : null;
+	}
+	
+	/*
+	 * Exposes modCount for iterators of MutableListImpl.
+	 */
+	protected int getModCount() {
+		return modCount;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		Object[] arr = data;
+		if (o == null) {
+			for (int i = 0; i < size; i++) {
+				if (arr[i] == null) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				if (o.equals(arr[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		Object[] arr = data;
+		if (o == null) {
+			for (int i = size - 1; i >= 0; i--) {
+				if (arr[i] == null) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = size - 1; i >= 0; i--) {
+				if (o.equals(arr[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		int expectedModCount = modCount;
+		Object[] arr = data;
+		for (int i = 0; i < size && modCount == expectedModCount; i++) {
+			action.accept((E) arr[i]);
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	@Override
+	public E set(int index, E element) {
+		rangeCheck(index);
+		if (index < frozen) {
+			unshare();
+		}
+		@SuppressWarnings("unchecked")
+		E old = (E) data[index];
+		data[index] = element;
+		return old;
+	}
+	
+	@Override
+	public boolean add(E e) {
+		modCount++;
+		if (size < frozen) {
+			unshare();
+		}
+		ensureCapacity(size + 1);
+		data[size++] = e;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, E element) {
+		if (index == size) {
+			add(element);
+			return;
+		}
+		rangeCheckForAdd(index);
+		modCount++;
+		if (index < frozen) {
+			unshare();
+		}
+		ensureCapacity(size + 1);
+		System.arraycopy(data, index, data, index + 1, size - index);
+		data[index] = element;
+		size++;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		return addAll(size, c);
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+		rangeCheckForAdd(index);
+		Object[] arr = c.toArray();
+		int n = arr.length;
+		modCount++;
+		if (n == 0) {
+			return false;
+		}
+		if (index < frozen || size < frozen) {
+			unshare();
+		}
+		ensureCapacity(size + n);
+		System.arraycopy(data, index, data, index + n, size - index);
+		System.arraycopy(arr, 0, data, index, n);
+		size += n;
+		return true;
+	}
+	
+	@Override
+	public E remove(int index) {
+		rangeCheck(index);
+		modCount++;
+		@SuppressWarnings("unchecked")
+		E old = (E) data[index];
+		if (index == size - 1) {
+			truncate(index);
+			return old;
+		}
+		if (index < frozen) {
+			unshare();
+		}
+		System.arraycopy(data, index + 1, data, index, size - index - 1);
+		data[--size] = null;
+		return old;
+	}
+	
+	@Override
+	public void clear() {
+		modCount++;
+		truncate(0);
+	}
+	
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		modCount++;
+		if (toIndex == size) {
+			truncate(fromIndex);
+			return;
+		}
+		if (fromIndex < frozen) {
+			unshare();
+		}
+		System.arraycopy(data, toIndex, data, fromIndex, size - toIndex);
+		int newSize = size - (toIndex - fromIndex);
+		Arrays.fill(data, newSize, size, null);
+		size = newSize;
+	}
+	
+	/*
+	 * Cuts the tail. Frozen slots are left as is, snapshots still see them.
+	 */
+	protected void truncate(int newSize) {
+		Arrays.fill(data, Math.max(newSize, frozen), Math.max(size, frozen), null);
+		size = newSize;
+	}
+	
+	protected void ensureCapacity(int minCapacity) {
+		if (minCapacity > data.length) {
+			int capacity = data.length + (data.length >> 1);
+			if (capacity < minCapacity) {
+				capacity = Math.max(minCapacity, MIN_CAPACITY);
+			}
+			//old array stays with snapshots, new one is not shared
+			Object[] arr = ArrayPool.acquire(capacity);
+			System.arraycopy(data, 0, arr, 0, size);
+			if (frozen == 0) {
+				ArrayPool.release(data);
+			} else {
+				retire(data);
+			}
+			data = arr;
+			frozen = 0;
+		}
+	}
+	
+	/*
+	 * Copies array, so that snapshots no longer share it.
+	 */
+	protected void unshare() {
+		Stats.beforeChangeCopy(size);
+		Object event = Events.beginCopy(size);
+		Object[] arr = ArrayPool.acquire(data.length);
+		System.arraycopy(data, 0, arr, 0, size);
+		retire(data);
+		data = arr;
+		frozen = 0;
+		Events.commitCopy(event, size, getClass(), "copyOnWrite");
+		if (tracker != null) {
+			tracker.copy(size);
+		}
+	}
+	
+	@Override
+	public ImmutableList<E> freeze() {
+		if (size <= SmallImmutableListImpl.MAX_SIZE) {
+			return SmallImmutableListImpl.create(data, 0, size);
+		}
+		frozen = Math.max(frozen, size);
+		return new ImmutableListImpl<>(data, size);
+	}
+	
+	/*
+	 * In single-owner mode snapshots are dead after release:
+	 * shared prefix becomes writable and array taken over by snapshot goes to pool.
+	 */
+	@Override
+	public void release() {
+		if (!ArrayPool.isSingleOwner()) {
+			return;
+		}
+		if (frozen > size) {
+			Arrays.fill(data, size, frozen, null);
+		}
+		frozen = 0;
+		if (retired != null) {
+			ArrayPool.release(retired);
+			retired = null;
+		}
+	}
+	
+	@Override
+	public ImmutableList<E> detach() {
+		ImmutableList<E> res = InternalUtils.newImmutableList(data, size);
+		data = InternalUtils.EMPTY_ARRAY;
+		size = 0;
+		frozen = 0;
+		retired = null;
+		modCount++;
+		return res;
+	}
+	
+	@Override
+	public void setTracker(PingPong.Tracker tracker) {
+		this.tracker = tracker;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		int expectedModCount = modCount;
+		out.defaultWriteObject();
+		for (int i = 0; i < size; i++) {
+			out.writeObject(data[i]);
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (size < 0) {
+			throw new InvalidObjectException("size = " + size);
+		}
+		Object[] arr = (size == 0) ? InternalUtils.EMPTY_ARRAY : new Object[size];
+		for (int i = 0; i < size; i++) {
+			arr[i] = in.readObject();
+		}
+		data = arr;
+	}
+	
+	protected void rangeCheck(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	protected void rangeCheckForAdd(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
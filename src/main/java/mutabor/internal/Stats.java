@@ -0,0 +1,93 @@
+package mutabor.internal;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of slow paths: copying, array stealing, snapshots.
+ * Counters are updated only when statistics is enabled.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class Stats {
+	
+	protected static volatile boolean enabled = Boolean.getBoolean("mutabor.stats");
+	
+	protected static final int REFERENCE_SIZE;
+	static {
+		int size;
+		try {
+			size = Class.forName("sun.misc.Unsafe").getField("ARRAY_OBJECT_INDEX_SCALE").getInt(null);
+		} catch (@SuppressWarnings("unused") Exception e) {
+			size = 8;
+		}
+		REFERENCE_SIZE = size;
+	}
+	
+	public static final LongAdder copies = new LongAdder();
+	public static final LongAdder copiedElements = new LongAdder();
+	public static final LongAdder steals = new LongAdder();
+	public static final LongAdder stealFailures = new LongAdder();
+	public static final LongAdder conversionFallbacks = new LongAdder();
+	public static final LongAdder snapshotHits = new LongAdder();
+	public static final LongAdder snapshotCreations = new LongAdder();
+	public static final LongAdder beforeChangeCopies = new LongAdder();
+	public static final LongAdder beforeChangeCopiedElements = new LongAdder();
+	
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	public static void setEnabled(boolean enabled) {
+		Stats.enabled = enabled;
+	}
+	
+	public static long bytes(long elements) {
+		return elements * REFERENCE_SIZE;
+	}
+	
+	public static void reset() {
+		copies.reset();
+		copiedElements.reset();
+		steals.reset();
+		stealFailures.reset();
+		conversionFallbacks.reset();
+		snapshotHits.reset();
+		snapshotCreations.reset();
+		beforeChangeCopies.reset();
+		beforeChangeCopiedElements.reset();
+	}
+	
+	public static void copy(int elements) {
+		if (enabled) {
+			copies.increment();
+			copiedElements.add(elements);
+		}
+	}
+	
+	public static void steal(boolean success) {
+		if (enabled) {
+			(success ? steals : stealFailures).increment();
+		}
+	}
+	
+	public static void conversionFallback() {
+		if (enabled) {
+			conversionFallbacks.increment();
+		}
+	}
+	
+	public static void snapshot(boolean cached) {
+		if (enabled) {
+			(cached ? snapshotHits : snapshotCreations).increment();
+		}
+	}
+	
+	public static void beforeChangeCopy(int elements) {
+		if (enabled) {
+			beforeChangeCopies.increment();
+			beforeChangeCopiedElements.add(elements);
+		}
+	}
+	
+	private Stats() {
+	}
+}
@@ -0,0 +1,96 @@
+package mutabor.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events.
+ * This class is compiled only by JDK 11+ (profile {@code jdk11+})
+ * and loaded only when {@code jdk.jfr} module is available, see {@link Events}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+class JfrEvents extends Events.Recorder {
+	
+	@Category("Mutabor")
+	@StackTrace(true)
+	abstract static class MutaborEvent extends Event {
+		
+		@Label("Elements")
+		@Description("Number of list elements")
+		int elements;
+		
+		@Label("Source Class")
+		@Description("Class of the list or array being processed")
+		Class<?> sourceClass;
+	}
+	
+	@Name("mutabor.Copy")
+	@Label("List Copy")
+	@Description("Elements of a list were copied")
+	static class CopyEvent extends MutaborEvent {
+		
+		@Label("Operation")
+		String operation;
+	}
+	
+	@Name("mutabor.Snapshot")
+	@Label("List Snapshot")
+	@Description("Immutable snapshot of a mutable list was created")
+	static class SnapshotEvent extends MutaborEvent {
+		
+		@Label("Converted")
+		@Description("Array was taken over without copying")
+		boolean converted;
+	}
+	
+	@Name("mutabor.ConversionFallback")
+	@Label("Conversion Fallback")
+	@Description("Fast conversion was not possible, list was copied")
+	static class ConversionFallbackEvent extends MutaborEvent {
+	}
+	
+	@Override
+	protected Object begin(int type) {
+		MutaborEvent event;
+		switch (type) {
+		case Events.COPY:
+			event = new CopyEvent();
+			break;
+		case Events.SNAPSHOT:
+			event = new SnapshotEvent();
+			break;
+		default:
+			event = new ConversionFallbackEvent();
+			break;
+		}
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+	
+	@Override
+	protected void commit(Object obj, int elements, Class<?> sourceClass, String operation, boolean converted) {
+		MutaborEvent event = (MutaborEvent) obj;
+		event.end();
+		if (event.shouldCommit()) {
+			event.elements = elements;
+			event.sourceClass = sourceClass;
+			if (event instanceof CopyEvent) {
+				((CopyEvent) event).operation = operation;
+			} else if (event instanceof SnapshotEvent) {
+				((SnapshotEvent) event).converted = converted;
+			}
+			event.commit();
+		}
+	}
+	
+	JfrEvents() {
+	}
+}
@@ -0,0 +1,433 @@
+package mutabor.internal;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels of {@link PrimitiveKernels} on Vector API: whole vectors of preferred species,
+ * then scalar loop over the rest of range.
+ * Hash code is accumulated per lane and combined with powers of 31 at the end.
+ * This class is compiled only by JDK 16+ (profile {@code jdk16+})
+ * and loaded only when {@code jdk.incubator.vector} module is available, see {@link PrimitiveKernels}.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+class VectorKernels extends PrimitiveKernels.Vectorized {
+	
+	static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	
+	//int vector is widened into this many long vectors for sum
+	static final int INT_PARTS = INTS.length() / LONGS.length();
+	
+	//powers of 31 for lanes, the last lane has the lowest power; the next power is factor of one step
+	static final IntVector INT_POWERS = IntVector.fromArray(INTS, powers(INTS.length()), 0);
+	static final int INT_STEP = power(INTS.length());
+	static final LongVector LONG_POWERS = LongVector.fromArray(LONGS, longPowers(LONGS.length()), 0);
+	static final int LONG_STEP = power(LONGS.length());
+	
+	static final long NAN_BITS = Double.doubleToLongBits(Double.NaN);
+	
+	VectorKernels() {
+	}
+	
+	static int power(int n) {
+		int res = 1;
+		for (int i = 0; i < n; i++) {
+			res *= 31;
+		}
+		return res;
+	}
+	
+	static int[] powers(int n) {
+		int[] res = new int[n];
+		for (int i = 0; i < n; i++) {
+			res[i] = power(n - 1 - i);
+		}
+		return res;
+	}
+	
+	static long[] longPowers(int n) {
+		int[] powers = powers(n);
+		long[] res = new long[n];
+		for (int i = 0; i < n; i++) {
+			res[i] = powers[i];
+		}
+		return res;
+	}
+	
+	/* int */
+	
+	@Override
+	protected int indexOf(int[] a, int fromIndex, int toIndex, int v) {
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			VectorMask<Integer> m = IntVector.fromArray(INTS, a, i).eq(v);
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		for (; i < toIndex; i++) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int lastIndexOf(int[] a, int fromIndex, int toIndex, int v) {
+		int i = toIndex - INTS.length();
+		for (; i >= fromIndex; i -= INTS.length()) {
+			VectorMask<Integer> m = IntVector.fromArray(INTS, a, i).eq(v);
+			if (m.anyTrue()) {
+				return i + m.lastTrue();
+			}
+		}
+		for (i += INTS.length() - 1; i >= fromIndex; i--) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int count(int[] a, int fromIndex, int toIndex, int v) {
+		int res = 0;
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			res += IntVector.fromArray(INTS, a, i).eq(v).trueCount();
+		}
+		for (; i < toIndex; i++) {
+			res += (a[i] == v) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	@Override
+	protected long sum(int[] a, int fromIndex, int toIndex) {
+		LongVector acc = LongVector.zero(LONGS);
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			IntVector v = IntVector.fromArray(INTS, a, i);
+			for (int part = 0; part < INT_PARTS; part++) {
+				acc = acc.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, part));
+			}
+		}
+		long res = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < toIndex; i++) {
+			res += a[i];
+		}
+		return res;
+	}
+	
+	@Override
+	protected int min(int[] a, int fromIndex, int toIndex) {
+		IntVector acc = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			acc = acc.min(IntVector.fromArray(INTS, a, i));
+		}
+		int res = acc.reduceLanes(VectorOperators.MIN);
+		for (; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected int max(int[] a, int fromIndex, int toIndex) {
+		IntVector acc = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			acc = acc.max(IntVector.fromArray(INTS, a, i));
+		}
+		int res = acc.reduceLanes(VectorOperators.MAX);
+		for (; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected boolean equals(int[] a, int aFrom, int[] b, int bFrom, int length) {
+		int i = 0;
+		for (int bound = length - INTS.length(); i <= bound; i += INTS.length()) {
+			if (IntVector.fromArray(INTS, a, aFrom + i).compare(VectorOperators.NE, IntVector.fromArray(INTS, b, bFrom + i)).anyTrue()) {
+				return false;
+			}
+		}
+		for (; i < length; i++) {
+			if (a[aFrom + i] != b[bFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	protected int hashCode(int[] a, int fromIndex, int toIndex) {
+		IntVector acc = IntVector.zero(INTS);
+		int scale = 1;
+		int i = fromIndex;
+		for (int bound = toIndex - INTS.length(); i <= bound; i += INTS.length()) {
+			acc = acc.mul(INT_STEP).add(IntVector.fromArray(INTS, a, i));
+			scale *= INT_STEP;
+		}
+		//initial hash 1 is shifted by all vector steps
+		int h = scale + acc.mul(INT_POWERS).reduceLanes(VectorOperators.ADD);
+		for (; i < toIndex; i++) {
+			h = 31 * h + a[i];
+		}
+		return h;
+	}
+	
+	/* long */
+	
+	@Override
+	protected int indexOf(long[] a, int fromIndex, int toIndex, long v) {
+		int i = fromIndex;
+		for (int bound = toIndex - LONGS.length(); i <= bound; i += LONGS.length()) {
+			VectorMask<Long> m = LongVector.fromArray(LONGS, a, i).eq(v);
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		for (; i < toIndex; i++) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int lastIndexOf(long[] a, int fromIndex, int toIndex, long v) {
+		int i = toIndex - LONGS.length();
+		for (; i >= fromIndex; i -= LONGS.length()) {
+			VectorMask<Long> m = LongVector.fromArray(LONGS, a, i).eq(v);
+			if (m.anyTrue()) {
+				return i + m.lastTrue();
+			}
+		}
+		for (i += LONGS.length() - 1; i >= fromIndex; i--) {
+			if (a[i] == v) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int count(long[] a, int fromIndex, int toIndex, long v) {
+		int res = 0;
+		int i = fromIndex;
+		for (int bound = toIndex - LONGS.length(); i <= bound; i += LONGS.length()) {
+			res += LongVector.fromArray(LONGS, a, i).eq(v).trueCount();
+		}
+		for (; i < toIndex; i++) {
+			res += (a[i] == v) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	@Override
+	protected long sum(long[] a, int fromIndex, int toIndex) {
+		LongVector acc = LongVector.zero(LONGS);
+		int i = fromIndex;
+		for (int bound = toIndex - LONGS.length(); i <= bound; i += LONGS.length()) {
+			acc = acc.add(LongVector.fromArray(LONGS, a, i));
+		}
+		long res = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < toIndex; i++) {
+			res += a[i];
+		}
+		return res;
+	}
+	
+	@Override
+	protected long min(long[] a, int fromIndex, int toIndex) {
+		LongVector acc = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+		int i = fromIndex;
+		for (int bound = toIndex - LONGS.length(); i <= bound; i += LONGS.length()) {
+			acc = acc.min(LongVector.fromArray(LONGS, a, i));
+		}
+		long res = acc.reduceLanes(VectorOperators.MIN);
+		for (; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected long max(long[] a, int fromIndex, int toIndex) {
+		LongVector acc = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+		int i = fromIndex;
+		for (int bound = toIndex - LONGS.length(); i <= bound; i += LONGS.length()) {
+			acc = acc.max(LongVector.fromArray(LONGS, a, i));
+		}
+		long res = acc.reduceLanes(VectorOperators.MAX);
+		for (; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected boolean equals(long[] a, int aFrom, long[] b, int bFrom, int length) {
+		int i = 0;
+		for (int bound = length - LONGS.length(); i <= bound; i += LONGS.length()) {
+			if (LongVector.fromArray(LONGS, a, aFrom + i).compare(VectorOperators.NE, LongVector.fromArray(LONGS, b, bFrom + i)).anyTrue()) {
+				return false;
+			}
+		}
+		for (; i < length; i++) {
+			if (a[aFrom + i] != b[bFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * Hash is accumulated in long lanes: their low 32 bits are the same as of int arithmetic.
+	 */
+	static LongVector accumulateHash(LongVector acc, LongVector v) {
+		return acc.mul(LONG_STEP).add(v.lanewise(VectorOperators.XOR, v.lanewise(VectorOperators.LSHR, 32)));
+	}
+	
+	/* double: elements are compared as by Double.equals(), so NaN is found and 0.0 differs from -0.0 */
+	
+	/*
+	 * Bits of lanes as by Double.doubleToLongBits(): all NaNs have the same bits.
+	 */
+	static LongVector bits(DoubleVector v) {
+		return v.reinterpretAsLongs().blend(NAN_BITS, v.test(VectorOperators.IS_NAN).cast(LONGS));
+	}
+	
+	static VectorMask<Double> matches(DoubleVector v, double value) {
+		if (value != value) {
+			return v.test(VectorOperators.IS_NAN);
+		}
+		if (value == 0) {
+			return v.reinterpretAsLongs().eq(Double.doubleToRawLongBits(value)).cast(DOUBLES);
+		}
+		return v.eq(value);
+	}
+	
+	@Override
+	protected int indexOf(double[] a, int fromIndex, int toIndex, double v) {
+		int i = fromIndex;
+		for (int bound = toIndex - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			VectorMask<Double> m = matches(DoubleVector.fromArray(DOUBLES, a, i), v);
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		long bits = Double.doubleToLongBits(v);
+		for (; i < toIndex; i++) {
+			if (Double.doubleToLongBits(a[i]) == bits) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int lastIndexOf(double[] a, int fromIndex, int toIndex, double v) {
+		int i = toIndex - DOUBLES.length();
+		for (; i >= fromIndex; i -= DOUBLES.length()) {
+			VectorMask<Double> m = matches(DoubleVector.fromArray(DOUBLES, a, i), v);
+			if (m.anyTrue()) {
+				return i + m.lastTrue();
+			}
+		}
+		long bits = Double.doubleToLongBits(v);
+		for (i += DOUBLES.length() - 1; i >= fromIndex; i--) {
+			if (Double.doubleToLongBits(a[i]) == bits) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	protected int count(double[] a, int fromIndex, int toIndex, double v) {
+		int res = 0;
+		int i = fromIndex;
+		for (int bound = toIndex - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			res += matches(DoubleVector.fromArray(DOUBLES, a, i), v).trueCount();
+		}
+		long bits = Double.doubleToLongBits(v);
+		for (; i < toIndex; i++) {
+			res += (Double.doubleToLongBits(a[i]) == bits) ? 1 : 0;
+		}
+		return res;
+	}
+	
+	@Override
+	protected double min(double[] a, int fromIndex, int toIndex) {
+		DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+		int i = fromIndex;
+		for (int bound = toIndex - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			acc = acc.min(DoubleVector.fromArray(DOUBLES, a, i));
+		}
+		double res = acc.reduceLanes(VectorOperators.MIN);
+		for (; i < toIndex; i++) {
+			res = Math.min(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected double max(double[] a, int fromIndex, int toIndex) {
+		DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+		int i = fromIndex;
+		for (int bound = toIndex - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			acc = acc.max(DoubleVector.fromArray(DOUBLES, a, i));
+		}
+		double res = acc.reduceLanes(VectorOperators.MAX);
+		for (; i < toIndex; i++) {
+			res = Math.max(res, a[i]);
+		}
+		return res;
+	}
+	
+	@Override
+	protected boolean equals(double[] a, int aFrom, double[] b, int bFrom, int length) {
+		int i = 0;
+		for (int bound = length - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			if (bits(DoubleVector.fromArray(DOUBLES, a, aFrom + i)).compare(VectorOperators.NE, bits(DoubleVector.fromArray(DOUBLES, b, bFrom + i))).anyTrue()) {
+				return false;
+			}
+		}
+		for (; i < length; i++) {
+			if (Double.doubleToLongBits(a[aFrom + i]) != Double.doubleToLongBits(b[bFrom + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	protected int hashCode(double[] a, int fromIndex, int toIndex) {
+		LongVector acc = LongVector.zero(LONGS);
+		int scale = 1;
+		int i = fromIndex;
+		for (int bound = toIndex - DOUBLES.length(); i <= bound; i += DOUBLES.length()) {
+			acc = accumulateHash(acc, bits(DoubleVector.fromArray(DOUBLES, a, i)));
+			scale *= LONG_STEP;
+		}
+		int h = scale + (int) acc.mul(LONG_POWERS).reduceLanes(VectorOperators.ADD);
+		for (; i < toIndex; i++) {
+			long v = Double.doubleToLongBits(a[i]);
+			h = 31 * h + (int) (v ^ (v >>> 32));
+		}
+		return h;
+	}
+}
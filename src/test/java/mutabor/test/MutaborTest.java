@@ -1,26 +1,84 @@
 package mutabor.test;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import mutabor.BigImmutableList;
+import mutabor.BigMutableList;
+import mutabor.AppendLog;
+import mutabor.CodecInput;
+import mutabor.CodecOutput;
+import mutabor.ElementCodecs;
+import mutabor.FilteredList;
+import mutabor.Footprint;
+import mutabor.Equivalence;
+import mutabor.ImmutableDoubleList;
+import mutabor.ImmutableIntList;
 import mutabor.ImmutableList;
+import mutabor.ImmutableLongList;
+import mutabor.ImmutableMap;
+import mutabor.ImmutableSet;
+import mutabor.ImmutableStringList;
+import mutabor.ImmutableRecordList;
+import mutabor.ListCodec;
 import mutabor.MutableList;
+import mutabor.MutableMap;
+import mutabor.MutableRecordList;
+import mutabor.MutableSet;
 import mutabor.Mutabor;
+import mutabor.MutaborStats;
+import mutabor.PingPongDetector;
 import mutabor.ReadOnlyList;
+import mutabor.RecordCursor;
+import mutabor.RecordSchema;
+import mutabor.SnapshotJournal;
+import mutabor.SubListRetentionPolicy;
+import mutabor.internal.ChunkedImmutableListImpl;
+import mutabor.internal.FootprintAnalyzer;
 import mutabor.internal.InternalUtils;
+import mutabor.internal.PrimitiveKernels;
+import mutabor.internal.SmallImmutableListImpl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * @author Aleksej Kozlov
@@ -361,6 +419,1717 @@ public class MutaborTest {
 		Assert.assertTrue(snapshot3.contentEquals(snapshot4));
 	}
 	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSmallLists() throws IOException, ClassNotFoundException {
+		Assert.assertSame(Mutabor.emptyImmutableList(), Mutabor.copyToImmutableList((Long[]) null));
+		Assert.assertSame(Mutabor.emptyImmutableList(), Mutabor.copyToImmutableList(new ArrayList<Long>()));
+		Assert.assertSame(Mutabor.emptyImmutableList(), Mutabor.convertToImmutableList(new LinkedList<Long>()));
+		Assert.assertSame(Mutabor.emptyImmutableList(), deserialize(serialize(Mutabor.emptyImmutableList())));
+		
+		for (int size = 0; size <= SmallImmutableListImpl.MAX_SIZE + 1; size++) {
+			boolean small = size <= SmallImmutableListImpl.MAX_SIZE;
+			List<Long> listOriginal = makeArrayList(size);
+			
+			ImmutableList<Long> copiedArray = Mutabor.copyToImmutableList(listOriginal.toArray(new Long[size]));
+			ImmutableList<Long> copiedCollection = Mutabor.copyToImmutableList(listOriginal);
+			ImmutableList<Long> converted = Mutabor.convertToImmutableList(makeLinkedList(size));
+			MutableList<Long> listMutable = Mutabor.convertToMutableList(makeArrayList(size));
+			listMutable.add(Long.valueOf(-1));
+			listMutable.remove(Long.valueOf(-1));
+			ImmutableList<Long> snapshot = listMutable.snapshot();
+			
+			for (ImmutableList<Long> list : Arrays.asList(copiedArray, copiedCollection, converted, snapshot)) {
+				Assert.assertEquals(small, list instanceof SmallImmutableListImpl<?>);
+				Assert.assertTrue(list.contentEquals(listOriginal));
+				Assert.assertEquals(listOriginal.hashCode(), list.hashCode());
+				testImmutableIteratorStep(list, size, 0);
+				
+				@SuppressWarnings("unchecked")
+				ImmutableList<Long> listDeserialized = (ImmutableList<Long>) deserialize(serialize(list));
+				Assert.assertEquals(list.getClass(), listDeserialized.getClass());
+				Assert.assertEquals(list, listDeserialized);
+				
+				if (small && size > 0) {
+					ImmutableList<Long> subList = list.subList(1, size);
+					Assert.assertTrue(subList instanceof SmallImmutableListImpl<?>);
+					testImmutableIteratorStep(subList, size - 1, 1);
+				}
+				
+				MutableList<Long> mutable = list.mutable();
+				mutable.add(Long.valueOf(f(size)));
+				testMutableIteratorSubStep(mutable, size + 1, 0);
+				Assert.assertTrue(list.contentEquals(listOriginal));
+			}
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSubListRetention() {
+		ImmutableList<Long> listImmutable = Mutabor.copyToImmutableList(makeArrayList(N_BIG));
+		Assert.assertSame(listImmutable, listImmutable.compact());
+		
+		ImmutableList<Long> view = listImmutable.subList(10, 20);
+		Assert.assertEquals(N_BIG, Mutabor.retainedLength(view));
+		ImmutableList<Long> compacted = view.compact();
+		Assert.assertEquals(10, Mutabor.retainedLength(compacted));
+		testImmutableIteratorStep(compacted, 10, 10);
+		
+		SubListRetentionPolicy policyDefault = Mutabor.getSubListRetentionPolicy();
+		try {
+			Mutabor.setSubListRetentionPolicy(SubListRetentionPolicy.copySmallViews(0.01, N_SMALL).withTracking(true));
+			ImmutableList<Long> small = listImmutable.subList(10, 20);
+			Assert.assertEquals(10, Mutabor.retainedLength(small));
+			testImmutableIteratorStep(small, 10, 10);
+			
+			ImmutableList<Long> large = listImmutable.subList(10, N_BIG / 2);
+			Assert.assertEquals(N_BIG, Mutabor.retainedLength(large));
+			testImmutableIteratorStep(large, N_BIG / 2 - 10, 10);
+			ImmutableList<Long> largeInner = large.subList(5, 15);
+			Assert.assertEquals(10, Mutabor.retainedLength(largeInner));
+			testImmutableIteratorStep(largeInner, 10, 15);
+			
+			ImmutableList<Long> tiny = Mutabor.copyToImmutableList(makeArrayList(N_SMALL / 2)).subList(0, 1);
+			Assert.assertEquals(N_SMALL / 2, Mutabor.retainedLength(tiny));
+			
+			List<ImmutableList<?>> views = Mutabor.retainingViews();
+			Assert.assertTrue(views.contains(large));
+			Assert.assertFalse(views.contains(tiny));
+		} finally {
+			Mutabor.setSubListRetentionPolicy(policyDefault);
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testStats() throws JMException {
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(false);
+			stats.reset();
+			Mutabor.copyToImmutableList(makeArrayList(N_SMALL));
+			Assert.assertEquals(0, stats.getCopies());
+			
+			stats.setEnabled(true);
+			Mutabor.copyToImmutableList(makeArrayList(N_SMALL));
+			Assert.assertEquals(1, stats.getCopies());
+			Assert.assertEquals(N_SMALL, stats.getCopiedElements());
+			Assert.assertTrue(stats.getCopiedBytes() >= 4L * N_SMALL);
+			
+			Mutabor.convertToImmutableList(makeLinkedList(N_SMALL));
+			Assert.assertEquals(1, stats.getStealFailures());
+			Assert.assertEquals(1, stats.getConversionFallbacks());
+			Assert.assertEquals(2, stats.getCopies());
+			
+			MutableList<Long> listMutable = Mutabor.convertToMutableList(makeArrayList(N_SMALL));
+			listMutable.snapshot();
+			listMutable.snapshot();
+			Assert.assertEquals(1, stats.getSnapshotCreations());
+			Assert.assertEquals(1, stats.getSnapshotHits());
+			Assert.assertEquals(stats.getSteals() + stats.getStealFailures(), 2);
+			listMutable.add(Long.valueOf(-1));
+			Assert.assertEquals(1, stats.getBeforeChangeCopies());
+			Assert.assertEquals(N_SMALL, stats.getBeforeChangeCopiedElements());
+			
+			MutaborStats.register();
+			Object copies = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(MutaborStats.OBJECT_NAME), "Copies");
+			Assert.assertEquals(Long.valueOf(stats.getCopies()), copies);
+			MutaborStats.unregister();
+		} finally {
+			stats.setEnabled(enabledDefault);
+			stats.reset();
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPingPongDetector() {
+		PingPongDetector.setEnabled(true);
+		try {
+			MutableList<Long> listQuiet = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+			MutableList<Long> listNoisy = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+			for (int i = 0; i < 5; i++) {
+				listQuiet.snapshot();
+				listQuiet.add(Long.valueOf(i)); //appends do not copy
+				listNoisy.snapshot();
+				listNoisy.set(0, Long.valueOf(i));
+			}
+			listQuiet.snapshot();
+			
+			//release is not a write
+			MutableList<Long> listReleased = Mutabor.copyToImmutableList(makeArrayList(N_SMALL)).mutable();
+			for (int i = 0; i < 5; i++) {
+				listReleased.snapshot();
+				listReleased.releaseSnapshot();
+			}
+			Assert.assertEquals(0, PingPongDetector.cycles(listReleased));
+			
+			Assert.assertEquals(0, PingPongDetector.cycles(listQuiet));
+			Assert.assertEquals(5, PingPongDetector.cycles(listNoisy));
+			Assert.assertTrue(PingPongDetector.copiedElements(listNoisy) >= 5 * N_SMALL);
+			
+			List<PingPongDetector.Offender> offenders = PingPongDetector.topOffenders(10);
+			Assert.assertEquals(1, offenders.size());
+			PingPongDetector.Offender offender = offenders.get(0);
+			Assert.assertEquals(5, offender.getCycles());
+			Assert.assertEquals(5, offender.getMaxInstanceCycles());
+			Assert.assertEquals("testPingPongDetector", offender.getStackTrace()[0].getMethodName());
+			Assert.assertTrue(PingPongDetector.report(10).contains("testPingPongDetector"));
+		} finally {
+			PingPongDetector.setEnabled(false);
+			PingPongDetector.reset();
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAppendAfterSnapshot() throws IOException, ClassNotFoundException {
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(true);
+			stats.reset();
+			
+			MutableList<Long> listMutable = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+			List<ImmutableList<Long>> snapshots = new ArrayList<>();
+			for (int i = N_SMALL; i < N_BIG; i++) {
+				if (i % 100 == 0) {
+					snapshots.add(listMutable.snapshot());
+				}
+				listMutable.add(Long.valueOf(f(i)));
+			}
+			Assert.assertEquals(0, stats.getBeforeChangeCopies());
+			for (ImmutableList<Long> snapshot : snapshots) {
+				checkListByGet(snapshot, 0);
+			}
+			checkListByGet(listMutable, 0);
+			
+			//truncation keeps snapshot intact and does not copy
+			ImmutableList<Long> snapshot = listMutable.snapshot();
+			listMutable.remove(listMutable.size() - 1);
+			listMutable.subList(N_BIG / 2, listMutable.size()).clear();
+			Assert.assertEquals(0, stats.getBeforeChangeCopies());
+			Assert.assertEquals(N_BIG, snapshot.size());
+			checkListByGet(snapshot, 0);
+			
+			//frozen slots are copied before overwriting
+			listMutable.add(Long.valueOf(-1));
+			Assert.assertEquals(1, stats.getBeforeChangeCopies());
+			checkListByGet(snapshot, 0);
+			Assert.assertEquals(N_BIG / 2 + 1, listMutable.size());
+			
+			snapshot = listMutable.snapshot();
+			listMutable.set(0, Long.valueOf(-1));
+			Assert.assertEquals(2, stats.getBeforeChangeCopies());
+			Assert.assertEquals(Long.valueOf(f(0)), snapshot.get(0));
+			
+			try {
+				snapshot.get(snapshot.size());
+				Assert.fail();
+			} catch (@SuppressWarnings("unused") IndexOutOfBoundsException e) {
+				//expected
+			}
+			
+			//slots left to snapshot after truncation are not serialized
+			MutableList<Long> listTruncated = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+			listTruncated.snapshot();
+			while (listTruncated.size() > 10) {
+				listTruncated.remove(listTruncated.size() - 1);
+			}
+			byte[] bytes = serialize(listTruncated);
+			Assert.assertEquals(serialize(Mutabor.copyToMutableList(makeArrayList(10))).length, bytes.length);
+			Assert.assertEquals(makeArrayList(10), deserialize(bytes));
+			
+			try {
+				Mutabor.copyToMutableList(null);
+				Assert.fail();
+			} catch (@SuppressWarnings("unused") NullPointerException e) {
+				//expected
+			}
+		} finally {
+			stats.setEnabled(enabledDefault);
+			stats.reset();
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testChunkedCopyOnWrite() throws IOException, ClassNotFoundException {
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(true);
+			stats.reset();
+			
+			List<Long> listOriginal = makeArrayList(N_BIG);
+			MutableList<Long> listMutable = Mutabor.copyToChunkedMutableList(listOriginal);
+			ImmutableList<Long> snapshot1 = listMutable.snapshot();
+			Assert.assertTrue(snapshot1 instanceof ChunkedImmutableListImpl<?>);
+			testImmutableIteratorStep(snapshot1, N_BIG, 0);
+			
+			listMutable.set(N_BIG / 2, Long.valueOf(-1));
+			Assert.assertEquals(ChunkedImmutableListImpl.CHUNK_SIZE, stats.getBeforeChangeCopiedElements());
+			Assert.assertTrue(snapshot1.contentEquals(listOriginal));
+			
+			//random changes are checked against ArrayList, snapshots must stay intact
+			List<Long> listExpected = new ArrayList<>(listOriginal);
+			listExpected.set(N_BIG / 2, Long.valueOf(-1));
+			for (int step = 0; step < 50; step++) {
+				ImmutableList<Long> snapshot = listMutable.snapshot();
+				List<Long> snapshotExpected = new ArrayList<>(listExpected);
+				int index = random.nextInt(listExpected.size());
+				Long value = Long.valueOf(-step);
+				switch (step % 5) {
+				case 0:
+					listMutable.add(value);
+					listExpected.add(value);
+					break;
+				case 1:
+					listMutable.add(index, value);
+					listExpected.add(index, value);
+					break;
+				case 2:
+					listMutable.remove(index);
+					listExpected.remove(index);
+					break;
+				case 3:
+					while (listExpected.size() > index) {
+						listMutable.remove(listMutable.size() - 1);
+						listExpected.remove(listExpected.size() - 1);
+					}
+					listMutable.addAll(listOriginal.subList(0, N_SMALL));
+					listExpected.addAll(listOriginal.subList(0, N_SMALL));
+					break;
+				default:
+					listMutable.set(index, value);
+					listExpected.set(index, value);
+					break;
+				}
+				Assert.assertEquals(listExpected, listMutable);
+				Assert.assertTrue(snapshot.contentEquals(snapshotExpected));
+			}
+			
+			ImmutableList<Long> snapshot2 = listMutable.snapshot();
+			MutableList<Long> listMutable2 = snapshot2.mutable();
+			listMutable2.add(Long.valueOf(-1));
+			Assert.assertTrue(snapshot2.contentEquals(listExpected));
+			Assert.assertTrue(listMutable2.snapshot() instanceof ChunkedImmutableListImpl<?>);
+			
+			ImmutableList<Long> subList = snapshot2.subList(10, N_SMALL);
+			Assert.assertTrue(subList.contentEquals(listExpected.subList(10, N_SMALL)));
+			@SuppressWarnings("unchecked")
+			ImmutableList<Long> subListDeserialized = (ImmutableList<Long>) deserialize(serialize(subList));
+			Assert.assertEquals(subList, subListDeserialized);
+			Assert.assertEquals(ChunkedImmutableListImpl.CHUNK_SIZE, Mutabor.retainedLength(subListDeserialized));
+			
+			//sublist with offset across chunk borders is copied chunk by chunk
+			int fromIndex = ChunkedImmutableListImpl.CHUNK_SIZE - 10;
+			int toIndex = 3 * ChunkedImmutableListImpl.CHUNK_SIZE + 10;
+			ImmutableList<Long> subListOffset = Mutabor.copyToChunkedMutableList(listOriginal).snapshot().subList(fromIndex, toIndex);
+			MutableList<Long> subListMutable = subListOffset.mutable();
+			subListMutable.add(Long.valueOf(-1));
+			List<Long> subListExpected = new ArrayList<>(listOriginal.subList(fromIndex, toIndex));
+			subListExpected.add(Long.valueOf(-1));
+			Assert.assertEquals(subListExpected, subListMutable);
+			Assert.assertTrue(subListOffset.compact().contentEquals(listOriginal.subList(fromIndex, toIndex)));
+			Assert.assertTrue(subListOffset.subList(5, 8).contentEquals(listOriginal.subList(fromIndex + 5, fromIndex + 8)));
+			
+			//insertion of collection into the middle shifts tail once, snapshot stays intact
+			MutableList<Long> listInsert = Mutabor.copyToChunkedMutableList(listOriginal);
+			ImmutableList<Long> snapshotInsert = listInsert.snapshot();
+			List<Long> listInsertExpected = new ArrayList<>(listOriginal);
+			List<Long> inserted = makeArrayList(2 * ChunkedImmutableListImpl.CHUNK_SIZE + 7);
+			listInsert.addAll(fromIndex, inserted);
+			listInsertExpected.addAll(fromIndex, inserted);
+			listInsert.addAll(5, Collections.<Long>emptyList());
+			Assert.assertEquals(listInsertExpected, listInsert);
+			Assert.assertTrue(snapshotInsert.contentEquals(listOriginal));
+			
+			//only elements of list are serialized, not tails of chunks
+			MutableList<Long> listTruncated = Mutabor.copyToChunkedMutableList(listOriginal);
+			listTruncated.snapshot();
+			while (listTruncated.size() > N_SMALL + 10) {
+				listTruncated.remove(listTruncated.size() - 1);
+			}
+			ImmutableList<Long> snapshotTruncated = listTruncated.snapshot();
+			ImmutableList<Long> snapshotFresh = Mutabor.copyToChunkedMutableList(listOriginal.subList(0, N_SMALL + 10)).snapshot();
+			Assert.assertEquals(serialize(snapshotFresh).length, serialize(snapshotTruncated).length);
+			Assert.assertEquals(serialize(snapshotFresh).length, serialize(snapshotInsert.subList(0, N_SMALL + 10)).length);
+			Assert.assertEquals(snapshotFresh, deserialize(serialize(snapshotTruncated)));
+		} finally {
+			stats.setEnabled(enabledDefault);
+			stats.reset();
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBigLists() throws IOException, ClassNotFoundException {
+		List<Long> listOriginal = makeArrayList(N_BIG);
+		BigMutableList<Long> listMutable = Mutabor.copyToBigMutableList(listOriginal);
+		Assert.assertEquals(N_BIG, listMutable.size());
+		Assert.assertTrue(listMutable.contentEquals(listOriginal));
+		
+		BigImmutableList<Long> snapshot = listMutable.snapshot();
+		Assert.assertSame(snapshot, listMutable.snapshot());
+		listMutable.set(N_BIG - 1L, Long.valueOf(-1));
+		listMutable.add(0L, Long.valueOf(-2));
+		listMutable.remove(N_BIG / 2L);
+		listMutable.add(Long.valueOf(-3));
+		Assert.assertTrue(snapshot.contentEquals(listOriginal));
+		Assert.assertEquals(N_BIG + 1, listMutable.size());
+		Assert.assertEquals(Long.valueOf(-2), listMutable.get(0L));
+		Assert.assertEquals(Long.valueOf(-1), listMutable.get(N_BIG - 1L));
+		Assert.assertEquals(N_BIG, listMutable.indexOf(Long.valueOf(-3)));
+		
+		for (long i = 0; i < N_BIG; i++) {
+			Assert.assertEquals(listOriginal.get((int) i), snapshot.get(i));
+		}
+		
+		long from = ChunkedImmutableListImpl.CHUNK_SIZE - 10;
+		long to = N_BIG - 10;
+		BigImmutableList<Long> subList = snapshot.subList(from, to);
+		Assert.assertEquals(to - from, subList.size());
+		Assert.assertTrue(subList.contentEquals(listOriginal.subList((int) from, (int) to)));
+		Assert.assertTrue(subList.asReadOnlyList().contentEquals(listOriginal.subList((int) from, (int) to)));
+		Assert.assertTrue(snapshot.asReadOnlyList().contentEquals(listOriginal));
+		
+		final long[] sum = new long[1];
+		snapshot.forEach(from, to, e -> sum[0] += e.longValue());
+		long expectedSum = 0;
+		for (Long e : listOriginal.subList((int) from, (int) to)) {
+			expectedSum += e.longValue();
+		}
+		Assert.assertEquals(expectedSum, sum[0]);
+		
+		BigMutableList<Long> subListMutable = subList.mutable();
+		subListMutable.add(Long.valueOf(-4));
+		Assert.assertEquals(to - from + 1, subListMutable.size());
+		Assert.assertEquals(to - from, subList.size());
+		
+		@SuppressWarnings("unchecked")
+		BigImmutableList<Long> subListDeserialized = (BigImmutableList<Long>) deserialize(serialize(subList));
+		Assert.assertEquals(subList, subListDeserialized);
+		
+		//equal to read-only list with the same elements, both ways
+		ImmutableList<Long> subListReadOnly = subList.asReadOnlyList();
+		Assert.assertEquals(subList, subListReadOnly);
+		Assert.assertEquals(subListReadOnly, subList);
+		Assert.assertEquals(subList.hashCode(), subListReadOnly.hashCode());
+		Assert.assertNotEquals(snapshot, subListReadOnly);
+		
+		listMutable.clear();
+		Assert.assertTrue(listMutable.isEmpty());
+		Assert.assertTrue(snapshot.contentEquals(listOriginal));
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCollector() {
+		List<Long> listOriginal = makeArrayList(N_BIG);
+		
+		ImmutableList<Long> listSequential = listOriginal.stream().collect(Mutabor.<Long>toImmutableList());
+		Assert.assertTrue(listSequential.contentEquals(listOriginal));
+		Assert.assertEquals(N_BIG, Mutabor.retainedLength(listSequential));
+		
+		ImmutableList<Long> listParallel = listOriginal.parallelStream().collect(Mutabor.<Long>toImmutableList());
+		Assert.assertTrue(listParallel.contentEquals(listOriginal));
+		Assert.assertEquals(N_BIG, Mutabor.retainedLength(listParallel));
+		
+		ImmutableList<Long> listHinted = listOriginal.parallelStream().collect(Mutabor.<Long>toImmutableList(N_BIG));
+		Assert.assertTrue(listHinted.contentEquals(listOriginal));
+		
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(true);
+			stats.reset();
+			//collector is reusable
+			Collector<Long, ?, ImmutableList<Long>> collector = Mutabor.toImmutableList(N_BIG);
+			for (int i = 0; i < 2; i++) {
+				ImmutableList<Long> listExact = listOriginal.stream().collect(collector);
+				Assert.assertTrue(listExact.contentEquals(listOriginal));
+				Assert.assertEquals(0, stats.getCopies());
+			}
+			Assert.assertTrue(listOriginal.parallelStream().collect(collector).contentEquals(listOriginal));
+		} finally {
+			stats.setEnabled(enabledDefault);
+			stats.reset();
+		}
+		
+		Assert.assertTrue(Stream.<Long>empty().collect(Mutabor.<Long>toImmutableList()).isEmpty());
+		Assert.assertTrue(Stream.of(Long.valueOf(1), Long.valueOf(2)).collect(Mutabor.<Long>toImmutableList()) instanceof SmallImmutableListImpl<?>);
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAdoptArray() {
+		Long[] array = makeArrayList(N_BIG).toArray(new Long[N_BIG + 10]);
+		ImmutableList<Long> list = Mutabor.adoptArray(array, N_BIG);
+		Assert.assertEquals(N_BIG, list.size());
+		Assert.assertEquals(N_BIG + 10, Mutabor.retainedLength(list));
+		checkListByGet(list, 0);
+		Assert.assertSame(Object[].class, list.toArray().getClass());
+		
+		boolean enabledDefault = Mutabor.isAdoptedArrayCheckEnabled();
+		try {
+			Mutabor.setAdoptedArrayCheckEnabled(true);
+			Long[] arrayChecked = makeArrayList(N_SMALL).toArray(new Long[N_SMALL]);
+			ImmutableList<Long> listChecked = Mutabor.adoptArray(arrayChecked, N_SMALL);
+			Mutabor.verifyAdoptedArrays();
+			arrayChecked[N_SMALL / 2] = Long.valueOf(-1);
+			try {
+				Mutabor.verifyAdoptedArrays();
+				Assert.fail();
+			} catch (@SuppressWarnings("unused") ConcurrentModificationException e) {
+				//expected
+			}
+			Assert.assertEquals(Long.valueOf(-1), listChecked.get(N_SMALL / 2));
+		} finally {
+			Mutabor.setAdoptedArrayCheckEnabled(enabledDefault);
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRecordLists() throws IOException, ClassNotFoundException {
+		RecordSchema schema = RecordSchema.EMPTY.withInt("id").withLong("timestamp").withDouble("price");
+		int id = schema.column("id");
+		int timestamp = schema.column("timestamp");
+		int price = schema.column("price");
+		
+		MutableRecordList listMutable = Mutabor.newMutableRecordList(schema);
+		for (int i = 0; i < N_SMALL; i++) {
+			int row = listMutable.addRow();
+			listMutable.setInt(row, id, i);
+			listMutable.setLong(row, timestamp, 1000L * i);
+			listMutable.setDouble(row, price, i / 2.0);
+		}
+		Assert.assertEquals(N_SMALL, listMutable.size());
+		
+		ImmutableRecordList snapshot = listMutable.snapshot();
+		Assert.assertSame(snapshot, listMutable.snapshot());
+		listMutable.setInt(0, id, -1);
+		listMutable.removeRow(1);
+		listMutable.clear();
+		Assert.assertEquals(0, listMutable.addRow());
+		Assert.assertEquals(0, listMutable.getLong(0, timestamp));
+		
+		Assert.assertEquals(N_SMALL, snapshot.size());
+		RecordCursor cursor = snapshot.cursor();
+		int rows = 0;
+		while (cursor.next()) {
+			Assert.assertEquals(rows, cursor.getInt(id));
+			Assert.assertEquals(1000L * rows, cursor.getLong(timestamp));
+			rows++;
+		}
+		Assert.assertEquals(N_SMALL, rows);
+		Assert.assertEquals(1000L * N_SMALL * (N_SMALL - 1) / 2, snapshot.longs(timestamp).sum());
+		Assert.assertEquals(N_SMALL - 1, snapshot.ints(id).max().getAsInt());
+		Assert.assertEquals((N_SMALL - 1) / 2.0, snapshot.getDouble(N_SMALL - 1, price), 0.0);
+		
+		MutableRecordList listMutable2 = snapshot.mutable();
+		listMutable2.removeRow(0);
+		listMutable2.setDouble(0, price, -1.0);
+		Assert.assertEquals(N_SMALL - 1, listMutable2.size());
+		Assert.assertEquals(1, listMutable2.getInt(0, id));
+		Assert.assertEquals(0, snapshot.getInt(0, id));
+		Assert.assertEquals(0.5, snapshot.getDouble(1, price), 0.0);
+		
+		//list which created snapshot and mutable copy of snapshot do not share spare capacity
+		MutableRecordList writerA = Mutabor.newMutableRecordList(schema);
+		for (int i = 0; i < 5; i++) {
+			writerA.setInt(writerA.addRow(), id, i);
+		}
+		ImmutableRecordList snapshotA = writerA.snapshot();
+		writerA.setInt(writerA.addRow(), id, 100);
+		MutableRecordList writerB = snapshotA.mutable();
+		writerB.setInt(writerB.addRow(), id, 200);
+		Assert.assertEquals(100, writerA.getInt(5, id));
+		Assert.assertEquals(200, writerB.getInt(5, id));
+		Assert.assertEquals(5, snapshotA.size());
+		
+		//only rows of snapshot are serialized
+		MutableRecordList shrunk = Mutabor.newMutableRecordList(schema);
+		for (int i = 0; i < N_SMALL; i++) {
+			shrunk.setInt(shrunk.addRow(), id, i);
+		}
+		while (shrunk.size() > 5) {
+			shrunk.removeRow(shrunk.size() - 1);
+		}
+		ImmutableRecordList shrunkSnapshot = shrunk.snapshot();
+		Assert.assertEquals(serialize(snapshotA).length, serialize(shrunkSnapshot).length);
+		ImmutableRecordList copy = (ImmutableRecordList) deserialize(serialize(shrunkSnapshot));
+		Assert.assertEquals(5, copy.size());
+		Assert.assertEquals(4, copy.getInt(4, id));
+		
+		try {
+			snapshot.getLong(0, id);
+			Assert.fail();
+		} catch (@SuppressWarnings("unused") ClassCastException e) {
+			//expected
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testListCodec() throws IOException {
+		ListCodec<Long> longCodec = new ListCodec<>(ElementCodecs.varLongs());
+		ImmutableList<Long> listLongs = Mutabor.copyToImmutableList(makeArrayList(N_BIG));
+		ImmutableList<String> listStrings = Mutabor.copyToImmutableList(Arrays.asList("a", "\u043c\u0443\u0442\u0430\u0431\u043e\u0440", null, "", "z"));
+		ListCodec<String> stringCodec = new ListCodec<>(ElementCodecs.nullable(ElementCodecs.utf8()));
+		ListCodec<ImmutableList<Integer>> nestedCodec = new ListCodec<>(ElementCodecs.lists(ElementCodecs.varInts()));
+		ImmutableList<ImmutableList<Integer>> listNested = Mutabor.copyToImmutableList(Arrays.asList(
+				Mutabor.copyToImmutableList(Arrays.asList(Integer.valueOf(-1), Integer.valueOf(Integer.MIN_VALUE))),
+				Mutabor.<Integer>emptyImmutableList()));
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodecOutput out = new CodecOutput(Channels.newChannel(bytes), ByteBuffer.allocateDirect(100));
+		longCodec.write(out, listLongs);
+		stringCodec.write(out, listStrings);
+		nestedCodec.write(out, listNested);
+		try (ListCodec.Writer<Long> writer = longCodec.writer(out, 1000)) {
+			for (Long e : listLongs) {
+				writer.add(e);
+			}
+		}
+		out.flush();
+		
+		CodecInput in = new CodecInput(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), ByteBuffer.allocateDirect(100));
+		ImmutableList<Long> listLongsRead = longCodec.read(in);
+		Assert.assertEquals(listLongs, listLongsRead);
+		Assert.assertEquals(N_BIG, Mutabor.retainedLength(listLongsRead));
+		Assert.assertEquals(listStrings, stringCodec.read(in));
+		Assert.assertEquals(listNested, nestedCodec.read(in));
+		final long[] sum = new long[1];
+		Assert.assertEquals(N_BIG, longCodec.forEach(in, e -> sum[0] += e.longValue()));
+		long expectedSum = 0;
+		for (Long e : listLongs) {
+			expectedSum += e.longValue();
+		}
+		Assert.assertEquals(expectedSum, sum[0]);
+		try {
+			in.readByte();
+			Assert.fail();
+		} catch (@SuppressWarnings("unused") EOFException e) {
+			//expected
+		}
+		
+		//corrupt lengths fail on end of input, huge arrays are not allocated
+		bytes.reset();
+		out.writeVarLong(Integer.MAX_VALUE);
+		out.writeVarLong(1);
+		out.writeVarLong(Integer.MAX_VALUE);
+		out.flush();
+		in = new CodecInput(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), ByteBuffer.allocateDirect(100));
+		try {
+			longCodec.read(in);
+			Assert.fail();
+		} catch (@SuppressWarnings("unused") EOFException e) {
+			//expected
+		}
+		in = new CodecInput(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), ByteBuffer.allocateDirect(100));
+		try {
+			stringCodec.read(in);
+			Assert.fail();
+		} catch (@SuppressWarnings("unused") EOFException e) {
+			//expected
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAppendLog() throws InterruptedException {
+		final int nThreads = 4;
+		final int nPerThread = N_BIG / nThreads;
+		final AppendLog<Long> log = Mutabor.newAppendLog(N_SMALL, 0, TimeUnit.MILLISECONDS);
+		Thread[] producers = new Thread[nThreads];
+		for (int t = 0; t < nThreads; t++) {
+			final long base = (long) t * nPerThread;
+			producers[t] = new Thread(() -> {
+				for (int i = 0; i < nPerThread; i++) {
+					log.append(Long.valueOf(base + i));
+				}
+			});
+			producers[t].start();
+		}
+		
+		int lastSize = 0;
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (Thread producer : producers) {
+				running |= producer.isAlive();
+			}
+			ImmutableList<Long> snapshot = log.snapshot();
+			Assert.assertTrue(snapshot.size() >= lastSize);
+			for (int i = lastSize; i < snapshot.size(); i++) {
+				Assert.assertNotNull(snapshot.get(i));
+			}
+			lastSize = snapshot.size();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		
+		ImmutableList<Long> snapshot = log.publish();
+		Assert.assertEquals(nThreads * nPerThread, snapshot.size());
+		Assert.assertSame(snapshot, log.snapshot());
+		boolean[] seen = new boolean[nThreads * nPerThread];
+		for (Long e : snapshot) {
+			Assert.assertFalse(seen[e.intValue()]);
+			seen[e.intValue()] = true;
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReadPaths() throws IOException, ClassNotFoundException {
+		List<Long> listExpected = makeArrayList(N_SMALL);
+		MutableList<Long> listMutable = Mutabor.copyToMutableList(listExpected);
+		ImmutableList<Long> snapshot = listMutable.snapshot();
+		
+		//reads of frozen list
+		Assert.assertEquals(listExpected, listMutable);
+		Assert.assertEquals(listExpected.indexOf(Long.valueOf(7)), listMutable.indexOf(Long.valueOf(7)));
+		Assert.assertEquals(-1, listMutable.lastIndexOf(null));
+		List<Long> listIterated = new ArrayList<>();
+		listMutable.forEach(listIterated::add);
+		Assert.assertEquals(listExpected, listIterated);
+		
+		//removal through iterator copies array once, snapshot is kept intact
+		for (Iterator<Long> it = listMutable.iterator(); it.hasNext(); ) {
+			if (it.next().longValue() % 2 == 0) {
+				it.remove();
+			}
+		}
+		listExpected.removeIf(e -> e.longValue() % 2 == 0);
+		Assert.assertEquals(listExpected, listMutable);
+		Assert.assertTrue(snapshot.contentEquals(makeArrayList(N_SMALL)));
+		
+		Iterator<Long> it = listMutable.iterator();
+		it.next();
+		listMutable.add(null);
+		try {
+			it.next();
+			Assert.fail();
+		} catch (ConcurrentModificationException e) {
+			//expected
+		}
+		Assert.assertEquals(listMutable.size() - 1, listMutable.lastIndexOf(null));
+		
+		//fast reads survive serialization
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(listMutable);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			@SuppressWarnings("unchecked")
+			MutableList<Long> listRead = (MutableList<Long>) in.readObject();
+			Assert.assertEquals(listMutable, listRead);
+			Assert.assertTrue(listRead.contains(null));
+		}
+		
+		//conversion of snapshotted list drops array of its list too
+		listMutable = Mutabor.copyToMutableList(Arrays.asList(Long.valueOf(1), Long.valueOf(2)));
+		listMutable.snapshot();
+		Mutabor.convertToImmutableList(listMutable);
+		it = listMutable.iterator();
+		Assert.assertEquals(Long.valueOf(1), it.next());
+		it.remove();
+		Assert.assertEquals(Long.valueOf(2), it.next());
+		Assert.assertFalse(it.hasNext());
+		Assert.assertEquals(Collections.singletonList(Long.valueOf(2)), listMutable);
+	}
+	
+	@Test
+	public void testEquivalenceSearch() {
+		String a1 = new String("a");
+		String a2 = new String("a");
+		String b = "b";
+		ImmutableList<String> list = Mutabor.copyToImmutableList(Arrays.asList(b, a1, null, a2, b));
+		Assert.assertEquals(1, list.indexOf("a"));
+		Assert.assertEquals(3, list.indexOfIdentical(a2));
+		Assert.assertEquals(-1, list.indexOfIdentical(new String("a")));
+		Assert.assertEquals(1, list.lastIndexOfIdentical(a1));
+		Assert.assertTrue(list.containsIdentical(null));
+		Assert.assertEquals(2, list.indexOf(null, Equivalence.identity()));
+		
+		//sublist returns indexes relative to itself
+		ImmutableList<String> sub = list.subList(1, 5);
+		Assert.assertEquals(0, sub.indexOf("a"));
+		Assert.assertEquals(2, sub.lastIndexOf("a"));
+		Assert.assertEquals(2, sub.indexOfIdentical(a2));
+		Assert.assertEquals(3, sub.lastIndexOf(b, Equivalence.identity()));
+		Assert.assertFalse(sub.subList(0, 1).containsIdentical(a2));
+		
+		Equivalence<String> ignoreCase = new Equivalence<String>() {
+			@Override
+			public boolean equivalent(String x, String y) {
+				return x.equalsIgnoreCase(y);
+			}
+			
+			@Override
+			public int hash(String o) {
+				return o.toLowerCase().hashCode();
+			}
+		};
+		Assert.assertEquals(4, list.lastIndexOf("B", ignoreCase));
+		Assert.assertEquals(3, sub.lastIndexOf("B", ignoreCase));
+		Assert.assertTrue(list.contains("A", ignoreCase));
+		Assert.assertFalse(list.contains("A"));
+		
+		//hash index is used for big lists and queries
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < N_SMALL; i++) {
+			words.add("w" + i);
+		}
+		words.add(null);
+		ImmutableList<String> big = Mutabor.copyToImmutableList(words);
+		List<String> query = new ArrayList<>();
+		for (int i = 0; i < N_SMALL; i += 3) {
+			query.add("W" + i);
+		}
+		Assert.assertTrue(big.containsAll(query, ignoreCase));
+		Assert.assertFalse(big.containsAll(query, Equivalence.equality()));
+		query.add(null);
+		Assert.assertTrue(big.containsAll(query, ignoreCase));
+		query.add("W" + N_SMALL);
+		Assert.assertFalse(big.containsAll(query, ignoreCase));
+		Assert.assertTrue(big.containsAll(words, Equivalence.equality()));
+		Assert.assertTrue(big.containsAll(words, Equivalence.identity()));
+		Assert.assertFalse(big.containsAll(Arrays.asList(new String("w1"), "w2", "w3", "w4"), Equivalence.identity()));
+	}
+	
+	@Test
+	public void testPrimitiveLists() {
+		Random random = new Random(42);
+		int[] ints = new int[N_SMALL + 3];
+		long[] longs = new long[ints.length];
+		double[] doubles = new double[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = random.nextInt(100) - 50;
+			longs[i] = random.nextLong();
+			doubles[i] = random.nextInt(100) / 4.0;
+		}
+		doubles[10] = Double.NaN;
+		doubles[11] = -0.0;
+		
+		ImmutableIntList intList = Mutabor.copyToImmutableIntList(ints);
+		ints[0] = 1000;
+		Assert.assertNotEquals(1000, intList.get(0));
+		ints[0] = intList.get(0);
+		List<Integer> intsBoxed = new ArrayList<>();
+		for (int v : ints) {
+			intsBoxed.add(Integer.valueOf(v));
+		}
+		Assert.assertEquals(intsBoxed.hashCode(), intList.hashCode());
+		Assert.assertEquals(Arrays.stream(ints).asLongStream().sum(), intList.sum());
+		Assert.assertEquals(Arrays.stream(ints).min().getAsInt(), intList.min());
+		Assert.assertEquals(Arrays.stream(ints).max().getAsInt(), intList.max());
+		Assert.assertEquals(intsBoxed.indexOf(Integer.valueOf(7)), intList.indexOf(7));
+		Assert.assertEquals(intsBoxed.lastIndexOf(Integer.valueOf(7)), intList.lastIndexOf(7));
+		Assert.assertEquals(Arrays.stream(ints).filter(v -> v == 7).count(), intList.count(7));
+		ImmutableIntList intSub = intList.subList(5, 105);
+		Assert.assertEquals(intsBoxed.subList(5, 105).indexOf(Integer.valueOf(7)), intSub.indexOf(7));
+		Assert.assertEquals(intsBoxed.subList(5, 105).hashCode(), intSub.hashCode());
+		Assert.assertEquals(intSub, Mutabor.copyToImmutableIntList(Arrays.copyOfRange(ints, 5, 105)));
+		Assert.assertNotEquals(intSub, intList.subList(6, 106));
+		Assert.assertArrayEquals(Arrays.copyOfRange(ints, 5, 105), intSub.compact().toArray());
+		
+		ImmutableLongList longList = Mutabor.copyToImmutableLongList(longs);
+		Assert.assertEquals(Arrays.stream(longs).sum(), longList.sum());
+		Assert.assertEquals(Arrays.stream(longs).min().getAsLong(), longList.min());
+		Assert.assertEquals(Arrays.stream(longs).max().getAsLong(), longList.max());
+		Assert.assertEquals(500, longList.indexOf(longs[500]));
+		Assert.assertEquals(1, longList.count(longs[500]));
+		Assert.assertEquals(Arrays.asList(Arrays.stream(longs).boxed().toArray()).hashCode(), longList.hashCode());
+		
+		ImmutableDoubleList doubleList = Mutabor.copyToImmutableDoubleList(doubles);
+		List<Double> doublesBoxed = new ArrayList<>();
+		for (double v : doubles) {
+			doublesBoxed.add(Double.valueOf(v));
+		}
+		Assert.assertEquals(10, doubleList.indexOf(Double.NaN));
+		Assert.assertEquals(11, doubleList.indexOf(-0.0));
+		Assert.assertEquals(doublesBoxed.indexOf(Double.valueOf(0.0)), doubleList.indexOf(0.0));
+		Assert.assertEquals(doublesBoxed.lastIndexOf(Double.valueOf(2.5)), doubleList.lastIndexOf(2.5));
+		Assert.assertEquals(doublesBoxed.hashCode(), doubleList.hashCode());
+		Assert.assertTrue(Double.isNaN(doubleList.sum()));
+		Assert.assertTrue(Double.isNaN(doubleList.max()));
+		Assert.assertEquals(Arrays.stream(doubles, 12, 100).sum(), doubleList.subList(12, 100).sum(), 0.0);
+		Assert.assertEquals(doubleList, Mutabor.copyToImmutableDoubleList(doubles));
+		
+		Assert.assertTrue(Mutabor.copyToImmutableIntList(null).isEmpty());
+		try {
+			intList.subList(0, 0).min();
+			Assert.fail();
+		} catch (NoSuchElementException e) {
+			//expected
+		}
+	}
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPrimitiveKernels() {
+		try {
+			Class.forName("jdk.incubator.vector.IntVector");
+			Assert.assertTrue(PrimitiveKernels.isVectorized());
+		} catch (@SuppressWarnings("unused") ClassNotFoundException e) {
+			Assert.assertFalse(PrimitiveKernels.isVectorized());
+		}
+		//ranges of every length around vector sizes and thresholds, at odd offsets
+		Random random = new Random(7);
+		double[] specials = {Double.NaN, Double.longBitsToDouble(0x7ff0000000000123L), 0.0, -0.0, Double.NEGATIVE_INFINITY, 1.5};
+		for (int length = 0; length < 200; length++) {
+			int offset = random.nextInt(5);
+			int[] ints = new int[offset + length + 3];
+			long[] longs = new long[ints.length];
+			double[] doubles = new double[ints.length];
+			for (int i = 0; i < ints.length; i++) {
+				ints[i] = random.nextInt(7) - 3;
+				longs[i] = (random.nextInt(7) - 3) * 0x100000001L;
+				doubles[i] = (random.nextInt(4) == 0) ? specials[random.nextInt(specials.length)] : random.nextInt(7) - 3;
+			}
+			int from = offset;
+			int to = offset + length;
+			List<Integer> intsBoxed = new ArrayList<>();
+			List<Long> longsBoxed = new ArrayList<>();
+			List<Double> doublesBoxed = new ArrayList<>();
+			for (int i = from; i < to; i++) {
+				intsBoxed.add(Integer.valueOf(ints[i]));
+				longsBoxed.add(Long.valueOf(longs[i]));
+				doublesBoxed.add(Double.valueOf(doubles[i]));
+			}
+			
+			for (int v = -4; v <= 4; v++) {
+				Integer boxed = Integer.valueOf(v);
+				Assert.assertEquals(indexOrMinus(intsBoxed.indexOf(boxed), from), PrimitiveKernels.indexOf(ints, from, to, v));
+				Assert.assertEquals(indexOrMinus(intsBoxed.lastIndexOf(boxed), from), PrimitiveKernels.lastIndexOf(ints, from, to, v));
+				Assert.assertEquals(Collections.frequency(intsBoxed, boxed), PrimitiveKernels.count(ints, from, to, v));
+				Long boxedLong = Long.valueOf(v * 0x100000001L);
+				Assert.assertEquals(indexOrMinus(longsBoxed.indexOf(boxedLong), from), PrimitiveKernels.indexOf(longs, from, to, boxedLong.longValue()));
+				Assert.assertEquals(indexOrMinus(longsBoxed.lastIndexOf(boxedLong), from), PrimitiveKernels.lastIndexOf(longs, from, to, boxedLong.longValue()));
+				Assert.assertEquals(Collections.frequency(longsBoxed, boxedLong), PrimitiveKernels.count(longs, from, to, boxedLong.longValue()));
+			}
+			for (double v : new double[] {Double.NaN, 0.0, -0.0, 1.5, -3.0, 2.0}) {
+				Double boxed = Double.valueOf(v);
+				Assert.assertEquals(indexOrMinus(doublesBoxed.indexOf(boxed), from), PrimitiveKernels.indexOf(doubles, from, to, v));
+				Assert.assertEquals(indexOrMinus(doublesBoxed.lastIndexOf(boxed), from), PrimitiveKernels.lastIndexOf(doubles, from, to, v));
+				Assert.assertEquals(Collections.frequency(doublesBoxed, boxed), PrimitiveKernels.count(doubles, from, to, v));
+			}
+			
+			Assert.assertEquals(Arrays.stream(ints, from, to).asLongStream().sum(), PrimitiveKernels.sum(ints, from, to));
+			Assert.assertEquals(Arrays.stream(longs, from, to).sum(), PrimitiveKernels.sum(longs, from, to));
+			Assert.assertEquals(intsBoxed.hashCode(), PrimitiveKernels.hashCode(ints, from, to));
+			Assert.assertEquals(longsBoxed.hashCode(), PrimitiveKernels.hashCode(longs, from, to));
+			Assert.assertEquals(doublesBoxed.hashCode(), PrimitiveKernels.hashCode(doubles, from, to));
+			if (length > 0) {
+				Assert.assertEquals(Collections.min(intsBoxed).intValue(), PrimitiveKernels.min(ints, from, to));
+				Assert.assertEquals(Collections.max(intsBoxed).intValue(), PrimitiveKernels.max(ints, from, to));
+				Assert.assertEquals(Collections.min(longsBoxed).longValue(), PrimitiveKernels.min(longs, from, to));
+				Assert.assertEquals(Collections.max(longsBoxed).longValue(), PrimitiveKernels.max(longs, from, to));
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (int i = from; i < to; i++) {
+					min = Math.min(min, doubles[i]);
+					max = Math.max(max, doubles[i]);
+				}
+				Assert.assertEquals(Double.doubleToLongBits(min), Double.doubleToLongBits(PrimitiveKernels.min(doubles, from, to)));
+				Assert.assertEquals(Double.doubleToLongBits(max), Double.doubleToLongBits(PrimitiveKernels.max(doubles, from, to)));
+			}
+			
+			//copies are equal, change of any element is noticed; NaNs with other bits are equal
+			int[] intsCopy = Arrays.copyOfRange(ints, from, to);
+			long[] longsCopy = Arrays.copyOfRange(longs, from, to);
+			double[] doublesCopy = Arrays.copyOfRange(doubles, from, to);
+			for (int i = 0; i < length; i++) {
+				if (Double.isNaN(doublesCopy[i])) {
+					doublesCopy[i] = Double.longBitsToDouble(0x7ff8000000000777L);
+				}
+			}
+			Assert.assertTrue(PrimitiveKernels.equals(ints, from, intsCopy, 0, length));
+			Assert.assertTrue(PrimitiveKernels.equals(longs, from, longsCopy, 0, length));
+			Assert.assertTrue(PrimitiveKernels.equals(doubles, from, doublesCopy, 0, length));
+			if (length > 0) {
+				int i = random.nextInt(length);
+				intsCopy[i]++;
+				longsCopy[i] ^= 1L << 40;
+				doublesCopy[i] = (doublesCopy[i] == 0.0) ? -doublesCopy[i] : 0.25;
+				Assert.assertFalse(PrimitiveKernels.equals(ints, from, intsCopy, 0, length));
+				Assert.assertFalse(PrimitiveKernels.equals(longs, from, longsCopy, 0, length));
+				Assert.assertFalse(PrimitiveKernels.equals(doubles, from, doublesCopy, 0, length));
+			}
+		}
+	}
+	
+	protected static int indexOrMinus(int index, int offset) {
+		return (index < 0) ? -1 : index + offset;
+	}
+	
+	@Test
+	public void testFilterView() {
+		for (int n : new int[] {0, 1, 63, 64, 65, N_SMALL, 100000}) {
+			List<Long> listExpected = makeArrayList(n);
+			ImmutableList<Long> list = Mutabor.copyToImmutableList(listExpected);
+			FilteredList<Long> even = list.filterView(e -> e.longValue() % 2 == 0);
+			FilteredList<Long> byThree = list.filterView(e -> e.longValue() % 3 == 0, true);
+			
+			checkFilterView(listExpected, even, e -> e.longValue() % 2 == 0);
+			checkFilterView(listExpected, even.and(byThree), e -> e.longValue() % 6 == 0);
+			checkFilterView(listExpected, even.or(byThree), e -> e.longValue() % 2 == 0 || e.longValue() % 3 == 0);
+			checkFilterView(listExpected, even.andNot(byThree), e -> e.longValue() % 2 == 0 && e.longValue() % 3 != 0);
+			
+			if (even.size() > 4) {
+				List<Long> subExpected = even.toList().subList(1, even.size() - 2);
+				ImmutableList<Long> sub = even.subList(1, even.size() - 2);
+				Assert.assertTrue(sub.contentEquals(subExpected));
+				Assert.assertEquals(subExpected.get(subExpected.size() - 1), sub.get(sub.size() - 1));
+			}
+		}
+		
+		ImmutableList<Long> list = Mutabor.copyToImmutableList(makeArrayList(N_SMALL));
+		try {
+			list.filterView(e -> true).and(list.subList(0, N_SMALL).filterView(e -> true));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+	
+	protected static void checkFilterView(List<Long> listExpected, FilteredList<Long> view, Predicate<Long> predicate) {
+		List<Long> filtered = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < listExpected.size(); i++) {
+			if (predicate.test(listExpected.get(i))) {
+				filtered.add(listExpected.get(i));
+				indexes.add(Integer.valueOf(i));
+			}
+		}
+		Assert.assertEquals(filtered.size(), view.size());
+		Assert.assertTrue(view.contentEquals(filtered));
+		Assert.assertEquals(filtered, view.toList());
+		Assert.assertEquals(filtered.hashCode(), view.hashCode());
+		for (int i = 0; i < filtered.size(); i += 7) {
+			Assert.assertEquals(filtered.get(i), view.get(i));
+			Assert.assertEquals(indexes.get(i).intValue(), view.sourceIndex(i));
+			Assert.assertEquals(i, view.indexOf(filtered.get(i)));
+			Assert.assertEquals(i, view.lastIndexOf(filtered.get(i)));
+		}
+		Assert.assertEquals(-1, view.indexOf(Long.valueOf(-1)));
+		Assert.assertArrayEquals(filtered.toArray(), view.toArray());
+		Assert.assertTrue(view.compact().contentEquals(filtered));
+		ListIterator<Long> it = view.listIterator(view.size());
+		for (int i = filtered.size() - 1; i >= 0; i--) {
+			Assert.assertEquals(filtered.get(i), it.previous());
+		}
+	}
+	
+	@Test
+	public void testFootprint() {
+		ImmutableList<Long> list = Mutabor.copyToImmutableList(makeArrayList(N_SMALL));
+		Footprint footprint = Mutabor.footprint(list);
+		Assert.assertEquals(1, footprint.getArrays());
+		Assert.assertTrue(footprint.getRetainedBytes() > footprint.getShallowBytes() + 4L * N_SMALL);
+		Assert.assertEquals(0, footprint.getSlackBytes());
+		Assert.assertEquals(0, footprint.getPinnedBytes());
+		Assert.assertEquals(0, footprint.getSharedBytes());
+		
+		//unused tail of adopted array
+		Long[] array = makeArrayList(N_SMALL).toArray(new Long[0]);
+		ImmutableList<Long> adopted = Mutabor.adoptArray(array, N_SMALL / 2);
+		Assert.assertEquals(Mutabor.footprint(adopted).getRetainedBytes() / 2, Mutabor.footprint(adopted).getSlackBytes(), 32);
+		
+		//small view pins parent array, unless parent is analyzed too
+		ImmutableList<Long> view = list.subList(10, 20);
+		Footprint viewFootprint = Mutabor.footprint(view);
+		Assert.assertEquals(footprint.getRetainedBytes() - footprint.getShallowBytes(), viewFootprint.getRetainedBytes() - viewFootprint.getShallowBytes());
+		Assert.assertEquals((N_SMALL - 10) * (footprint.getRetainedBytes() - footprint.getShallowBytes()) / N_SMALL, viewFootprint.getPinnedBytes(), 32);
+		Assert.assertEquals(0, Mutabor.footprint(view, list).getPinnedBytes());
+		
+		//array of mutable list is shared with its snapshot until the first change
+		MutableList<Long> listMutable = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+		ImmutableList<Long> snapshot = listMutable.snapshot();
+		Footprint sharedFootprint = Mutabor.footprint(listMutable, snapshot);
+		Assert.assertTrue(sharedFootprint.getSharedBytes() >= 4L * N_SMALL);
+		Assert.assertEquals(1, sharedFootprint.getArrays());
+		listMutable.add(Long.valueOf(0));
+		Footprint copiedFootprint = Mutabor.footprint(listMutable, snapshot);
+		Assert.assertEquals(0, copiedFootprint.getSharedBytes());
+		Assert.assertEquals(2, copiedFootprint.getArrays());
+		Footprint listFootprint = Mutabor.footprint(list.toList());
+		Assert.assertEquals(footprint.getRetainedBytes() - footprint.getShallowBytes(), listFootprint.getRetainedBytes() - listFootprint.getShallowBytes());
+		
+		//tracked lists are published by MBean
+		Mutabor.trackFootprint(view);
+		Assert.assertTrue(Mutabor.stats().getFootprintPinnedBytes() >= viewFootprint.getPinnedBytes());
+		
+		//attributes of one scrape come from one walk, tracking invalidates it
+		long retained = Mutabor.stats().getFootprintRetainedBytes();
+		ImmutableList<Long> listTracked = Mutabor.copyToImmutableList(makeArrayList(N_SMALL));
+		Assert.assertSame(FootprintAnalyzer.trackedCached(), FootprintAnalyzer.trackedCached());
+		Mutabor.trackFootprint(listTracked);
+		Assert.assertTrue(Mutabor.stats().getFootprintRetainedBytes() >= retained + 4L * N_SMALL);
+		Assert.assertEquals(N_SMALL, listTracked.size());
+	}
+	
+	@Test
+	public void testSets() throws IOException, ClassNotFoundException {
+		Random random = new Random(1);
+		Set<Long> setExpected = new HashSet<>();
+		MutableSet<Long> setMutable = Mutabor.newMutableSet();
+		List<ImmutableSet<Long>> snapshots = new ArrayList<>();
+		List<Set<Long>> snapshotsExpected = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			Long e = (random.nextInt(10) == 0) ? null : Long.valueOf(random.nextInt(2000));
+			if (random.nextInt(3) == 0) {
+				Assert.assertEquals(setExpected.remove(e), setMutable.remove(e));
+			} else {
+				Assert.assertEquals(setExpected.add(e), setMutable.add(e));
+			}
+			Assert.assertEquals(setExpected.size(), setMutable.size());
+			if (i % 1000 == 0) {
+				ImmutableSet<Long> snapshot = setMutable.snapshot();
+				Assert.assertSame(snapshot, setMutable.snapshot());
+				snapshots.add(snapshot);
+				snapshotsExpected.add(new HashSet<>(setExpected));
+			}
+		}
+		Assert.assertEquals(setExpected, setMutable);
+		for (int i = 0; i < snapshots.size(); i++) {
+			Assert.assertEquals(snapshotsExpected.get(i), snapshots.get(i).toSet());
+			Assert.assertEquals(snapshotsExpected.get(i).hashCode(), snapshots.get(i).hashCode());
+		}
+		
+		//iterator removal does not touch snapshot
+		setMutable.add(null);
+		ImmutableSet<Long> snapshot = setMutable.snapshot();
+		for (Iterator<Long> it = setMutable.iterator(); it.hasNext(); ) {
+			Long e = it.next();
+			if (e == null || e.longValue() % 2 == 0) {
+				it.remove();
+			}
+		}
+		setExpected.removeIf(e -> e == null || e.longValue() % 2 == 0);
+		Assert.assertEquals(setExpected, setMutable);
+		Assert.assertTrue(snapshot.contains(null));
+		Assert.assertEquals(Mutabor.copyToImmutableSet(snapshot.toSet()), snapshot);
+		Assert.assertNotEquals(Mutabor.copyToImmutableSet(setMutable), snapshot);
+		
+		//mutable copy shares table with immutable set
+		MutableSet<Long> copy = snapshot.mutable();
+		Assert.assertEquals(snapshot.toSet(), copy);
+		copy.clear();
+		Assert.assertTrue(copy.isEmpty());
+		Assert.assertFalse(snapshot.isEmpty());
+		Assert.assertTrue(Mutabor.emptyImmutableSet().isEmpty());
+		
+		//first add after snapshot which grows table rehashes from shared table
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(true);
+			MutableSet<Long> growing = Mutabor.newMutableSet();
+			for (long i = 0; i < 6; i++) {
+				growing.add(Long.valueOf(i));
+			}
+			ImmutableSet<Long> beforeGrow = growing.snapshot();
+			stats.reset();
+			growing.add(Long.valueOf(6));
+			growing.remove(Long.valueOf(0));
+			Assert.assertEquals(1, stats.getBeforeChangeCopies());
+			Assert.assertEquals(6, beforeGrow.size());
+			Assert.assertTrue(beforeGrow.contains(Long.valueOf(0)));
+			Assert.assertFalse(beforeGrow.contains(Long.valueOf(6)));
+			Assert.assertEquals(6, growing.size());
+			Assert.assertFalse(growing.contains(Long.valueOf(0)));
+		} finally {
+			stats.setEnabled(enabledDefault);
+		}
+		
+		//mutable copy continues with removal markers of snapshot
+		copy = setMutable.snapshot().mutable();
+		for (long i = 0; i < 10000; i++) {
+			copy.add(Long.valueOf(-i - 1));
+			copy.remove(Long.valueOf(-i - 1));
+		}
+		Assert.assertEquals(setExpected, copy);
+		
+		//snapshot which drops removal markers fails iterator over old slots
+		for (long i = 0; i < 1000; i++) {
+			setMutable.add(Long.valueOf(-i - 1));
+		}
+		for (long i = 0; i < 1000; i++) {
+			setMutable.remove(Long.valueOf(-i - 1));
+		}
+		Iterator<Long> stale = setMutable.iterator();
+		stale.next();
+		setMutable.snapshot();
+		try {
+			stale.next();
+			Assert.fail();
+		} catch (ConcurrentModificationException e) {
+			//expected
+		}
+		Assert.assertEquals(setExpected, setMutable);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(snapshot);
+			out.writeObject(setMutable);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Assert.assertEquals(snapshot, in.readObject());
+			Assert.assertEquals(setMutable, in.readObject());
+		}
+	}
+	
+	@Test
+	public void testMaps() throws IOException, ClassNotFoundException {
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		try {
+			stats.setEnabled(true);
+			Random random = new Random(2);
+			Map<String, Long> mapExpected = new HashMap<>();
+			MutableMap<String, Long> mapMutable = Mutabor.newMutableMap();
+			List<ImmutableMap<String, Long>> snapshots = new ArrayList<>();
+			List<Map<String, Long>> snapshotsExpected = new ArrayList<>();
+			for (int i = 0; i < 20000; i++) {
+				String key = (random.nextInt(50) == 0) ? null : "k" + random.nextInt(1000);
+				Long value = (random.nextInt(20) == 0) ? null : Long.valueOf(i);
+				if (random.nextInt(3) == 0) {
+					Assert.assertEquals(mapExpected.remove(key), mapMutable.remove(key));
+				} else {
+					Assert.assertEquals(mapExpected.put(key, value), mapMutable.put(key, value));
+				}
+				if (i % 1000 == 0) {
+					ImmutableMap<String, Long> snapshot = mapMutable.snapshot();
+					Assert.assertSame(snapshot, mapMutable.snapshot());
+					snapshots.add(snapshot);
+					snapshotsExpected.add(new HashMap<>(mapExpected));
+				}
+			}
+			Assert.assertEquals(mapExpected, mapMutable);
+			Assert.assertEquals(mapExpected.hashCode(), mapMutable.hashCode());
+			for (int i = 0; i < snapshots.size(); i++) {
+				Assert.assertEquals(snapshotsExpected.get(i), snapshots.get(i).toMap());
+				Assert.assertEquals(snapshotsExpected.get(i).hashCode(), snapshots.get(i).hashCode());
+				Assert.assertEquals(snapshotsExpected.get(i).keySet(), snapshots.get(i).keys().toSet());
+			}
+			
+			//first write after snapshot copies once, value writes leave keys shared
+			mapMutable.put("a", Long.valueOf(1));
+			ImmutableMap<String, Long> snapshot = mapMutable.snapshot();
+			stats.reset();
+			mapMutable.put("a", Long.valueOf(2));
+			mapMutable.put("a", Long.valueOf(3));
+			mapMutable.put("b", Long.valueOf(4));
+			mapMutable.remove("b");
+			Assert.assertEquals(1, stats.getBeforeChangeCopies());
+			Assert.assertEquals(Long.valueOf(1), snapshot.get("a"));
+			Assert.assertFalse(snapshot.containsKey("b"));
+			Assert.assertEquals(Long.valueOf(3), mapMutable.get("a"));
+			
+			//first write after snapshot which grows tables rehashes from shared tables
+			MutableMap<String, Long> growing = Mutabor.newMutableMap();
+			for (int i = 0; i < 6; i++) {
+				growing.put("g" + i, Long.valueOf(i));
+			}
+			ImmutableMap<String, Long> beforeGrow = growing.snapshot();
+			stats.reset();
+			growing.put("g6", Long.valueOf(6));
+			growing.put("g0", Long.valueOf(-1));
+			Assert.assertEquals(1, stats.getBeforeChangeCopies());
+			Assert.assertEquals(6, beforeGrow.size());
+			Assert.assertEquals(Long.valueOf(0), beforeGrow.get("g0"));
+			Assert.assertFalse(beforeGrow.containsKey("g6"));
+			Assert.assertEquals(7, growing.size());
+			Assert.assertEquals(Long.valueOf(-1), growing.get("g0"));
+			
+			//entry iterator writes through and removes
+			for (Iterator<Map.Entry<String, Long>> it = mapMutable.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<String, Long> entry = it.next();
+				if (entry.getValue() == null) {
+					it.remove();
+				} else {
+					entry.setValue(Long.valueOf(-entry.getValue().longValue()));
+				}
+			}
+			mapExpected.put("a", Long.valueOf(3));
+			mapExpected.values().removeIf(v -> v == null);
+			mapExpected.replaceAll((k, v) -> Long.valueOf(-v.longValue()));
+			Assert.assertEquals(mapExpected, mapMutable);
+			Assert.assertEquals(Long.valueOf(1), snapshot.get("a"));
+			
+			Assert.assertEquals(snapshot, snapshot.mutable().snapshot());
+			Assert.assertEquals(snapshot, Mutabor.copyToImmutableMap(snapshot.toMap()));
+			
+			//entry does not write into slot moved by rehash
+			Map.Entry<String, Long> stale = mapMutable.entrySet().iterator().next();
+			for (int i = 0; i < 1000; i++) {
+				mapMutable.put("n" + i, Long.valueOf(i));
+			}
+			try {
+				stale.setValue(Long.valueOf(0));
+				Assert.fail();
+			} catch (ConcurrentModificationException e) {
+				//expected
+			}
+			for (int i = 0; i < 1000; i++) {
+				mapMutable.remove("n" + i);
+			}
+			stale = mapMutable.entrySet().iterator().next();
+			//snapshot drops removal markers
+			mapMutable.snapshot();
+			try {
+				stale.setValue(Long.valueOf(0));
+				Assert.fail();
+			} catch (ConcurrentModificationException e) {
+				//expected
+			}
+			Assert.assertEquals(mapExpected, mapMutable);
+			
+			//mutable copy of snapshot continues with its removal markers
+			MutableMap<String, Long> copy = mapMutable.snapshot().mutable();
+			for (int i = 0; i < 1000; i++) {
+				copy.put("c" + i, Long.valueOf(i));
+				copy.remove("c" + i);
+			}
+			Assert.assertEquals(mapExpected, copy);
+			Assert.assertTrue(Mutabor.emptyImmutableMap().isEmpty());
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(snapshot);
+				out.writeObject(mapMutable);
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				Assert.assertEquals(snapshot, in.readObject());
+				Assert.assertEquals(mapMutable, in.readObject());
+			}
+		} finally {
+			stats.setEnabled(enabledDefault);
+		}
+	}
+	
+	@Test
+	public void testStringLists() throws IOException, ClassNotFoundException {
+		String[] parts = {"a", "key", "\u00e9t\u00e9", "\u043a\u043b\u044e\u0447", "\ud83d\ude00", "\ud83d", "\ude00x", ""};
+		Random random = new Random(3);
+		for (int latin1 = 0; latin1 < 2; latin1++) {
+			List<String> listExpected = new ArrayList<>();
+			ImmutableStringList.Builder builder = Mutabor.newImmutableStringListBuilder();
+			for (int i = 0; i < 1000; i++) {
+				String s = null;
+				if (random.nextInt(30) != 0) {
+					StringBuilder sb = new StringBuilder();
+					for (int j = random.nextInt(4); j > 0; j--) {
+						sb.append(parts[random.nextInt((latin1 == 0) ? 3 : parts.length)]);
+					}
+					sb.append(i % 7);
+					s = sb.toString();
+				}
+				listExpected.add(s);
+				builder.add(s);
+			}
+			Assert.assertEquals(listExpected.size(), builder.size());
+			ImmutableStringList list = builder.build();
+			Assert.assertEquals(listExpected, list.toList());
+			Assert.assertEquals(listExpected.hashCode(), list.hashCode());
+			Assert.assertTrue(list.contentEquals(listExpected));
+			for (int i = 0; i < list.size(); i++) {
+				String s = listExpected.get(i);
+				Assert.assertEquals(Objects.hashCode(s), list.hashCodeAt(i));
+				Assert.assertTrue(list.equalsAt(i, s));
+				Assert.assertEquals(listExpected.indexOf(s), list.indexOf(s));
+				Assert.assertEquals(listExpected.lastIndexOf(s), list.lastIndexOf(s));
+				for (String other : new String[] {listExpected.get(random.nextInt(list.size())), "a", "\ud83d"}) {
+					Assert.assertEquals(Objects.equals(s, other), list.equalsAt(i, other));
+					if (other != null) {
+						Assert.assertEquals(s != null && s.startsWith(other), list.startsWith(i, other));
+					}
+					if (s != null) {
+						for (int k = 0; k <= s.length(); k++) {
+							Assert.assertTrue(list.startsWith(i, s.substring(0, k)));
+						}
+					}
+				}
+			}
+			Assert.assertEquals(-1, list.indexOf("\u044f\u044f"));
+			Assert.assertEquals(-1, list.indexOf(Integer.valueOf(1)));
+			
+			ImmutableStringList subList = list.subList(100, 300);
+			Assert.assertEquals(listExpected.subList(100, 300), subList.toList());
+			Assert.assertEquals(listExpected.subList(100, 300).indexOf(listExpected.get(150)),
+					subList.indexOf(listExpected.get(150)));
+			ImmutableStringList compact = subList.compact();
+			Assert.assertEquals(subList, compact);
+			Assert.assertSame(compact, compact.compact());
+			Assert.assertEquals(subList.byteSize(), compact.byteSize());
+			
+			ImmutableStringList cached = subList.cached();
+			for (int i = 0; i < cached.size(); i++) {
+				Assert.assertSame(cached.get(i), cached.get(i));
+				Assert.assertSame(cached.get(i), cached.subList(i, cached.size()).get(0));
+			}
+			Assert.assertEquals(subList, cached);
+			
+			Assert.assertSame(list, Mutabor.copyToImmutableStringList(list));
+			ImmutableList<String> copy = Mutabor.copyToImmutableList(listExpected);
+			ImmutableStringList converted = Mutabor.copyToImmutableStringList(copy);
+			Assert.assertEquals(copy, converted);
+			Assert.assertEquals(converted, copy);
+			MutableList<String> mutable = converted.mutable();
+			mutable.add("z");
+			Assert.assertEquals(listExpected.size() + 1, mutable.size());
+			Assert.assertEquals(listExpected, converted.toList());
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(list);
+				out.writeObject(cached);
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				Assert.assertEquals(list, in.readObject());
+				ImmutableStringList read = (ImmutableStringList) in.readObject();
+				Assert.assertEquals(subList, read);
+				Assert.assertEquals(subList.byteSize(), read.byteSize());
+			}
+		}
+		Assert.assertTrue(Mutabor.copyToImmutableStringList(null).isEmpty());
+	}
+	
+	@Test
+	public void testSnapshotJournal() throws IOException {
+		Path file = Files.createTempFile("mutabor", ".journal");
+		try {
+			Random random = new Random(4);
+			List<ImmutableList<Integer>> versions = new ArrayList<>();
+			MutableList<Integer> list = Mutabor.copyToMutableList(new ArrayList<Integer>());
+			try (SnapshotJournal<Integer> journal = Mutabor.openSnapshotJournal(file, ElementCodecs.nullable(ElementCodecs.varInts()), 10)) {
+				Assert.assertEquals(0, journal.lastVersion());
+				for (int v = 1; v <= 100; v++) {
+					for (int j = random.nextInt(5); j >= 0; j--) {
+						int op = random.nextInt(4);
+						if (op == 0 && !list.isEmpty()) {
+							list.remove(random.nextInt(list.size()));
+						} else if (op == 1 && !list.isEmpty()) {
+							list.set(random.nextInt(list.size()), (random.nextInt(10) == 0) ? null : random.nextInt());
+						} else if (op == 2) {
+							list.add(random.nextInt(list.size() + 1), random.nextInt());
+						} else {
+							list.add(random.nextInt());
+						}
+					}
+					if (v == 50) {
+						list.clear();
+					}
+					ImmutableList<Integer> snapshot = list.snapshot();
+					versions.add(snapshot);
+					Assert.assertEquals(v, journal.append(snapshot));
+				}
+				journal.sync();
+				Assert.assertEquals(100, journal.durableVersion());
+				for (int v = 1; v <= 100; v++) {
+					Assert.assertEquals(versions.get(v - 1), journal.read(v));
+				}
+			}
+			
+			long size = Files.size(file);
+			//torn record at the end is dropped on opening
+			Files.write(file, new byte[] {1, 0, 0, 0}, StandardOpenOption.APPEND);
+			try (SnapshotJournal<Integer> journal = Mutabor.openSnapshotJournal(file, ElementCodecs.nullable(ElementCodecs.varInts()), 10)) {
+				Assert.assertEquals(size, Files.size(file));
+				Assert.assertEquals(1, journal.firstVersion());
+				Assert.assertEquals(100, journal.lastVersion());
+				Assert.assertEquals(100, journal.durableVersion());
+				for (int v = 100; v >= 1; v -= 7) {
+					Assert.assertEquals(versions.get(v - 1), journal.read(v));
+				}
+				list.add(1);
+				versions.add(list.snapshot());
+				Assert.assertEquals(101, journal.append(list.snapshot()));
+				Assert.assertEquals(versions.get(100), journal.read(101));
+				try {
+					journal.read(102);
+					Assert.fail();
+				} catch (IllegalArgumentException e) {
+					//expected
+				}
+			}
+			try (SnapshotJournal<Integer> journal = Mutabor.openSnapshotJournal(file, ElementCodecs.nullable(ElementCodecs.varInts()), 10)) {
+				Assert.assertEquals(101, journal.lastVersion());
+				Assert.assertEquals(versions.get(100), journal.read(101));
+				Assert.assertEquals(versions.get(99), journal.read(100));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testReadPathAllocations() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		
+		ImmutableList<Long> immutable = Mutabor.copyToImmutableList(makeArrayList(N_BIG));
+		MutableList<Long> mutable = Mutabor.copyToMutableList(makeArrayList(N_BIG));
+		mutable.add(Long.valueOf(0));
+		mutable.snapshot();
+		ImmutableSet<Long> set = Mutabor.copyToImmutableSet(makeArrayList(N_SMALL));
+		Map<Long, Long> map = new HashMap<>();
+		for (Long e : makeArrayList(N_SMALL)) {
+			map.put(e, e);
+		}
+		ImmutableMap<Long, Long> immutableMap = Mutabor.copyToImmutableMap(map);
+		List<String> strings = new ArrayList<>();
+		for (int i = 0; i < N_SMALL; i++) {
+			strings.add("key-" + i + ((i % 3 == 0) ? "\u044f" : ""));
+		}
+		ImmutableStringList stringList = Mutabor.copyToImmutableStringList(strings);
+		
+		//every loop makes at least N_BIG reads: allocation per read would take megabytes
+		long bound = 1024;
+		checkAllocation(threads, "ImmutableList.get", bound, () -> {
+			long sum = 0;
+			for (int i = 0, n = immutable.size(); i < n; i++) {
+				sum += immutable.get(i).longValue();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "ImmutableList.iterator", bound, () -> {
+			long sum = 0;
+			for (Long e : immutable) {
+				sum += e.longValue();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "ImmutableList.forEach", bound, () -> {
+			long[] sum = new long[1];
+			immutable.forEach(e -> sum[0] += e.longValue());
+			return sum[0];
+		});
+		checkAllocation(threads, "MutableList.get", bound, () -> {
+			long sum = 0;
+			for (int i = 0, n = mutable.size(); i < n; i++) {
+				sum += mutable.get(i).longValue();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "MutableList.iterator", bound, () -> {
+			long sum = 0;
+			for (Long e : mutable) {
+				sum += e.longValue();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "MutableList.snapshot (cached)", bound, () -> {
+			long sum = 0;
+			for (int i = 0; i < N_BIG; i++) {
+				sum += mutable.snapshot().size();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "ImmutableSet.contains", bound, () -> {
+			long sum = 0;
+			for (int i = 0; i < N_BIG; i++) {
+				sum += set.contains(immutable.get(i)) ? 1 : 0;
+			}
+			return sum;
+		});
+		checkAllocation(threads, "ImmutableMap.get", bound, () -> {
+			long sum = 0;
+			for (int i = 0; i < N_BIG; i++) {
+				Long value = immutableMap.get(immutable.get(i));
+				sum += (value == null) ? 0 : value.longValue();
+			}
+			return sum;
+		});
+		checkAllocation(threads, "ImmutableStringList.equalsAt/hashCodeAt", bound, () -> {
+			long sum = 0;
+			for (int i = 0; i < N_BIG; i++) {
+				int index = i % N_SMALL;
+				sum += stringList.hashCodeAt(index);
+				sum += stringList.equalsAt(index, strings.get(index)) ? 1 : 0;
+			}
+			return sum;
+		});
+	}
+	
+	@Test
+	public void testDerive() throws InterruptedException {
+		AtomicInteger computations = new AtomicInteger();
+		Function<ImmutableList<Long>, List<Long>> sorted = list -> {
+			computations.incrementAndGet();
+			List<Long> res = new ArrayList<>(list.toList());
+			Collections.sort(res);
+			return res;
+		};
+		MutableList<Long> listMutable = Mutabor.copyToMutableList(makeArrayList(N_SMALL));
+		ImmutableList<Long> snapshot = listMutable.snapshot();
+		List<Long> derived = snapshot.derive("sorted", sorted);
+		Assert.assertSame(derived, snapshot.derive("sorted", sorted));
+		Assert.assertSame(derived, listMutable.snapshot().derive("sorted", sorted));
+		Assert.assertEquals(1, computations.get());
+		
+		//new snapshot after change derives again, old snapshot keeps its value
+		listMutable.add(Long.valueOf(-1));
+		List<Long> derivedNew = listMutable.snapshot().derive("sorted", sorted);
+		Assert.assertEquals(2, computations.get());
+		Assert.assertEquals(Long.valueOf(-1), derivedNew.get(0));
+		Assert.assertSame(derived, snapshot.derive("sorted", sorted));
+		
+		//concurrent calls compute once
+		ImmutableList<Long> shared = listMutable.snapshot().subList(1, N_SMALL);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Object> results = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				results.add(shared.derive("sorted", sorted));
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(3, computations.get());
+		Assert.assertEquals(8, results.size());
+		for (Object result : results) {
+			Assert.assertSame(results.get(0), result);
+		}
+		
+		//value may be derived from other values, but not from itself
+		Integer count = snapshot.derive("count", list -> list.derive("sorted", sorted).size());
+		Assert.assertEquals(N_SMALL, count.intValue());
+		try {
+			snapshot.derive("self", list -> list.derive("self", l -> null));
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		
+		//failed computation is not kept
+		try {
+			snapshot.derive("failing", list -> {
+				throw new UnsupportedOperationException();
+			});
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			//expected
+		}
+		Assert.assertEquals("ok", snapshot.derive("failing", list -> "ok"));
+		Assert.assertNull(snapshot.derive("null", list -> null));
+		
+		List<ImmutableList<Long>> lists = Arrays.asList(
+				Mutabor.copyToChunkedMutableList(makeArrayList(N_SMALL)).snapshot(),
+				snapshot.filterView(e -> (e.longValue() & 1) == 0));
+		for (ImmutableList<Long> list : lists) {
+			Object value = list.derive("sorted", sorted);
+			Assert.assertSame(value, list.derive("sorted", sorted));
+		}
+		
+		//small and empty lists keep nothing
+		int before = computations.get();
+		ImmutableList<Long> listSmall = Mutabor.copyToImmutableList(makeArrayList(3));
+		Assert.assertEquals(listSmall.derive("sorted", sorted), listSmall.derive("sorted", sorted));
+		ImmutableList<Long> listEmpty = Mutabor.emptyImmutableList();
+		Assert.assertTrue(listEmpty.derive("sorted", sorted).isEmpty());
+		Assert.assertEquals(before + 3, computations.get());
+		
+		ImmutableStringList strings = Mutabor.copyToImmutableStringList(Arrays.asList("b", "a"));
+		Assert.assertEquals("a", strings.derive("min", list -> Collections.min(list.toList())));
+		Assert.assertEquals("a", strings.derive("min", list -> "other"));
+	}
+	
+	@Test
+	public void testArrayPool() {
+		MutaborStats stats = Mutabor.stats();
+		boolean enabledDefault = stats.isEnabled();
+		boolean poolDefault = Mutabor.isArrayPoolEnabled();
+		boolean singleOwnerDefault = Mutabor.isSingleOwnerSnapshots();
+		try {
+			stats.setEnabled(true);
+			Mutabor.setArrayPoolEnabled(true);
+			Mutabor.setSingleOwnerSnapshots(true);
+			stats.reset();
+			
+			List<Long> listExpected = makeArrayList(N_SMALL);
+			MutableList<Long> listMutable = Mutabor.copyToMutableList(listExpected);
+			
+			//snapshot is released before write: nothing is copied
+			for (int i = 0; i < 10; i++) {
+				listMutable.snapshot();
+				listMutable.releaseSnapshot();
+				listMutable.set(i, Long.valueOf(-i));
+				listExpected.set(i, Long.valueOf(-i));
+			}
+			Assert.assertEquals(0, stats.getBeforeChangeCopies());
+			
+			//snapshot is released after write: array left to snapshot goes to pool
+			for (int i = 0; i < 10; i++) {
+				ImmutableList<Long> snapshot = listMutable.snapshot();
+				Assert.assertTrue(snapshot.contentEquals(listExpected));
+				listMutable.set(i, Long.valueOf(i));
+				listExpected.set(i, Long.valueOf(i));
+				listMutable.releaseSnapshot();
+			}
+			Assert.assertEquals(listExpected, listMutable);
+			Assert.assertEquals(10, stats.getBeforeChangeCopies());
+			//initial array is not of pool size class, so it is not pooled
+			Assert.assertEquals(8, stats.getPoolHits());
+			Assert.assertEquals(0.8, stats.getPoolHitRate(), 1e-9);
+			Assert.assertEquals(1, stats.getPooledArrays());
+			
+			//empty snapshot followed by write
+			MutableList<String> listEmpty = Mutabor.copyToImmutableList(new ArrayList<String>()).mutable();
+			listEmpty.add("x");
+			Assert.assertEquals(Collections.singletonList("x"), listEmpty);
+			listEmpty = Mutabor.copyToMutableList(new ArrayList<String>());
+			listEmpty.snapshot();
+			listEmpty.add("x");
+			Assert.assertEquals(Collections.singletonList("x"), listEmpty);
+			
+			Mutabor.setArrayPoolEnabled(false);
+			Assert.assertEquals(0, stats.getPooledArrays());
+		} finally {
+			stats.setEnabled(enabledDefault);
+			Mutabor.setArrayPoolEnabled(poolDefault);
+			Mutabor.setSingleOwnerSnapshots(singleOwnerDefault);
+			stats.reset();
+		}
+	}
+	
+	/*
+	 * Runs warmed-up action and checks bytes allocated by current thread.
+	 */
+	protected static void checkAllocation(com.sun.management.ThreadMXBean threads, String path, long bound, LongSupplier action) {
+		long id = Thread.currentThread().getId();
+		long sum = 0;
+		for (int i = 0; i < 20; i++) {
+			sum += action.getAsLong();
+		}
+		long min = Long.MAX_VALUE;
+		//minimum of several runs: other activity of this thread (class loading, JIT deoptimization) is not counted
+		for (int i = 0; i < 5; i++) {
+			long before = threads.getThreadAllocatedBytes(id);
+			sum += action.getAsLong();
+			min = Math.min(min, threads.getThreadAllocatedBytes(id) - before);
+		}
+		Assert.assertTrue(path + " allocated " + min + " bytes (" + sum + ")", min <= bound);
+	}
+	
 	protected static List<Long> makeArrayList(int size) {
 		List<Long> list = new ArrayList<>(size);
 		fillList(list, size);
@@ -0,0 +1,86 @@
+package mutabor.test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+import mutabor.internal.PrimitiveKernels;
+
+/**
+ * Measures kernels of primitive lists, nanoseconds per element for every operation and size.
+ * Run twice to compare vector kernels with scalar loops:
+ * with {@code --add-modules jdk.incubator.vector} and without it (or with {@code -Dmutabor.vector=false}).
+ * Searches look for absent value, so they scan the whole range.
+ * @author Aleksej Kozlov {@literal <ovoled@gmail.com>}
+ */
+public class PrimitiveKernelsBenchmark {
+	
+	protected static final int[] SIZES = {64, 1024, 65536, 1 << 20};
+	protected static final long MIN_NANOS = 200000000L;
+	
+	//results are consumed so that JIT compiler does not drop the calls
+	protected static int sink;
+	
+	public static void main(String[] args) {
+		System.out.println("vectorized: " + PrimitiveKernels.isVectorized());
+		System.out.printf(Locale.ROOT, "%-16s%12s%12s%12s%12s%n", "ns/element", SIZES[0], SIZES[1], SIZES[2], SIZES[3]);
+		Random random = new Random(1);
+		int max = SIZES[SIZES.length - 1];
+		int[] ints = new int[max];
+		long[] longs = new long[max];
+		double[] doubles = new double[max];
+		for (int i = 0; i < max; i++) {
+			ints[i] = random.nextInt(1000);
+			longs[i] = random.nextInt(1000);
+			doubles[i] = random.nextInt(1000);
+		}
+		int[] intsCopy = ints.clone();
+		long[] longsCopy = longs.clone();
+		double[] doublesCopy = doubles.clone();
+		
+		for (int pass = 0; pass < 2; pass++) {
+			//the first pass warms up
+			boolean print = pass > 0;
+			run(print, "int indexOf", n -> () -> PrimitiveKernels.indexOf(ints, 0, n, -1));
+			run(print, "int count", n -> () -> PrimitiveKernels.count(ints, 0, n, 7));
+			run(print, "int sum", n -> () -> (int) PrimitiveKernels.sum(ints, 0, n));
+			run(print, "int max", n -> () -> PrimitiveKernels.max(ints, 0, n));
+			run(print, "int equals", n -> () -> PrimitiveKernels.equals(ints, 0, intsCopy, 0, n) ? 1 : 0);
+			run(print, "int hashCode", n -> () -> PrimitiveKernels.hashCode(ints, 0, n));
+			run(print, "long indexOf", n -> () -> PrimitiveKernels.indexOf(longs, 0, n, -1));
+			run(print, "long sum", n -> () -> (int) PrimitiveKernels.sum(longs, 0, n));
+			run(print, "long equals", n -> () -> PrimitiveKernels.equals(longs, 0, longsCopy, 0, n) ? 1 : 0);
+			run(print, "long hashCode", n -> () -> PrimitiveKernels.hashCode(longs, 0, n));
+			run(print, "double indexOf", n -> () -> PrimitiveKernels.indexOf(doubles, 0, n, -1.0));
+			run(print, "double min", n -> () -> (int) PrimitiveKernels.min(doubles, 0, n));
+			run(print, "double equals", n -> () -> PrimitiveKernels.equals(doubles, 0, doublesCopy, 0, n) ? 1 : 0);
+			run(print, "double hashCode", n -> () -> PrimitiveKernels.hashCode(doubles, 0, n));
+		}
+		System.out.println(sink == 42 ? "" : " ");
+	}
+	
+	protected interface Kernel {
+		IntSupplier forSize(int n);
+	}
+	
+	protected static void run(boolean print, String name, Kernel kernel) {
+		StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-16s", name));
+		for (int n : SIZES) {
+			IntSupplier op = kernel.forSize(n);
+			long calls = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do {
+				for (int i = 0; i < 100; i++) {
+					sink += op.getAsInt();
+				}
+				calls += 100;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < MIN_NANOS);
+			line.append(String.format(Locale.ROOT, "%12.3f", (double) elapsed / calls / n));
+		}
+		if (print) {
+			System.out.println(line);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package mutabor.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mutabor.MutableList;
+import mutabor.Mutabor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests of JDK Flight Recorder events, compiled and run only by JDK 11+ (profile {@code jdk11+}).
+ * @author Aleksej Kozlov
+ */
+public class FlightRecorderTest {
+	
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFlightRecorderEvents() throws IOException {
+		int thresholdDefault = Mutabor.getFlightRecorderThreshold();
+		Path file = Files.createTempFile("mutabor", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("mutabor.Copy");
+			recording.enable("mutabor.Snapshot");
+			recording.enable("mutabor.ConversionFallback");
+			Mutabor.setFlightRecorderThreshold(MutaborTest.N_SMALL);
+			recording.start();
+			
+			Mutabor.copyToImmutableList(MutaborTest.makeArrayList(MutaborTest.N_SMALL / 2)); //below threshold
+			Mutabor.convertToImmutableList(MutaborTest.makeLinkedList(MutaborTest.N_BIG));
+			MutableList<Long> listMutable = Mutabor.copyToImmutableList(MutaborTest.makeArrayList(MutaborTest.N_BIG)).mutable();
+			listMutable.add(Long.valueOf(-1));
+			listMutable.snapshot();
+			
+			recording.stop();
+			recording.dump(file);
+			
+			int copies = 0;
+			int fallbacks = 0;
+			int snapshots = 0;
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				String name = event.getEventType().getName();
+				if (name.equals("mutabor.Copy")) {
+					copies++;
+					Assert.assertTrue(event.getInt("elements") >= MutaborTest.N_BIG);
+					Assert.assertNotNull(event.getStackTrace());
+				} else if (name.equals("mutabor.ConversionFallback")) {
+					fallbacks++;
+					Assert.assertEquals(LinkedList.class.getName(), event.getClass("sourceClass").getName());
+				} else if (name.equals("mutabor.Snapshot")) {
+					snapshots++;
+					Assert.assertEquals(MutaborTest.N_BIG + 1, event.getInt("elements"));
+				}
+			}
+			Assert.assertTrue(copies >= 3); //fallback copy, copy, beforeChange
+			Assert.assertEquals(1, fallbacks);
+			Assert.assertEquals(1, snapshots);
+		} finally {
+			Mutabor.setFlightRecorderThreshold(thresholdDefault);
+			Files.delete(file);
+		}
+	}
+}